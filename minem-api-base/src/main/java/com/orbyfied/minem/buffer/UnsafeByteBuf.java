@@ -26,6 +26,13 @@ public abstract class UnsafeByteBuf {
         return new UnsafeDirectByteBuf(ptr, capacity).setFlags(FLAG_FIXED_POINTER);
     }
 
+    /**
+     * Create a view of the given region of this buffer, see {@link UnsafeSliceByteBuf}.
+     */
+    public final UnsafeSliceByteBuf slice(int offset, int length) {
+        return new UnsafeSliceByteBuf().set(this, offset, length);
+    }
+
     /** The unsafe instance. */
     protected static final Unsafe UNSAFE = UnsafeUtil.getUnsafe();
 
@@ -80,6 +87,33 @@ public abstract class UnsafeByteBuf {
         readIndex = 0;
     }
 
+    /**
+     * Reset the read and write offsets to the given headroom, leaving
+     * that amount of bytes free in front of the data so a header can be
+     * prepended without copying once the data is written.
+     *
+     * @param headroom The amount of bytes to reserve.
+     */
+    public final void resetWithHeadroom(int headroom) {
+        ensureCapacity(headroom);
+        writeIndex = headroom;
+        readIndex = headroom;
+    }
+
+    /**
+     * Move the bytes between the read and write offsets to the start
+     * of the buffer, so the read offset becomes zero.
+     */
+    public final void compact() {
+        int remaining = remainingWritten();
+        if (readIndex != 0 && remaining > 0) {
+            UNSAFE.copyMemory(ptr + readIndex, ptr, remaining);
+        }
+
+        readIndex = 0;
+        writeIndex = remaining;
+    }
+
     /**
      * Free the data backing this buffer.
      */
@@ -163,7 +197,7 @@ public abstract class UnsafeByteBuf {
 
     // check if we have enough capacity to read the given amount of bytes
     private void checkReadCap(int amt) {
-        if (readIndex + amt >= capacity) {
+        if (readIndex + amt > capacity) {
             throw new IllegalStateException("Insufficient capacity to read " + amt + " bytes from " + this);
         }
     }
@@ -237,10 +271,10 @@ public abstract class UnsafeByteBuf {
     public final void setByte(int o, byte v) { UNSAFE.putByte(ptr + o, v); }
     public final void setBoolean(int o, boolean v) { setByte(o, (byte) (v ? 1 : 0)); }
 
-    public final void setLongReversed(int offset, long val) { UNSAFE.putLong(this.ptr + offset, Long.reverse(val)); }
+    public final void setLongReversed(int offset, long val) { UNSAFE.putLong(this.ptr + offset, Long.reverseBytes(val)); }
     public final void setIntReversed(int offset, int val) { UNSAFE.putInt(ptr + offset, Integer.reverseBytes(val)); }
-    public final void setFloatReversed(int off, float val) { UNSAFE.putFloat(ptr + off, Integer.reverseBytes(Float.floatToIntBits(val))); }
-    public final void setDoubleReversed(int o, double v) { UNSAFE.putDouble(ptr + o, Long.reverseBytes(Double.doubleToLongBits(v))); }
+    public final void setFloatReversed(int off, float val) { UNSAFE.putInt(ptr + off, Integer.reverseBytes(Float.floatToRawIntBits(val))); }
+    public final void setDoubleReversed(int o, double v) { UNSAFE.putLong(ptr + o, Long.reverseBytes(Double.doubleToRawLongBits(v))); }
     public final void setShortReversed(int o, short v) { UNSAFE.putShort(ptr + o, Short.reverseBytes(v)); }
     public final void setCharReversed(int o, char v) { UNSAFE.putChar(ptr + o, Character.reverseBytes(v)); }
 
@@ -443,6 +477,15 @@ public abstract class UnsafeByteBuf {
         advWriter(len);
     }
 
+    /**
+     * Write {@code len} bytes from the given buffer starting at the given offset.
+     */
+    public final void writeBytes(UnsafeByteBuf src, int off, int len) {
+        ensureWriteCapacity(len);
+        UNSAFE.copyMemory(src.ptr + off, ptr + writeIndex, len);
+        advWriter(len);
+    }
+
     /**
      * Create a new input stream which reads from the current read offset
      * to the write offset.
@@ -490,7 +533,8 @@ public abstract class UnsafeByteBuf {
         try {
             if (offset == 0 && length == capacity) {
                 if (nio0Offset != null) {
-                    return nio0Offset;
+                    // the shared instance may have been advanced by its last user
+                    return nio0Offset.clear();
                 }
 
                 return nio0Offset = Memory.wrapAddressAsByteBuffer(ptr, length);
@@ -593,6 +637,44 @@ public abstract class UnsafeByteBuf {
         }
     }
 
+    /**
+     * Write the given byte directly in front of the current read offset,
+     * moving the read offset back to it. Requires the headroom to be reserved.
+     */
+    public final void prependByte(byte value) {
+        if (readIndex < 1) {
+            throw new IllegalStateException("Insufficient headroom to prepend 1 byte to " + this);
+        }
+
+        setByte(--readIndex, value);
+    }
+
+    /**
+     * Write the given VarInt directly in front of the current read offset,
+     * moving the read offset back to its start. Requires the headroom to be reserved.
+     *
+     * @return The amount of bytes prepended.
+     */
+    public final int prependVarInt(int value) {
+        int length = 1;
+        for (int v = value >>> 7; v != 0; v >>>= 7) {
+            length++;
+        }
+
+        if (readIndex < length) {
+            throw new IllegalStateException("Insufficient headroom to prepend " + length + " bytes to " + this);
+        }
+
+        int offset = readIndex -= length;
+        while ((value & ~SEGMENT_BITS) != 0) {
+            setByte(offset++, (byte) ((value & SEGMENT_BITS) | CONTINUE_BIT));
+            value >>>= 7;
+        }
+
+        setByte(offset, (byte) value);
+        return length;
+    }
+
     public final void writeVarLong(long value) {
         ensureWriteCapacity(10);
         while (true) {
@@ -0,0 +1,49 @@
+package com.orbyfied.minem.buffer;
+
+/**
+ * A view into a region of another buffer's memory, which does not own
+ * that memory and can not be reallocated. The view is only valid as long
+ * as the parent buffer is not reallocated, compacted or freed.
+ */
+public class UnsafeSliceByteBuf extends UnsafeByteBuf {
+
+    public UnsafeSliceByteBuf() {
+        setFlags(FLAG_FIXED_POINTER);
+    }
+
+    /**
+     * Point this view at the given region of the parent buffer, with the read
+     * offset at the start and the write offset at the end of the region.
+     *
+     * @param parent The buffer to view.
+     * @param offset The offset of the region into the parent buffer.
+     * @param length The length of the region in bytes.
+     * @return This.
+     */
+    public UnsafeSliceByteBuf set(UnsafeByteBuf parent, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > parent.capacity) {
+            throw new IndexOutOfBoundsException("Slice [" + offset + ", " + (offset + length) + ") out of bounds for " + parent);
+        }
+
+        this.ptr = parent.ptr + offset;
+        this.capacity = length;
+        this.readIndex = 0;
+        this.writeIndex = length;
+        this.nio0Offset = null;
+        return this;
+    }
+
+    @Override
+    public void free() {
+        // the memory is owned by the parent
+        ptr = 0;
+        capacity = 0;
+        nio0Offset = null;
+    }
+
+    @Override
+    public UnsafeByteBuf reallocate(int capacity) {
+        throw new UnsupportedOperationException("Can not reallocate a slice byte buffer");
+    }
+
+}
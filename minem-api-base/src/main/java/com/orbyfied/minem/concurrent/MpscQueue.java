@@ -0,0 +1,124 @@
+package com.orbyfied.minem.concurrent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lock-free, optionally bounded, linked multi-producer single-consumer queue.
+ *
+ * Any thread may {@link #offer(Object)} values, but only one thread at
+ * a time may {@link #poll()} them.
+ *
+ * @param <T> The value type.
+ */
+public class MpscQueue<T> {
+
+    /** A node in the linked list. */
+    static final class Node<T> {
+        T value;
+        volatile Node<T> next;
+
+        Node(T value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * The maximum amount of values in this queue.
+     */
+    final int capacity;
+
+    /**
+     * The amount of values in this queue.
+     */
+    final AtomicInteger size = new AtomicInteger();
+
+    Node<T> head;                           // The consumer side, the stub node before the first value
+    final AtomicReference<Node<T>> tail;    // The producer side, the last node
+
+    public MpscQueue() {
+        this(Integer.MAX_VALUE);
+    }
+
+    public MpscQueue(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        this.capacity = capacity;
+        this.head = new Node<>(null);
+        this.tail = new AtomicReference<>(head);
+    }
+
+    /**
+     * Try to add the given value to the end of this queue.
+     *
+     * @param value The value, not null.
+     * @return False if the queue is full.
+     */
+    public boolean offer(T value) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            return false;
+        }
+
+        Node<T> node = new Node<>(value);
+        Node<T> prev = tail.getAndSet(node);
+        prev.next = node;
+        return true;
+    }
+
+    /**
+     * Remove and return the first value in this queue, this may
+     * only be called from the consumer thread.
+     *
+     * @return The value or null if the queue is empty.
+     */
+    public T poll() {
+        Node<T> next = head.next;
+        if (next == null) {
+            if (head == tail.get()) {
+                return null;
+            }
+
+            // a producer is between swapping the tail and linking the node
+            while ((next = head.next) == null) {
+                Thread.onSpinWait();
+            }
+        }
+
+        T value = next.value;
+        next.value = null;
+        head = next;
+        size.decrementAndGet();
+        return value;
+    }
+
+    /**
+     * Remove all values in this queue, this may only be
+     * called from the consumer thread.
+     *
+     * @return The amount of values removed.
+     */
+    public int clear() {
+        int count = 0;
+        while (poll() != null) {
+            count++;
+        }
+
+        return count;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+}
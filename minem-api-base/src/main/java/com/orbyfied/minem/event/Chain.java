@@ -1,13 +1,34 @@
 package com.orbyfied.minem.event;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 /**
  * A chain of interfaces which can be invoked in-order,
  * with the return values accumulated.
  *
+ * The handlers are stored in an immutable array which is replaced on every
+ * mutation, so invocations iterate a consistent snapshot without locking while
+ * handlers are added or removed from other threads. Handlers removed by returning
+ * {@link #REMOVE} are removed by identity once the invocation completes.
+ *
+ * Chains added as handlers are not called through their invokers, their handlers are
+ * flattened into one compiled array when this chain is invoked, which is recompiled once
+ * this chain or any chain nested in it changes. A {@link #STOP} returned by a handler of
+ * a nested chain only skips the rest of that nested chain and a {@link #REMOVE} removes
+ * the handler from the nested chain, like when the nested chain was invoked itself. The
+ * results of nested handlers are accumulated by the invoked chain.
+ *
+ * The time spent in each handler can be recorded by installing a {@link ChainInstrumentation}.
+ *
+ * The next invocation of a chain can be awaited through {@link #awaitNext(Predicate)}, the
+ * futures are completed on the invoking thread before the handlers are invoked.
+ *
  * @param <F> The invoker/handler function.
  */
 public class Chain<F> implements ChainAccess<F> {
@@ -31,10 +52,24 @@ public class Chain<F> implements ChainAccess<F> {
      */
     private final Class<F> fClass;
 
+    static final Object[] NO_HANDLERS = new Object[0];
+
+    /**
+     * The current snapshot of handlers, replaced as a whole when mutated
+     * while holding the monitor of this chain.
+     */
+    private volatile Object[] handlers = NO_HANDLERS;
+
     /**
-     * The handler list.
+     * The handlers with all nested chains flattened, compiled lazily
+     * and replaced once any of the constituent chains changed.
      */
-    private final List<F> handlers = new ArrayList<>();
+    private volatile Compiled compiled;
+
+    /**
+     * The instrumentation recording the handler statistics, null if disabled.
+     */
+    private volatile ChainInstrumentation instrumentation;
 
     /**
      * Supplies the accumulator values.
@@ -52,9 +87,20 @@ public class Chain<F> implements ChainAccess<F> {
     private F invoker;
 
     /**
-     * The awaitable lock.
+     * The futures awaiting the next matching invocation, null if there are none
+     * so invocations only pay for a single volatile read. Replaced as a whole
+     * through compare-and-set, see {@link #awaitNext(Predicate)}.
+     */
+    private volatile Waiter[] waiters;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Chain, Waiter[]> WAITERS =
+            AtomicReferenceFieldUpdater.newUpdater(Chain.class, Waiter[].class, "waiters");
+
+    /**
+     * Called when a handler is added or removed or the standard invoker changes, set by the owning {@link MultiChain}.
      */
-    private Object lock;
+    Runnable changeListener;
 
     @SuppressWarnings("unchecked")
     public Chain(Class<? super F> fClass) {
@@ -68,33 +114,188 @@ public class Chain<F> implements ChainAccess<F> {
     // update/create the standard invoker
     @SuppressWarnings("unchecked")
     private void updateStandardInvoker() {
-        invoker = Invokers.createDynamicInvoker(
-                () -> handlers,
+        invoker = Invokers.createInvoker(
+                this,
                 fClass,
                 accumulatorSupplier != null ? (Supplier<Object>) accumulatorSupplier : () -> null,
-                returnAccumulator != null ? (ReturnAccumulator<Object, Object>) returnAccumulator : (__, obj) -> obj,
-                () -> this.lock
+                returnAccumulator != null ? (ReturnAccumulator<Object, Object>) returnAccumulator : (__, obj) -> obj
         );
+
+        changed();
     }
 
-    public synchronized Object lock() {
-        if (lock == null) {
-            lock = new Object();
+    /**
+     * Get the compiled handlers of this chain, recompiling them
+     * if this chain or any nested chain changed.
+     */
+    Compiled compiled() {
+        Compiled compiled = this.compiled;
+        if (compiled == null || !compiled.isValid()) {
+            this.compiled = compiled = Compiled.compile(this);
         }
 
-        return lock;
+        return compiled;
+    }
+
+    // publish the given handlers with the given one inserted at the given index
+    private void insert(int index, Object handler) {
+        Object[] current = handlers;
+        Object[] updated = new Object[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, index);
+        updated[index] = handler;
+        System.arraycopy(current, index, updated, index + 1, current.length - index);
+        handlers = updated;
+        changed();
     }
 
-    public void await() throws InterruptedException {
-        synchronized (lock()) {
-            lock.wait();
+    /**
+     * Remove the first occurrence of the given handler by identity, called
+     * after an invocation for the handlers which requested removal.
+     *
+     * @param handler The handler to remove.
+     */
+    synchronized void removeHandler(Object handler) {
+        Object[] current = handlers;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == handler) {
+                Object[] updated = new Object[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                handlers = updated;
+                changed();
+                return;
+            }
         }
     }
 
-    public void await(long timeoutMillis) throws InterruptedException {
-        synchronized (lock()) {
-            lock.wait(timeoutMillis);
+    // the handlers as seen by placements, with nested chains represented by their invokers
+    @SuppressWarnings("unchecked")
+    private List<F> placementView() {
+        Object[] current = handlers;
+        List<F> list = new ArrayList<>(current.length);
+        for (Object handler : current) {
+            list.add((F) (handler instanceof Nested nested ? nested.chain.invoker() : handler));
         }
+
+        return list;
+    }
+
+    // notify the change listener if set
+    private void changed() {
+        Runnable listener = changeListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Install the given instrumentation, which records the statistics of
+     * all handlers invoked through this chain from now on.
+     *
+     * @param instrumentation The instrumentation or null to disable it.
+     * @return This.
+     */
+    public Chain<F> instrument(ChainInstrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+        this.compiled = null;
+        return this;
+    }
+
+    public ChainInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    @Override
+    public CompletableFuture<Invocation> awaitNext(Predicate<? super Invocation> predicate) {
+        CompletableFuture<Invocation> future = new CompletableFuture<>();
+        addWaiter(new Waiter(predicate, future));
+        return future;
+    }
+
+    // add the given waiter to the waiter list
+    void addWaiter(Waiter waiter) {
+        Waiter[] current, updated;
+        do {
+            current = waiters;
+            if (current == null) {
+                updated = new Waiter[] { waiter };
+            } else {
+                updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = waiter;
+            }
+        } while (!WAITERS.compareAndSet(this, current, updated));
+    }
+
+    /**
+     * Whether any future is awaiting an invocation of this chain.
+     */
+    boolean hasWaiters() {
+        return waiters != null;
+    }
+
+    /**
+     * Complete the futures awaiting an invocation with the given arguments
+     * if they match, called by the invokers before the handlers are invoked.
+     * Returns after a single volatile read if nothing is awaited.
+     *
+     * @param args The arguments of the invocation.
+     */
+    void signal(Object[] args) {
+        Waiter[] current = waiters;
+        if (current == null) {
+            return;
+        }
+
+        Invocation invocation = new Invocation(this, args);
+        boolean anyDone = false;
+        for (Waiter waiter : current) {
+            CompletableFuture<Invocation> future = waiter.future;
+            if (!future.isDone()) {
+                try {
+                    if (waiter.predicate == null || waiter.predicate.test(invocation)) {
+                        future.complete(invocation);
+                    }
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            }
+
+            anyDone |= future.isDone();
+        }
+
+        if (anyDone) {
+            pruneWaiters();
+        }
+    }
+
+    // remove the waiters whose futures are done, which includes cancelled ones
+    private void pruneWaiters() {
+        Waiter[] current, updated;
+        do {
+            current = waiters;
+            if (current == null) {
+                return;
+            }
+
+            int remaining = 0;
+            for (Waiter waiter : current) {
+                if (!waiter.future.isDone()) {
+                    remaining++;
+                }
+            }
+
+            if (remaining == 0) {
+                updated = null;
+            } else {
+                updated = new Waiter[remaining];
+                int i = 0;
+                for (Waiter waiter : current) {
+                    if (!waiter.future.isDone()) {
+                        updated[i++] = waiter;
+                    }
+                }
+            }
+        } while (!WAITERS.compareAndSet(this, current, updated));
     }
 
     /**
@@ -133,8 +334,8 @@ public class Chain<F> implements ChainAccess<F> {
      * @param function The function.
      * @return This.
      */
-    public Chain<F> addFirst(F function) {
-        handlers.add(0, function);
+    public synchronized Chain<F> addFirst(F function) {
+        insert(0, function);
         return this;
     }
 
@@ -145,8 +346,9 @@ public class Chain<F> implements ChainAccess<F> {
      * @param chain The chain.
      * @return This.
      */
-    public Chain<F> addFirst(Chain<? extends F> chain) {
-        return addFirst(chain.invoker());
+    public synchronized Chain<F> addFirst(Chain<? extends F> chain) {
+        insert(0, new Nested(chain));
+        return this;
     }
 
     /**
@@ -156,8 +358,8 @@ public class Chain<F> implements ChainAccess<F> {
      * @param function The function.
      * @return This.
      */
-    public Chain<F> addLast(F function) {
-        handlers.add(function);
+    public synchronized Chain<F> addLast(F function) {
+        insert(handlers.length, function);
         return this;
     }
 
@@ -168,8 +370,9 @@ public class Chain<F> implements ChainAccess<F> {
      * @param chain The chain.
      * @return This.
      */
-    public Chain<F> addLast(Chain<? extends F> chain) {
-        return addLast(chain.invoker());
+    public synchronized Chain<F> addLast(Chain<? extends F> chain) {
+        insert(handlers.length, new Nested(chain));
+        return this;
     }
 
     /**
@@ -180,8 +383,8 @@ public class Chain<F> implements ChainAccess<F> {
      * @param placement The placement.
      * @return This.
      */
-    public Chain<F> add(F function, Placement<F> placement) {
-        placement.insert(handlers, function);
+    public synchronized Chain<F> add(F function, Placement<F> placement) {
+        insert(placement.findChecked(placementView(), function), function);
         return this;
     }
 
@@ -193,15 +396,196 @@ public class Chain<F> implements ChainAccess<F> {
      * @param placement The placement.
      * @return This.
      */
-    public Chain<F> add(Chain<? extends F> chain, Placement<F> placement) {
-        return add(chain.invoker(), placement);
+    public synchronized Chain<F> add(Chain<? extends F> chain, Placement<F> placement) {
+        insert(placement.findChecked(placementView(), chain.invoker()), new Nested(chain));
+        return this;
+    }
+
+    /**
+     * Remove the first occurrence of the given
+     * handler function by identity.
+     *
+     * @param function The function.
+     * @return This.
+     */
+    public Chain<F> remove(F function) {
+        removeHandler(function);
+        return this;
+    }
+
+    /**
+     * Whether this chain has no handlers.
+     */
+    public boolean isEmpty() {
+        return handlers.length == 0;
     }
 
     public Chain<F> integerFlagHandling() {
         accumulatorSupplier(() -> 0);
-        return this.<Integer, Integer>withReturnAccumulator((current, result) -> {
-            return result != null ? current | result : current;
-        });
+        return withReturnAccumulator(Invokers.FLAGS);
+    }
+
+    /**
+     * An invocation of a chain, passed to the futures awaiting it.
+     *
+     * @param chain The invoked chain.
+     * @param args The arguments the chain was invoked with.
+     */
+    public record Invocation(Chain<?> chain, Object[] args) {
+        /**
+         * Get the argument at the given index.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T arg(int index) {
+            return (T) args[index];
+        }
+    }
+
+    // a future awaiting the next invocation matching the predicate, which is null to match any
+    record Waiter(Predicate<? super Invocation> predicate, CompletableFuture<Invocation> future) { }
+
+    /**
+     * Marks a chain nested in the handlers of another chain.
+     */
+    record Nested(Chain<?> chain) { }
+
+    /**
+     * The handlers of a chain with all nested chains flattened into one array, valid
+     * as long as the handler snapshots of all constituent chains are unchanged.
+     */
+    static final class Compiled {
+
+        static final Chain<?>[] NO_CHAINS = new Chain[0];
+
+        final Object[] handlers;   // The flattened handlers
+        final int[] ends;          // The index a STOP by the handler at each index continues at, null if nothing is nested
+        final Chain<?>[] owners;   // The chain directly containing the handler at each index, null if nothing is nested
+        final Chain<?>[] nested;   // The nested chains, in order of appearance
+
+        final ChainInstrumentation instrumentation;       // The instrumentation of the compiled chain, null if disabled
+        final ChainInstrumentation.HandlerStats[] stats;  // The statistics of the handler at each index, null if disabled
+
+        final Chain<?>[] constituents; // The compiled chain followed by the nested chains
+        final Object[][] sources;      // The handler snapshots of the constituents compiled from
+
+        Compiled(Object[] handlers, int[] ends, Chain<?>[] owners, Chain<?>[] nested,
+                 Chain<?>[] constituents, Object[][] sources, ChainInstrumentation instrumentation) {
+            this.handlers = handlers;
+            this.ends = ends;
+            this.owners = owners;
+            this.nested = nested;
+            this.constituents = constituents;
+            this.sources = sources;
+            this.instrumentation = instrumentation;
+
+            if (instrumentation != null) {
+                stats = new ChainInstrumentation.HandlerStats[handlers.length];
+                for (int i = 0; i < handlers.length; i++) {
+                    stats[i] = instrumentation.statsOf(handlers[i]);
+                }
+            } else {
+                stats = null;
+            }
+        }
+
+        // whether none of the constituent chains changed since compiling
+        boolean isValid() {
+            if (constituents[0].instrumentation != instrumentation) {
+                return false;
+            }
+
+            for (int i = 0; i < constituents.length; i++) {
+                if (constituents[i].handlers != sources[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        // the chain directly containing the handler at the given index
+        Chain<?> owner(Chain<?> root, int index) {
+            return owners != null ? owners[index] : root;
+        }
+
+        // the index to continue at when the handler at the given index returns STOP
+        int stopTarget(int index) {
+            return ends != null ? ends[index] : handlers.length;
+        }
+
+        // compile the current handlers of the given chain
+        static Compiled compile(Chain<?> root) {
+            Object[] snapshot = root.handlers;
+            ChainInstrumentation instrumentation = root.instrumentation;
+            boolean hasNested = false;
+            for (Object handler : snapshot) {
+                if (handler instanceof Nested) {
+                    hasNested = true;
+                    break;
+                }
+            }
+
+            if (!hasNested) {
+                return new Compiled(snapshot, null, null, NO_CHAINS, new Chain[] { root }, new Object[][] { snapshot }, instrumentation);
+            }
+
+            Builder builder = new Builder();
+            builder.append(root, snapshot);
+            int count = builder.handlers.size();
+            int[] ends = new int[count];
+            for (int i = 0; i < count; i++) {
+                ends[i] = builder.ends.get(i);
+            }
+
+            List<Chain<?>> nested = builder.constituents.subList(1, builder.constituents.size());
+            return new Compiled(builder.handlers.toArray(), ends, builder.owners.toArray(new Chain[0]),
+                    nested.toArray(new Chain[0]), builder.constituents.toArray(new Chain[0]),
+                    builder.sources.toArray(new Object[0][]), instrumentation);
+        }
+
+        // accumulates the flattened handlers while compiling
+        static final class Builder {
+            final List<Object> handlers = new ArrayList<>();
+            final List<Integer> ends = new ArrayList<>();
+            final List<Chain<?>> owners = new ArrayList<>();
+            final List<Chain<?>> constituents = new ArrayList<>();
+            final List<Object[]> sources = new ArrayList<>();
+            final List<Chain<?>> path = new ArrayList<>();
+
+            void append(Chain<?> chain, Object[] snapshot) {
+                if (path.contains(chain)) {
+                    throw new IllegalStateException("Chain of " + chain.fClass.getName() + " is nested in itself");
+                }
+
+                path.add(chain);
+                constituents.add(chain);
+                sources.add(snapshot);
+
+                int start = handlers.size();
+                for (Object handler : snapshot) {
+                    if (handler instanceof Nested nested) {
+                        append(nested.chain, nested.chain.handlers);
+                        continue;
+                    }
+
+                    handlers.add(handler);
+                    ends.add(-1);
+                    owners.add(chain);
+                }
+
+                // a STOP by a handler directly in this chain continues after it,
+                // the handlers of nested chains were already assigned theirs
+                int end = handlers.size();
+                for (int i = start; i < end; i++) {
+                    if (ends.get(i) == -1) {
+                        ends.set(i, end);
+                    }
+                }
+
+                path.remove(path.size() - 1);
+            }
+        }
+
     }
 
 }
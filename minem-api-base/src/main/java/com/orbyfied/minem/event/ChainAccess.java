@@ -1,22 +1,56 @@
 package com.orbyfied.minem.event;
 
 import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
 
 public interface ChainAccess<F> {
 
     /**
-     * Get an awaitable object for invocations of this chain if supported.
+     * Get a future completed by the next invocation matching the given predicate.
+     *
+     * The future is completed on the invoking thread before the handlers are invoked,
+     * so the arguments may still be changed by the handlers. It is completed exceptionally
+     * if the predicate throws, cancelling it stops awaiting the invocation.
+     *
+     * @param predicate The predicate or null to match any invocation.
+     * @return The future.
      */
-    Object lock();
+    CompletableFuture<Chain.Invocation> awaitNext(Predicate<? super Chain.Invocation> predicate);
+
+    /**
+     * Get a future completed by the next invocation.
+     *
+     * @see #awaitNext(Predicate)
+     */
+    default CompletableFuture<Chain.Invocation> nextAsync() {
+        return awaitNext(null);
+    }
 
     default void await() throws InterruptedException {
         await(0L);
     }
 
+    /**
+     * Block until the next invocation or until the timeout elapsed.
+     *
+     * @param timeoutMillis The timeout in milliseconds, 0 to wait indefinitely.
+     */
     default void await(long timeoutMillis) throws InterruptedException {
-        Object lock;
-        synchronized (lock = lock()) {
-            lock.wait(timeoutMillis);
+        CompletableFuture<Chain.Invocation> future = nextAsync();
+        try {
+            if (timeoutMillis > 0) {
+                future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } else {
+                future.get();
+            }
+        } catch (ExecutionException | TimeoutException ignored) {
+            // return like after a timed out wait
+        } finally {
+            future.cancel(false);
         }
     }
 
@@ -76,11 +110,26 @@ public interface ChainAccess<F> {
      */
     ChainAccess<F> add(Chain<? extends F> chain, Placement<F> placement);
 
+    /**
+     * Remove the first occurrence of the given
+     * handler function by identity.
+     *
+     * @param function The function.
+     * @return This.
+     */
+    ChainAccess<F> remove(F function);
+
     static <F> ChainAccess<F> of(Collection<Chain<F>> list) {
         return new ChainAccess<F>() {
             @Override
-            public Object lock() {
-                throw new UnsupportedOperationException();
+            public CompletableFuture<Chain.Invocation> awaitNext(Predicate<? super Chain.Invocation> predicate) {
+                // one future shared by all chains, completed by whichever is invoked first
+                Chain.Waiter waiter = new Chain.Waiter(predicate, new CompletableFuture<>());
+                for (var c : list) {
+                    c.addWaiter(waiter);
+                }
+
+                return waiter.future();
             }
 
             @Override
@@ -136,6 +185,15 @@ public interface ChainAccess<F> {
 
                 return this;
             }
+
+            @Override
+            public ChainAccess<F> remove(F function) {
+                for (var c : list) {
+                    c.remove(function);
+                }
+
+                return this;
+            }
         };
     }
 
@@ -0,0 +1,155 @@
+package com.orbyfied.minem.event;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the invocation count, time spent and exceptions per handler of the chains
+ * it is installed in, see {@link Chain#instrument(ChainInstrumentation)} and
+ * {@link MultiChain#instrument(ChainInstrumentation)}.
+ *
+ * Chains without instrumentation are invoked through the same loop as before, the
+ * handlers are only timed once this is installed. One instance can be shared by
+ * multiple chains to get the statistics of all their handlers in one place, handlers
+ * of nested chains are recorded by the instrumentation of the invoked chain.
+ */
+public final class ChainInstrumentation {
+
+    /**
+     * Called when a single invocation of a handler took longer than the threshold.
+     */
+    @FunctionalInterface
+    public interface SlowHandlerListener {
+        void onSlowHandler(Chain<?> chain, Object handler, long nanos);
+    }
+
+    /**
+     * The statistics of one handler.
+     */
+    public static final class HandlerStats {
+
+        final Object handler;                            // The handler function
+        final LongAdder count = new LongAdder();         // The amount of completed invocations
+        final LongAdder totalNanos = new LongAdder();    // The cumulative time of all invocations
+        final AtomicLong maxNanos = new AtomicLong();    // The time of the longest invocation
+        final LongAdder exceptions = new LongAdder();    // The amount of invocations which threw
+
+        HandlerStats(Object handler) {
+            this.handler = handler;
+        }
+
+        public Object handler() {
+            return handler;
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public long totalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long maxNanos() {
+            return maxNanos.get();
+        }
+
+        public long exceptions() {
+            return exceptions.sum();
+        }
+
+        public long averageNanos() {
+            long count = count();
+            return count != 0 ? totalNanos() / count : 0;
+        }
+
+        // record one invocation which took the given time
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            long max;
+            while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos));
+        }
+
+        // discard the recorded invocations, in place as the compiled chains hold on to this
+        void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.set(0);
+            exceptions.reset();
+        }
+
+        @Override
+        public String toString() {
+            return "HandlerStats(" + handler + ", count: " + count() + ", total: " + totalNanos() + "ns" +
+                    ", max: " + maxNanos() + "ns, exceptions: " + exceptions() + ")";
+        }
+
+    }
+
+    final Map<Object, HandlerStats> stats = new IdentityHashMap<>(); // The statistics by handler, guarded by this
+
+    volatile long slowThresholdNanos = Long.MAX_VALUE; // The invocation time above which the listener is called
+    volatile SlowHandlerListener slowHandlerListener;  // The listener for slow invocations, null if none
+
+    /**
+     * Call the given listener whenever a single invocation of a handler
+     * takes longer than the given amount of microseconds.
+     *
+     * @return This.
+     */
+    public ChainInstrumentation onSlowHandler(long thresholdMicros, SlowHandlerListener listener) {
+        this.slowThresholdNanos = thresholdMicros * 1000L;
+        this.slowHandlerListener = listener;
+        return this;
+    }
+
+    /**
+     * Get or create the statistics of the given handler.
+     */
+    public synchronized HandlerStats statsOf(Object handler) {
+        return stats.computeIfAbsent(handler, HandlerStats::new);
+    }
+
+    /**
+     * Get the statistics of all handlers invoked so far,
+     * ordered by the cumulative time spent in them descending.
+     */
+    public synchronized List<HandlerStats> handlerStats() {
+        List<HandlerStats> list = new ArrayList<>(stats.values());
+        list.sort(Comparator.comparingLong(HandlerStats::totalNanos).reversed());
+        return list;
+    }
+
+    /**
+     * Discard all statistics recorded so far.
+     */
+    public synchronized void reset() {
+        for (HandlerStats handlerStats : stats.values()) {
+            handlerStats.reset();
+        }
+    }
+
+    // record an invocation of the given handler of the given chain
+    void record(Chain<?> chain, HandlerStats handlerStats, long nanos) {
+        handlerStats.record(nanos);
+        if (nanos > slowThresholdNanos) {
+            SlowHandlerListener listener = slowHandlerListener;
+            if (listener != null) {
+                try {
+                    listener.onSlowHandler(chain, handlerStats.handler, nanos);
+                } catch (Throwable t) {
+                    t.printStackTrace();
+                }
+            }
+        }
+    }
+
+    // record a failed invocation of the given handler of the given chain
+    void recordException(Chain<?> chain, HandlerStats handlerStats, long nanos) {
+        handlerStats.exceptions.increment();
+        record(chain, handlerStats, nanos);
+    }
+
+}
@@ -1,11 +1,15 @@
 package com.orbyfied.minem.event;
 
+import com.orbyfied.minem.reflect.ClassFile;
 import slatepowered.veru.reflect.ReflectUtil;
 
+import java.lang.invoke.*;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.function.Supplier;
@@ -15,12 +19,593 @@ import java.util.function.Supplier;
  */
 final class Invokers {
 
+    // Marks handler interfaces which are not supported by generated invokers
+    static final Binding UNSUPPORTED = new Binding(null, null, null, null, null);
+
+    // Returned by InvokerState#invokeSlow when the generated loop should still run
+    static final Object CONTINUE = new Object();
+
+    // The accumulator of chains with integer flag handling, which is
+    // inlined as primitive or into generated invokers of int methods
+    static final ReturnAccumulator<Integer, Integer> FLAGS = (current, result) -> result != null ? current | result : current;
+
+    // The generated bindings by handler interface
+    static final ClassValue<Binding> BINDINGS = new ClassValue<>() {
+        @Override
+        protected Binding computeValue(Class<?> type) {
+            try {
+                return bind(type);
+            } catch (Throwable t) {
+                return UNSUPPORTED;
+            }
+        }
+    };
+
+    /**
+     * Create an invoker for the given handler interface, which is generated if the interface is
+     * a functional interface whose types are public and visible to this class, and a {@link Proxy}
+     * otherwise.
+     *
+     * @see #createGeneratedInvoker(Chain, Class, Supplier, ReturnAccumulator)
+     */
+    public static <F> F createInvoker(Chain<F> chain,
+                                      Class<F> fClass,
+                                      Supplier<Object> accumulatorSupplier,
+                                      ReturnAccumulator<Object, Object> returnAccumulator) {
+        F invoker = createGeneratedInvoker(chain, fClass, accumulatorSupplier, returnAccumulator);
+        return invoker != null ? invoker : createDynamicInvoker(chain, fClass, accumulatorSupplier, returnAccumulator);
+    }
+
+    /**
+     * Create an invoker implementing the handler interface with a hidden class generated for
+     * the interface, which loops over the compiled handlers calling the interface method on each
+     * of them directly. For int methods of chains with {@link #FLAGS} the results are or-ed into
+     * a primitive, otherwise they are boxed into the return accumulator. The flag and accumulator
+     * semantics are the same as for the dynamic invoker, except that default methods are not
+     * dispatched to the handlers.
+     *
+     * @return The invoker or null if the interface is not supported.
+     */
+    @SuppressWarnings("unchecked")
+    public static <F> F createGeneratedInvoker(Chain<F> chain,
+                                               Class<F> fClass,
+                                               Supplier<Object> accumulatorSupplier,
+                                               ReturnAccumulator<Object, Object> returnAccumulator) {
+        Binding binding = BINDINGS.get(fClass);
+        if (binding == UNSUPPORTED) {
+            return null;
+        }
+
+        MethodHandle factory = returnAccumulator == (Object) FLAGS && binding.flagsFactory != null ?
+                binding.flagsFactory : binding.factory;
+        InvokerState state = new InvokerState(binding, chain, accumulatorSupplier, returnAccumulator);
+        try {
+            return (F) factory.invokeExact(state);
+        } catch (Throwable t) {
+            throw new IllegalStateException("Failed to create invoker for " + fClass.getName(), t);
+        }
+    }
+
+    // generate the invoker classes for the given handler interface
+    private static Binding bind(Class<?> fClass) throws Throwable {
+        if (!fClass.isInterface() || !isVisible(fClass)) {
+            return UNSUPPORTED;
+        }
+
+        // find the single abstract method
+        Method method = null;
+        for (Method m : fClass.getMethods()) {
+            if (!Modifier.isAbstract(m.getModifiers())) {
+                continue;
+            }
+
+            if (method != null) {
+                return UNSUPPORTED;
+            }
+
+            method = m;
+        }
+
+        if (method == null || !isVisible(method.getReturnType())) {
+            return UNSUPPORTED;
+        }
+
+        for (Class<?> type : method.getParameterTypes()) {
+            if (!isVisible(type)) {
+                return UNSUPPORTED;
+            }
+        }
+
+        // the spread handler method used by instrumented invocations
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        int arity = method.getParameterCount();
+        MethodHandle spreader = lookup.unreflect(method)
+                .asType(MethodType.genericMethodType(arity + 1))
+                .asSpreader(Object[].class, arity);
+
+        MethodHandle factory = define(lookup, fClass, method, false);
+        MethodHandle flagsFactory = method.getReturnType() == int.class ? define(lookup, fClass, method, true) : null;
+
+        // the value returned if there are no results for primitive return types
+        Object defaultReturn = null;
+        if (method.getReturnType().isPrimitive() && method.getReturnType() != void.class) {
+            defaultReturn = MethodHandles.zero(method.getReturnType()).invoke();
+        }
+
+        return new Binding(method, factory, flagsFactory, spreader, defaultReturn);
+    }
+
+    // define the invoker class and get its constructor as (InvokerState)Object
+    private static MethodHandle define(MethodHandles.Lookup lookup, Class<?> fClass, Method method, boolean flags) throws Throwable {
+        MethodHandles.Lookup hidden = lookup.defineHiddenClass(invokerBytes(fClass, method, flags), true);
+        return hidden.findConstructor(hidden.lookupClass(), MethodType.methodType(void.class, InvokerState.class))
+                .asType(MethodType.methodType(Object.class, InvokerState.class));
+    }
+
+    // whether the generated classes can refer to the given type
+    private static boolean isVisible(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+
+        if (type.isPrimitive()) {
+            return true;
+        }
+
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return false;
+        }
+
+        try {
+            return Class.forName(type.getName(), false, Invokers.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * The generated classes for a handler interface.
+     */
+    record Binding(Method method,              // The handler method
+                   MethodHandle factory,       // Creates the invoker accumulating through the return accumulator, (InvokerState)Object
+                   MethodHandle flagsFactory,  // Creates the invoker or-ing int results, null if the method does not return int
+                   MethodHandle spreader,      // Calls the handler method, (Object, Object[])Object
+                   Object defaultReturn)       // The boxed default value of the return type if primitive
+    { }
+
+    /**
+     * The state of a generated invoker, which handles everything but the loop itself.
+     */
+    static final class InvokerState {
+
+        final Binding binding;
+        final Chain<?> chain;
+        final Supplier<Object> accumulatorSupplier;
+        final ReturnAccumulator<Object, Object> returnAccumulator;
+
+        InvokerState(Binding binding,
+                     Chain<?> chain,
+                     Supplier<Object> accumulatorSupplier,
+                     ReturnAccumulator<Object, Object> returnAccumulator) {
+            this.binding = binding;
+            this.chain = chain;
+            this.accumulatorSupplier = accumulatorSupplier;
+            this.returnAccumulator = returnAccumulator;
+        }
+
+        Chain.Compiled program() {
+            return chain.compiled();
+        }
+
+        // whether the invocation has no waiters to signal and is not instrumented
+        boolean isPlain(Chain.Compiled program) {
+            if (program.stats != null || chain.hasWaiters()) {
+                return false;
+            }
+
+            for (Chain<?> nested : program.nested) {
+                if (nested.hasWaiters()) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        // signal the waiters and invoke the instrumented chain, returns
+        // CONTINUE if the generated loop should invoke the handlers
+        Object invokeSlow(Chain.Compiled program, Object[] args) {
+            chain.signal(args);
+            for (Chain<?> nested : program.nested) {
+                nested.signal(args);
+            }
+
+            return program.stats != null ? invokeInstrumented(program, args) : CONTINUE;
+        }
+
+        // the same loop as the generated one, but timing each handler call
+        private Object invokeInstrumented(Chain.Compiled program, Object[] args) {
+            ChainInstrumentation instrumentation = program.instrumentation;
+            ChainInstrumentation.HandlerStats[] stats = program.stats;
+            int[] toRemove = null;
+
+            Object current = accumulatorSupplier.get();
+            Object[] handlers = program.handlers;
+            final int length = handlers.length;
+            for (int i = 0; i < length; i++) {
+                Object ret;
+                long start = System.nanoTime();
+                try {
+                    ret = binding.spreader.invokeExact(handlers[i], args);
+                } catch (Throwable t) {
+                    instrumentation.recordException(chain, stats[i], System.nanoTime() - start);
+                    return failed(t, this, i, current);
+                }
+
+                instrumentation.record(chain, stats[i], System.nanoTime() - start);
+                current = returnAccumulator.register(current, ret);
+
+                int f = flagsOf(ret);
+                if ((f & Chain.REMOVE) > 0) {
+                    toRemove = markRemoved(toRemove, i, length);
+                }
+
+                if ((f & Chain.STOP) > 0) {
+                    i = program.stopTarget(i) - 1;
+                }
+            }
+
+            removeAll(program, toRemove);
+            return result(current);
+        }
+
+        Object initial() {
+            return accumulatorSupplier.get();
+        }
+
+        int initialFlags() {
+            Object value = accumulatorSupplier.get();
+            return value != null ? (int) value : 0;
+        }
+
+        Object register(Object current, Object ret) {
+            return returnAccumulator.register(current, ret);
+        }
+
+        Object result(Object current) {
+            return current != null ? current : binding.defaultReturn;
+        }
+
+        // remove by identity from the owning chains after the invocation
+        void removeAll(Chain.Compiled program, int[] toRemove) {
+            if (toRemove == null) {
+                return;
+            }
+
+            for (int r = 1; r <= toRemove[0]; r++) {
+                program.owner(chain, toRemove[r]).removeHandler(program.handlers[toRemove[r]]);
+            }
+        }
+
+    }
+
+    // add the given index to the handlers to remove, which are only allocated
+    // once a handler requests it and hold the amount of indices at index 0
+    static int[] markRemoved(int[] toRemove, int index, int length) {
+        if (toRemove == null) {
+            toRemove = new int[length + 1];
+        }
+
+        toRemove[++toRemove[0]] = index;
+        return toRemove;
+    }
+
+    // the flags returned by a handler with a reference return type
+    static int flagsOf(Object ret) {
+        return ret instanceof Integer f ? f : 0;
+    }
+
+    // report an exception thrown by the handler at the given index
+    static Object failed(Throwable t, InvokerState state, int index, Object current) {
+        new EventInvocationException("An error occurred while invoking event handler(index: " + index + ")\n" +
+                "   method: " + state.binding.method + "\n" +
+                "   accumulator: " + current, t).printStackTrace();
+        return state.result(current);
+    }
+
+    /* Invoker Generation */
+
+    // generate the class file of the invoker for the given handler method, equivalent to
+    //   final class F$$Invoker implements F {
+    //       final InvokerState state;
+    //       public R method(A a...) {
+    //           Chain.Compiled program = state.program();
+    //           if (!state.isPlain(program)) {
+    //               Object r = state.invokeSlow(program, new Object[] { a... });
+    //               if (r != CONTINUE) return (R) r;
+    //           }
+    //
+    //           Object[] handlers = program.handlers; int length = handlers.length;
+    //           Object acc = state.initial(); // or int acc = state.initialFlags() with flags
+    //           int[] toRemove = null;
+    //           for (int i = 0; i < length; i++) {
+    //               R ret;
+    //               try { ret = ((F) handlers[i]).method(a...); }
+    //               catch (Throwable t) { return (R) failed(t, state, i, acc); }
+    //               acc = state.register(acc, ret); // or acc |= ret with flags
+    //               int f = ret; // or flagsOf(ret) for references, absent if ret can not be an int
+    //               if ((f & Chain.REMOVE) != 0) toRemove = markRemoved(toRemove, i, length);
+    //               if ((f & Chain.STOP) != 0) i = program.stopTarget(i) - 1;
+    //           }
+    //
+    //           state.removeAll(program, toRemove);
+    //           return (R) state.result(acc); // or acc with flags
+    //       }
+    //   }
+    // all locals are assigned before the loop so every frame in it is the same
+    static byte[] invokerBytes(Class<?> fClass, Method method, boolean flags) {
+        String name = "com/orbyfied/minem/event/" + fClass.getSimpleName() + (flags ? "$$FlagInvoker" : "$$Invoker");
+        String stateName = ClassFile.internalName(InvokerState.class);
+        String stateDescriptor = ClassFile.descriptor(InvokerState.class);
+        String compiledName = ClassFile.internalName(Chain.Compiled.class);
+
+        ClassFile file = new ClassFile(ClassFile.ACC_FINAL | ClassFile.ACC_SYNTHETIC, name,
+                "java/lang/Object", ClassFile.internalName(fClass));
+        ClassFile.ConstantPool pool = file.pool();
+        int stateField = pool.fieldRef(name, "state", stateDescriptor);
+        file.field(ClassFile.ACC_FINAL, "state", stateDescriptor);
+
+        ClassFile.Code init = new ClassFile.Code()
+                .op(0x2A)                                                                                // aload_0
+                .op2(0xB7, pool.methodRef(Object.class, "<init>", MethodType.methodType(void.class)))   // invokespecial Object.<init>
+                .op(0x2A, 0x2B)                                                                          // aload_0, aload_1
+                .op2(0xB5, stateField)                                                                   // putfield state
+                .op(0xB1);                                                                               // return
+        file.method(0, "<init>", "(" + stateDescriptor + ")V", 2, 2, init);
+
+        Class<?>[] params = method.getParameterTypes();
+        Class<?> returnType = method.getReturnType();
+        boolean returnsVoid = returnType == void.class;
+        boolean checkFlags = flags || (!returnType.isPrimitive() && returnType.isAssignableFrom(Integer.class));
+
+        // assign the local slots, the parameters followed by the
+        // program, handlers, length, i, acc, toRemove, f and ret
+        int[] paramSlots = new int[params.length];
+        int[] baseLocals = new int[params.length + 2];
+        baseLocals[0] = ClassFile.objectType(file.thisClass());
+        int slot = 1;
+        for (int i = 0; i < params.length; i++) {
+            paramSlots[i] = slot;
+            slot += params[i] == long.class || params[i] == double.class ? 2 : 1;
+            baseLocals[i + 1] = verificationType(pool, params[i]);
+        }
+
+        int program = slot, handlers = slot + 1, length = slot + 2, index = slot + 3,
+                acc = slot + 4, toRemove = slot + 5, f = slot + 6, ret = slot + 7;
+        int[] entryLocals = baseLocals;
+        entryLocals[params.length + 1] = ClassFile.objectType(pool.classRef(compiledName));
+        int[] loopLocals = Arrays.copyOf(entryLocals, entryLocals.length + 7);
+        int objectType = ClassFile.objectType(pool.classRef(Object.class));
+        System.arraycopy(new int[] {
+                ClassFile.objectType(pool.classRef(Object[].class)), ClassFile.T_INTEGER, ClassFile.T_INTEGER,
+                flags ? ClassFile.T_INTEGER : objectType, ClassFile.objectType(pool.classRef(int[].class)),
+                ClassFile.T_INTEGER, objectType
+        }, 0, loopLocals, entryLocals.length, 7);
+        int[] emptyStack = new int[0];
+
+        ClassFile.Code code = new ClassFile.Code();
+        int resume = code.newLabel(), plain = code.newLabel(), loop = code.newLabel(), noRemove = code.newLabel(),
+                next = code.newLabel(), condition = code.newLabel(), start = code.newLabel(), end = code.newLabel(),
+                handler = code.newLabel();
+
+        // prepare the program, signalling or invoking instrumented if needed
+        code.op(0x2A).op2(0xB4, stateField)
+                .op2(0xB6, pool.methodRef(InvokerState.class, "program", MethodType.methodType(Chain.Compiled.class)))
+                .local(0x3A, program);                                                                   // astore program
+        code.op(0x2A).op2(0xB4, stateField).local(0x19, program)
+                .op2(0xB6, pool.methodRef(InvokerState.class, "isPlain", MethodType.methodType(boolean.class, Chain.Compiled.class)))
+                .jump(0x9A, plain);                                                                      // ifne plain
+        code.op(0x2A).op2(0xB4, stateField).local(0x19, program);
+        pushInt(code, params.length);
+        code.op2(0xBD, pool.classRef(Object.class));                                                    // anewarray Object
+        for (int i = 0; i < params.length; i++) {
+            code.op(0x59);                                                                               // dup
+            pushInt(code, i);
+            load(code, params[i], paramSlots[i]);
+            box(code, pool, params[i]);
+            code.op(0x53);                                                                               // aastore
+        }
+
+        code.op2(0xB6, pool.methodRef(InvokerState.class, "invokeSlow",
+                        MethodType.methodType(Object.class, Chain.Compiled.class, Object[].class)))
+                .op(0x59)                                                                                // dup
+                .op2(0xB2, pool.fieldRef(ClassFile.internalName(Invokers.class), "CONTINUE", "Ljava/lang/Object;"))
+                .jump(0xA5, resume);                                                                     // if_acmpeq resume
+        returnObject(code, pool, returnType);
+        code.bind(resume, entryLocals, new int[] { objectType }).op(0x57);                               // pop
+
+        // assign the locals of the loop
+        code.bind(plain, entryLocals, emptyStack)
+                .local(0x19, program)
+                .op2(0xB4, pool.fieldRef(compiledName, "handlers", "[Ljava/lang/Object;"))
+                .local(0x3A, handlers)
+                .local(0x19, handlers).op(0xBE).local(0x36, length);                                    // arraylength, istore length
+        if (flags) {
+            code.op(0x2A).op2(0xB4, stateField)
+                    .op2(0xB6, pool.methodRef(InvokerState.class, "initialFlags", MethodType.methodType(int.class)))
+                    .local(0x36, acc);
+        } else if (!returnsVoid) {
+            code.op(0x2A).op2(0xB4, stateField)
+                    .op2(0xB6, pool.methodRef(InvokerState.class, "initial", MethodType.methodType(Object.class)))
+                    .local(0x3A, acc);
+        } else {
+            code.op(0x01).local(0x3A, acc);                                                              // aconst_null
+        }
+
+        code.op(0x01).local(0x3A, toRemove)
+                .op(0x03).local(0x36, f)
+                .op(0x01).local(0x3A, ret)
+                .op(0x03).local(0x36, index)
+                .jump(0xA7, condition);                                                                  // goto condition
+
+        // call the handler
+        code.bind(loop, loopLocals, emptyStack).bind(start)
+                .local(0x19, handlers).local(0x15, index).op(0x32)                                       // aaload
+                .op2(0xC0, pool.classRef(fClass));                                                       // checkcast
+        for (int i = 0; i < params.length; i++) {
+            load(code, params[i], paramSlots[i]);
+        }
+
+        code.op2(0xB9, pool.methodRef(fClass, method.getName(), MethodType.methodType(returnType, params)))
+                .op(slot, 0);                                                                            // invokeinterface
+        code.bind(end);
+
+        // accumulate the result
+        if (flags) {
+            code.op(0x59).local(0x36, f)                                                                 // dup, istore f
+                    .local(0x15, acc).op(0x80).local(0x36, acc);                                         // ior
+        } else if (!returnsVoid) {
+            box(code, pool, returnType);
+            code.local(0x3A, ret)
+                    .op(0x2A).op2(0xB4, stateField).local(0x19, acc).local(0x19, ret)
+                    .op2(0xB6, pool.methodRef(InvokerState.class, "register", MethodType.methodType(Object.class, Object.class, Object.class)))
+                    .local(0x3A, acc);
+            if (checkFlags) {
+                code.local(0x19, ret)
+                        .op2(0xB8, pool.methodRef(Invokers.class, "flagsOf", MethodType.methodType(int.class, Object.class)))
+                        .local(0x36, f);
+            }
+        }
+
+        // handle the flags
+        if (checkFlags) {
+            String chainName = ClassFile.internalName(Chain.class);
+            code.local(0x15, f).op2(0xB2, pool.fieldRef(chainName, "REMOVE", "I")).op(0x7E)        // iand
+                    .jump(0x99, noRemove)                                                                // ifeq noRemove
+                    .local(0x19, toRemove).local(0x15, index).local(0x15, length)
+                    .op2(0xB8, pool.methodRef(Invokers.class, "markRemoved", MethodType.methodType(int[].class, int[].class, int.class, int.class)))
+                    .local(0x3A, toRemove);
+            code.bind(noRemove, loopLocals, emptyStack)
+                    .local(0x15, f).op2(0xB2, pool.fieldRef(chainName, "STOP", "I")).op(0x7E)
+                    .jump(0x99, next)
+                    .local(0x19, program).local(0x15, index)
+                    .op2(0xB6, pool.methodRef(Chain.Compiled.class, "stopTarget", MethodType.methodType(int.class, int.class)))
+                    .op(0x04, 0x64).local(0x36, index);                                                  // iconst_1, isub
+            code.bind(next, loopLocals, emptyStack);
+        }
+
+        increment(code, index);
+        code.bind(condition, loopLocals, emptyStack)
+                .local(0x15, index).local(0x15, length).jump(0xA1, loop);                               // if_icmplt loop
+
+        // remove the handlers and return the result
+        code.op(0x2A).op2(0xB4, stateField).local(0x19, program).local(0x19, toRemove)
+                .op2(0xB6, pool.methodRef(InvokerState.class, "removeAll", MethodType.methodType(void.class, Chain.Compiled.class, int[].class)));
+        if (flags) {
+            code.local(0x15, acc).op(0xAC);                                                              // ireturn
+        } else if (returnsVoid) {
+            code.op(0xB1);                                                                               // return
+        } else {
+            code.op(0x2A).op2(0xB4, stateField).local(0x19, acc)
+                    .op2(0xB6, pool.methodRef(InvokerState.class, "result", MethodType.methodType(Object.class, Object.class)));
+            returnObject(code, pool, returnType);
+        }
+
+        // report exceptions thrown by the handler
+        code.bind(handler, loopLocals, new int[] { ClassFile.objectType(pool.classRef(Throwable.class)) })
+                .op(0x2A).op2(0xB4, stateField).local(0x15, index);
+        if (flags) {
+            code.local(0x15, acc);
+            box(code, pool, int.class);
+        } else {
+            code.local(0x19, acc);
+        }
+
+        code.op2(0xB8, pool.methodRef(Invokers.class, "failed",
+                MethodType.methodType(Object.class, Throwable.class, InvokerState.class, int.class, Object.class)));
+        returnObject(code, pool, returnType);
+        code.tryCatch(start, end, handler, pool.classRef(Throwable.class));
+
+        int maxStack = Math.max(8, slot + 2);
+        file.method(ClassFile.ACC_PUBLIC, method.getName(), MethodType.methodType(returnType, params).toMethodDescriptorString(),
+                maxStack, ret + 1, code);
+        return file.toByteArray();
+    }
+
+    // the stack map verification type of a local of the given type
+    private static int verificationType(ClassFile.ConstantPool pool, Class<?> type) {
+        if (type == long.class) return ClassFile.T_LONG;
+        if (type == double.class) return ClassFile.T_DOUBLE;
+        if (type == float.class) return ClassFile.T_FLOAT;
+        if (type.isPrimitive()) return ClassFile.T_INTEGER;
+        return ClassFile.objectType(pool.classRef(type));
+    }
+
+    private static void pushInt(ClassFile.Code code, int value) {
+        if (value <= 5) {
+            code.op(0x03 + value);   // iconst_n
+        } else if (value <= 127) {
+            code.op(0x10, value);    // bipush
+        } else {
+            code.op2(0x11, value);   // sipush
+        }
+    }
+
+    // load the local of the given type
+    private static void load(ClassFile.Code code, Class<?> type, int slot) {
+        if (type == long.class) code.local(0x16, slot);
+        else if (type == float.class) code.local(0x17, slot);
+        else if (type == double.class) code.local(0x18, slot);
+        else if (type.isPrimitive()) code.local(0x15, slot);
+        else code.local(0x19, slot);
+    }
+
+    private static void increment(ClassFile.Code code, int slot) {
+        if (slot > 0xFF) {
+            code.op(0xC4).op2(0x84, slot).op(0, 1); // wide iinc
+        } else {
+            code.op(0x84, slot, 1);                 // iinc
+        }
+    }
+
+    // box the primitive on the stack if the given type is primitive
+    private static void box(ClassFile.Code code, ClassFile.ConstantPool pool, Class<?> type) {
+        if (type.isPrimitive()) {
+            Class<?> wrapper = MethodType.methodType(type).wrap().returnType();
+            code.op2(0xB8, pool.methodRef(wrapper, "valueOf", MethodType.methodType(wrapper, type)));
+        }
+    }
+
+    // return the object on the stack converted to the given return type
+    private static void returnObject(ClassFile.Code code, ClassFile.ConstantPool pool, Class<?> type) {
+        if (type == void.class) {
+            code.op(0x57, 0xB1); // pop, return
+            return;
+        }
+
+        if (!type.isPrimitive()) {
+            if (type != Object.class) {
+                code.op2(0xC0, pool.classRef(type));
+            }
+
+            code.op(0xB0);       // areturn
+            return;
+        }
+
+        Class<?> wrapper = MethodType.methodType(type).wrap().returnType();
+        code.op2(0xC0, pool.classRef(wrapper))
+                .op2(0xB6, pool.methodRef(wrapper, type.getName() + "Value", MethodType.methodType(type)));
+        if (type == long.class) code.op(0xAD);        // lreturn
+        else if (type == float.class) code.op(0xAE);  // freturn
+        else if (type == double.class) code.op(0xAF); // dreturn
+        else code.op(0xAC);                           // ireturn
+    }
+
     @SuppressWarnings("unchecked")
-    public static <F> F createDynamicInvoker(Supplier<List<F>> handlerListSupplier,
+    public static <F> F createDynamicInvoker(Chain<F> chain,
                                              Class<F> fClass,
                                              Supplier<Object> accumulatorSupplier,
-                                             ReturnAccumulator<Object, Object> returnAccumulator,
-                                             Supplier<Object> lockSupplier) {
+                                             ReturnAccumulator<Object, Object> returnAccumulator) {
         // calculate which methods are
         // handler methods
         final HashSet<Method> handlerMethodSet = new HashSet<>();
@@ -38,27 +623,36 @@ final class Invokers {
                     return ReflectUtil.invokeDefault(proxy, method, args);
                 }
 
-                // notify lock
-                Object lock = lockSupplier.get();
-                if (lock != null) {
-                    synchronized (lock) {
-                        lock.notifyAll();
-                    }
+                // complete the waiters of the chain and nested chains
+                Chain.Compiled program = chain.compiled();
+                Object[] invocationArgs = args != null ? args : new Object[0];
+                chain.signal(invocationArgs);
+                for (Chain<?> nested : program.nested) {
+                    nested.signal(invocationArgs);
                 }
 
-                // invoke and update handlers
+                // invoke the compiled handlers
                 List<Integer> toRemove = new ArrayList<>();
 
                 current = accumulatorSupplier.get();
-                List<F> handlerList = handlerListSupplier.get();
-                final int length = handlerList.size();
+                Object[] handlers = program.handlers;
+                ChainInstrumentation.HandlerStats[] stats = program.stats;
+                final int length = handlers.length;
                 for (int i = 0; i < length; i++) {
-                    F func = handlerList.get(i);
+                    Object func = handlers[i];
 
                     Object ret;
+                    long start = stats != null ? System.nanoTime() : 0;
                     try {
                         ret = method.invoke(func, args);
+                        if (stats != null) {
+                            program.instrumentation.record(chain, stats[i], System.nanoTime() - start);
+                        }
                     } catch (InvocationTargetException ex) {
+                        if (stats != null) {
+                            program.instrumentation.recordException(chain, stats[i], System.nanoTime() - start);
+                        }
+
                         throw new EventInvocationException("An error occurred while invoking event handler(index: " + i + ")\n" +
                                 "   method: " + method + "\n" +
                                 "   accumulator: " + current, ex.getCause());
@@ -73,13 +667,14 @@ final class Invokers {
                         }
 
                         if ((f & Chain.STOP) > 0) {
-                            break;
+                            i = program.stopTarget(i) - 1;
                         }
                     }
                 }
 
-                for (int idx : toRemove) {
-                    handlerList.remove(idx);
+                // remove by identity from the owning chains after the invocation
+                for (int index : toRemove) {
+                    program.owner(chain, index).removeHandler(handlers[index]);
                 }
 
                 return current;
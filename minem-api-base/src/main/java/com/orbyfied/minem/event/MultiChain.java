@@ -3,10 +3,16 @@ package com.orbyfied.minem.event;
 import lombok.RequiredArgsConstructor;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 /**
  * Represents a keyed store of {@link Chain} by some value type.
  *
+ * The chains are stored in an immutable map which is replaced when a chain
+ * is created, so chains can be looked up from any thread without locking.
+ *
  * @param <K> The key type.
  * @param <F> The handler type.
  */
@@ -16,7 +22,9 @@ public class MultiChain<K, F> {
 
     EventKeyMapper<K> keyMapper = k -> (Collection<K>) List.of(k);
     final ChainFactory<K, F> factory;
-    final Map<K, Chain<F>> map = new HashMap<>();
+    volatile Map<K, Chain<F>> map = Map.of(); // The current snapshot of chains, replaced while holding the monitor of this
+    final AtomicInteger version = new AtomicInteger(); // Incremented when a chain is created or changed, see version()
+    volatile ChainInstrumentation instrumentation;     // Installed in all chains, null if disabled
 
     public MultiChain<K, F> keyMapper(EventKeyMapper<K> keyMapper) {
         this.keyMapper = keyMapper;
@@ -27,7 +35,59 @@ public class MultiChain<K, F> {
      * Get or create the single chain corresponding directly to the given key.
      */
     public Chain<F> get(K key) {
-        return map.computeIfAbsent(key, factory::create);
+        Chain<F> chain = map.get(key);
+        return chain != null ? chain : create(key);
+    }
+
+    // create the chain for the given key unless another thread did already
+    private synchronized Chain<F> create(K key) {
+        Chain<F> chain = map.get(key);
+        if (chain != null) {
+            return chain;
+        }
+
+        chain = factory.create(key);
+        chain.changeListener = this::changed;
+        chain.instrument(instrumentation);
+        Map<K, Chain<F>> updated = new HashMap<>(map);
+        updated.put(key, chain);
+        map = updated;
+        changed();
+        return chain;
+    }
+
+    // called when a chain is created or changed
+    private void changed() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Install the given instrumentation in all current chains and
+     * all chains created later.
+     *
+     * @param instrumentation The instrumentation or null to disable it.
+     * @return This.
+     */
+    public synchronized MultiChain<K, F> instrument(ChainInstrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+        for (Chain<F> chain : map.values()) {
+            chain.instrument(instrumentation);
+        }
+
+        return this;
+    }
+
+    public ChainInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * The version of this multichain, which is incremented whenever a chain is created,
+     * a handler is added to or removed from one of the chains or the invoker of one changes. Anything
+     * caching chains or their invokers can compare it to know when to refresh.
+     */
+    public int version() {
+        return version.get();
     }
 
     /**
@@ -47,6 +107,24 @@ public class MultiChain<K, F> {
         return ChainAccess.of(chains);
     }
 
+    /**
+     * Get a future completed by the next invocation of any chain corresponding
+     * to the given mappable key which matches the given predicate.
+     *
+     * @see ChainAccess#awaitNext(Predicate)
+     */
+    public CompletableFuture<Chain.Invocation> awaitNext(Object key, Predicate<? super Chain.Invocation> predicate) {
+        return by(key).awaitNext(predicate);
+    }
+
+    /**
+     * Get a future completed by the next invocation of any chain
+     * corresponding to the given mappable key.
+     */
+    public CompletableFuture<Chain.Invocation> nextAsync(Object key) {
+        return by(key).nextAsync();
+    }
+
     /**
      * Get the single chain corresponding directly to the given key.
      */
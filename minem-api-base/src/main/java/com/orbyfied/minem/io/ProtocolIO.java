@@ -1,5 +1,6 @@
 package com.orbyfied.minem.io;
 
+import com.orbyfied.minem.buffer.UnsafeByteBuf;
 import com.orbyfied.minem.math.Vec3i;
 
 import java.io.*;
@@ -94,6 +95,34 @@ public class ProtocolIO {
         return value;
     }
 
+    /**
+     * Try to read a VarInt from the given buffer at the given offset without reading
+     * past the given limit, for example to decode length prefixes of partially received data.
+     *
+     * @return -1 if the VarInt is incomplete, otherwise the encoded length in the
+     *         upper 32 bits and the value in the lower 32 bits.
+     */
+    public static long peekVarInt(UnsafeByteBuf buf, int offset, int limit) {
+        int value = 0;
+        int position = 0;
+        int i = offset;
+        byte currentByte;
+
+        while (true) {
+            if (i >= limit) return -1;
+            currentByte = buf.getByte(i++);
+            value |= (currentByte & SEGMENT_BITS) << position;
+
+            if ((currentByte & CONTINUE_BIT) == 0) break;
+
+            position += 7;
+
+            if (position >= 32) throw new RuntimeException("VarInt is too big");
+        }
+
+        return ((long) (i - offset) << 32) | (value & 0xFFFFFFFFL);
+    }
+
     public static int writeVarIntToStream(OutputStream stream, int value) throws IOException {
         return writeVarInt(stream::write, value);
     }
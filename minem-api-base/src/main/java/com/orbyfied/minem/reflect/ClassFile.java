@@ -0,0 +1,416 @@
+package com.orbyfied.minem.reflect;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes minimal class files for classes generated at runtime, which are usually
+ * defined as hidden classes. Only the parts of the format needed by the generators
+ * are supported: fields, methods with code, exception tables and full stack map frames.
+ */
+public final class ClassFile {
+
+    // access flags
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_FINAL = 0x0010;
+    public static final int ACC_SYNTHETIC = 0x1000;
+
+    // verification types of stack map frames, see #objectType(int) for references
+    public static final int T_INTEGER = 1;
+    public static final int T_FLOAT = 2;
+    public static final int T_DOUBLE = 3;
+    public static final int T_LONG = 4;
+
+    // The class file version written, Java 16
+    static final int VERSION = 60;
+
+    final ConstantPool pool = new ConstantPool();
+    final int access;          // The class access flags
+    final int thisClass;       // The class entry of this class
+    final int superClass;      // The class entry of the super class
+    final int[] interfaces;    // The class entries of the implemented interfaces
+
+    final ByteArrayOutputStream fields = new ByteArrayOutputStream();
+    int fieldCount;
+    final ByteArrayOutputStream methods = new ByteArrayOutputStream();
+    int methodCount;
+
+    public ClassFile(int access, String name, String superName, String... interfaceNames) {
+        this.access = access;
+        this.thisClass = pool.classRef(name);
+        this.superClass = pool.classRef(superName);
+        this.interfaces = new int[interfaceNames.length];
+        for (int i = 0; i < interfaceNames.length; i++) {
+            interfaces[i] = pool.classRef(interfaceNames[i]);
+        }
+    }
+
+    public ConstantPool pool() {
+        return pool;
+    }
+
+    /**
+     * Get the class entry of the class being written.
+     */
+    public int thisClass() {
+        return thisClass;
+    }
+
+    /**
+     * Add a field without attributes.
+     */
+    public ClassFile field(int access, String name, String descriptor) {
+        DataOutputStream out = new DataOutputStream(fields);
+        try {
+            out.writeShort(access);
+            out.writeShort(pool.utf8(name));
+            out.writeShort(pool.utf8(descriptor));
+            out.writeShort(0);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        fieldCount++;
+        return this;
+    }
+
+    /**
+     * Add a method with the given code.
+     */
+    public ClassFile method(int access, String name, String descriptor, int maxStack, int maxLocals, Code code) {
+        DataOutputStream out = new DataOutputStream(methods);
+        try {
+            byte[] bytes = code.resolve();
+            byte[] frames = code.stackMapTable();
+
+            int attributeLength = 2 + 2 + 4 + bytes.length + 2 + code.handlers.size() * 8 + 2;
+            if (frames != null) {
+                attributeLength += 6 + frames.length;
+            }
+
+            out.writeShort(access);
+            out.writeShort(pool.utf8(name));
+            out.writeShort(pool.utf8(descriptor));
+            out.writeShort(1);
+            out.writeShort(pool.utf8("Code"));
+            out.writeInt(attributeLength);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.writeShort(code.handlers.size());
+            for (int[] handler : code.handlers) {
+                out.writeShort(code.offsetOf(handler[0]));
+                out.writeShort(code.offsetOf(handler[1]));
+                out.writeShort(code.offsetOf(handler[2]));
+                out.writeShort(handler[3]);
+            }
+
+            if (frames != null) {
+                out.writeShort(1);
+                out.writeShort(pool.utf8("StackMapTable"));
+                out.writeInt(frames.length);
+                out.write(frames);
+            } else {
+                out.writeShort(0);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        methodCount++;
+        return this;
+    }
+
+    /**
+     * Write the class file.
+     */
+    public byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            pool.write(out);
+            out.writeShort(access);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(interfaces.length);
+            for (int i : interfaces) {
+                out.writeShort(i);
+            }
+
+            out.writeShort(fieldCount);
+            fields.writeTo(out);
+            out.writeShort(methodCount);
+            methods.writeTo(out);
+            out.writeShort(0); // attributes
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Get the verification type of a reference to the class with the given entry.
+     */
+    public static int objectType(int classIndex) {
+        return 7 | classIndex << 8;
+    }
+
+    public static String internalName(Class<?> klass) {
+        return klass.isArray() ? descriptor(klass) : klass.getName().replace('.', '/');
+    }
+
+    public static String descriptor(Class<?> klass) {
+        return MethodType.methodType(klass).toMethodDescriptorString().substring(2);
+    }
+
+    /**
+     * The constant pool of a generated class, deduplicating equal entries.
+     */
+    public static final class ConstantPool {
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256); // The encoded entries
+        final DataOutputStream out = new DataOutputStream(bytes);
+        final Map<String, Integer> indices = new HashMap<>();                 // The entry indices by key
+        int count = 1;                                                        // The next entry index
+
+        public int utf8(String value) {
+            Integer index = indices.get("U" + value);
+            if (index != null) return index;
+            try {
+                out.writeByte(1);
+                out.writeUTF(value);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+
+            return add("U" + value);
+        }
+
+        public int classRef(String internalName) {
+            Integer index = indices.get("C" + internalName);
+            if (index != null) return index;
+            int name = utf8(internalName);
+            try {
+                out.writeByte(7);
+                out.writeShort(name);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+
+            return add("C" + internalName);
+        }
+
+        public int classRef(Class<?> klass) {
+            return classRef(internalName(klass));
+        }
+
+        /**
+         * Add a field (9), method (10) or interface method (11) reference.
+         */
+        public int memberRef(int tag, String owner, String name, String descriptor) {
+            String key = tag + owner + "." + name + descriptor;
+            Integer index = indices.get(key);
+            if (index != null) return index;
+            int ownerClass = classRef(owner);
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            try {
+                out.writeByte(12);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+                int nameAndType = count++;
+                out.writeByte(tag);
+                out.writeShort(ownerClass);
+                out.writeShort(nameAndType);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+
+            return add(key);
+        }
+
+        public int fieldRef(String owner, String name, String descriptor) {
+            return memberRef(9, owner, name, descriptor);
+        }
+
+        public int methodRef(Class<?> owner, String name, MethodType type) {
+            return memberRef(owner.isInterface() ? 11 : 10, internalName(owner), name, type.toMethodDescriptorString());
+        }
+
+        private int add(String key) {
+            int index = count++;
+            indices.put(key, index);
+            return index;
+        }
+
+        void write(DataOutputStream dst) throws IOException {
+            dst.writeShort(count);
+            bytes.writeTo(dst);
+        }
+
+    }
+
+    /**
+     * The code of a method, with jumps to labels which are resolved when the
+     * method is added and a full stack map frame at every label jumped to.
+     */
+    public static final class Code {
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        final List<int[]> jumps = new ArrayList<>();     // The (instruction offset, label) of each jump
+        final List<int[]> handlers = new ArrayList<>();  // The (start, end, handler) labels and caught class entry
+        final List<Frame> frames = new ArrayList<>();
+        int[] labels = new int[8];                       // The offset of each label, -1 if not bound yet
+        int labelCount;
+
+        record Frame(int label, int[] locals, int[] stack) { }
+
+        /**
+         * Append the given instruction bytes.
+         */
+        public Code op(int... values) {
+            for (int value : values) {
+                bytes.write(value);
+            }
+
+            return this;
+        }
+
+        /**
+         * Append the given opcode followed by a two byte operand.
+         */
+        public Code op2(int opcode, int operand) {
+            bytes.write(opcode);
+            bytes.write(operand >>> 8);
+            bytes.write(operand);
+            return this;
+        }
+
+        /**
+         * Append a local variable instruction in its wide form.
+         */
+        public Code local(int opcode, int index) {
+            if (index > 0xFF) {
+                bytes.write(0xC4); // wide
+                return op2(opcode, index);
+            }
+
+            return op(opcode, index);
+        }
+
+        public int newLabel() {
+            if (labelCount == labels.length) {
+                labels = Arrays.copyOf(labels, labelCount * 2);
+            }
+
+            labels[labelCount] = -1;
+            return labelCount++;
+        }
+
+        /**
+         * Append a jump with the given opcode to the given label.
+         */
+        public Code jump(int opcode, int label) {
+            jumps.add(new int[] { bytes.size(), label });
+            return op(opcode, 0, 0);
+        }
+
+        /**
+         * Bind the given label to the current offset.
+         */
+        public Code bind(int label) {
+            labels[label] = bytes.size();
+            return this;
+        }
+
+        /**
+         * Bind the given label to the current offset and declare the frame at it.
+         *
+         * @param locals The verification types of the locals.
+         * @param stack The verification types of the operand stack.
+         */
+        public Code bind(int label, int[] locals, int[] stack) {
+            frames.add(new Frame(label, locals, stack));
+            return bind(label);
+        }
+
+        /**
+         * Catch the exceptions of the given class thrown between the labels at the handler label.
+         */
+        public Code tryCatch(int start, int end, int handler, int classIndex) {
+            handlers.add(new int[] { start, end, handler, classIndex });
+            return this;
+        }
+
+        int offsetOf(int label) {
+            if (labels[label] < 0) {
+                throw new IllegalStateException("Label " + label + " is not bound");
+            }
+
+            return labels[label];
+        }
+
+        // the code with all jumps resolved
+        byte[] resolve() {
+            byte[] code = bytes.toByteArray();
+            for (int[] jump : jumps) {
+                int delta = offsetOf(jump[1]) - jump[0];
+                code[jump[0] + 1] = (byte) (delta >>> 8);
+                code[jump[0] + 2] = (byte) delta;
+            }
+
+            return code;
+        }
+
+        // the stack map table attribute content, null if there are no frames
+        byte[] stackMapTable() throws IOException {
+            if (frames.isEmpty()) {
+                return null;
+            }
+
+            List<Frame> sorted = new ArrayList<>(frames);
+            sorted.sort(Comparator.comparingInt(frame -> offsetOf(frame.label)));
+
+            ByteArrayOutputStream table = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(table);
+            out.writeShort(sorted.size());
+            int previous = -1;
+            for (Frame frame : sorted) {
+                int offset = offsetOf(frame.label);
+                out.writeByte(255); // full_frame
+                out.writeShort(offset - previous - 1);
+                writeTypes(out, frame.locals);
+                writeTypes(out, frame.stack);
+                previous = offset;
+            }
+
+            return table.toByteArray();
+        }
+
+        private static void writeTypes(DataOutputStream out, int[] types) throws IOException {
+            out.writeShort(types.length);
+            for (int type : types) {
+                out.writeByte(type & 0xFF);
+                if ((type & 0xFF) == 7) {
+                    out.writeShort(type >>> 8);
+                }
+            }
+        }
+
+    }
+
+}
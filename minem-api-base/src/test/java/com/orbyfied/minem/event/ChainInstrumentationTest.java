@@ -0,0 +1,46 @@
+package com.orbyfied.minem.event;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests recording handler statistics through a {@link ChainInstrumentation}.
+ */
+public class ChainInstrumentationTest {
+
+    public interface Handler {
+        int handle(int value);
+    }
+
+    @Test
+    void recordsAfterReset() {
+        ChainInstrumentation instrumentation = new ChainInstrumentation();
+        Handler handler = value -> value;
+        Handler failing = value -> { throw new IllegalStateException("expected"); };
+        Chain<Handler> chain = new Chain<Handler>(Handler.class).integerFlagHandling().instrument(instrumentation);
+        chain.addLast(handler);
+        chain.addLast(failing);
+
+        chain.invoker().handle(0);
+        chain.invoker().handle(0);
+        assertEquals(2, instrumentation.statsOf(handler).count());
+        assertEquals(2, instrumentation.statsOf(failing).exceptions());
+
+        instrumentation.reset();
+        ChainInstrumentation.HandlerStats stats = instrumentation.statsOf(handler);
+        assertEquals(0, stats.count());
+        assertEquals(0, stats.totalNanos());
+        assertEquals(0, stats.maxNanos());
+        assertEquals(0, instrumentation.statsOf(failing).exceptions());
+
+        // the chain is not recompiled, so it still records into the same statistics
+        chain.invoker().handle(0);
+        assertSame(stats, instrumentation.statsOf(handler));
+        assertEquals(1, stats.count());
+        assertEquals(1, instrumentation.statsOf(failing).count());
+        assertEquals(1, instrumentation.statsOf(failing).exceptions());
+        assertTrue(instrumentation.handlerStats().contains(stats));
+    }
+
+}
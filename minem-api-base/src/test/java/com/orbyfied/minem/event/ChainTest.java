@@ -0,0 +1,200 @@
+package com.orbyfied.minem.event;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests invoking chains through their standard invokers, including nested chains.
+ */
+public class ChainTest {
+
+    public interface Handler {
+        int handle(int value);
+    }
+
+    // a chain with integer flag handling
+    static Chain<Handler> newChain() {
+        return new Chain<Handler>(Handler.class).integerFlagHandling();
+    }
+
+    // a handler recording its name and returning the given flags
+    static Handler recording(List<String> calls, String name, int flags) {
+        return value -> {
+            calls.add(name);
+            return flags;
+        };
+    }
+
+    /* Nested Chains */
+
+    @Test
+    void recompilesAfterNestedChanges() {
+        List<String> calls = new ArrayList<>();
+        Chain<Handler> chain = newChain();
+        Chain<Handler> nested = newChain();
+        chain.addLast(recording(calls, "a", 0));
+        chain.addLast(nested);
+        nested.addLast(recording(calls, "b", 0));
+
+        chain.invoker().handle(0);
+        assertEquals(List.of("a", "b"), calls);
+
+        // change the nested chain after the outer chain was compiled
+        Handler c = recording(calls, "c", 0);
+        nested.addFirst(c);
+        calls.clear();
+        chain.invoker().handle(0);
+        assertEquals(List.of("a", "c", "b"), calls);
+
+        nested.remove(c);
+        calls.clear();
+        chain.invoker().handle(0);
+        assertEquals(List.of("a", "b"), calls);
+
+        // nest another chain into the nested chain
+        Chain<Handler> inner = newChain();
+        inner.addLast(recording(calls, "d", 0));
+        nested.addLast(inner);
+        calls.clear();
+        chain.invoker().handle(0);
+        assertEquals(List.of("a", "b", "d"), calls);
+    }
+
+    @Test
+    void removesNestedHandlerFromNestedChain() {
+        List<String> calls = new ArrayList<>();
+        Chain<Handler> chain = newChain();
+        Chain<Handler> nested = newChain();
+        chain.addLast(nested);
+        chain.addLast(recording(calls, "b", 0));
+        nested.addLast(recording(calls, "a", Chain.REMOVE));
+
+        chain.invoker().handle(0);
+        assertEquals(List.of("a", "b"), calls);
+        assertTrue(nested.isEmpty());
+        assertFalse(chain.isEmpty());
+
+        calls.clear();
+        chain.invoker().handle(0);
+        assertEquals(List.of("b"), calls);
+    }
+
+    @Test
+    void stopOnlySkipsNestedChain() {
+        List<String> calls = new ArrayList<>();
+        Chain<Handler> chain = newChain();
+        Chain<Handler> nested = newChain();
+        chain.addLast(nested);
+        chain.addLast(recording(calls, "c", Chain.STOP));
+        chain.addLast(recording(calls, "d", 0));
+        nested.addLast(recording(calls, "a", Chain.STOP));
+        nested.addLast(recording(calls, "b", 0));
+
+        chain.invoker().handle(0);
+        assertEquals(List.of("a", "c"), calls);
+
+        // invoked directly the nested chain stops at the same handler
+        calls.clear();
+        nested.invoker().handle(0);
+        assertEquals(List.of("a"), calls);
+    }
+
+    /* Snapshots */
+
+    @Test
+    void invocationSeesSnapshotWhileAdding() {
+        List<String> calls = new ArrayList<>();
+        Chain<Handler> chain = newChain();
+        Handler added = recording(calls, "added", 0);
+        chain.addLast(value -> {
+            calls.add("adding");
+            chain.addLast(added);
+            return Chain.REMOVE;
+        });
+
+        chain.invoker().handle(0);
+        assertEquals(List.of("adding"), calls);
+
+        calls.clear();
+        chain.invoker().handle(0);
+        assertEquals(List.of("added"), calls);
+    }
+
+    @Test
+    void invocationSeesSnapshotWhileRemoving() {
+        List<String> calls = new ArrayList<>();
+        Chain<Handler> chain = newChain();
+        Handler removed = recording(calls, "removed", 0);
+        chain.addLast(value -> {
+            calls.add("removing");
+            chain.remove(removed);
+            return 0;
+        });
+        chain.addLast(removed);
+
+        chain.invoker().handle(0);
+        assertEquals(List.of("removing", "removed"), calls);
+
+        calls.clear();
+        chain.invoker().handle(0);
+        assertEquals(List.of("removing"), calls);
+    }
+
+    /* Awaiting Invocations */
+
+    @Test
+    void completesMatchingWaiterBeforeHandlers() {
+        Chain<Handler> chain = newChain();
+        CompletableFuture<Chain.Invocation> future = chain.awaitNext(invocation -> invocation.<Integer>arg(0) == 2);
+        List<Boolean> doneInHandler = new ArrayList<>();
+        chain.addLast(value -> {
+            doneInHandler.add(future.isDone());
+            return 0;
+        });
+
+        chain.invoker().handle(1);
+        assertFalse(future.isDone());
+        assertTrue(chain.hasWaiters());
+
+        chain.invoker().handle(2);
+        assertEquals(List.of(false, true), doneInHandler);
+        Chain.Invocation invocation = future.join();
+        assertSame(chain, invocation.chain());
+        assertEquals(2, invocation.<Integer>arg(0));
+        assertFalse(chain.hasWaiters());
+    }
+
+    @Test
+    void completesWaiterExceptionallyIfPredicateThrows() {
+        Chain<Handler> chain = newChain();
+        CompletableFuture<Chain.Invocation> future = chain.awaitNext(invocation -> {
+            throw new IllegalStateException("expected");
+        });
+
+        chain.invoker().handle(0);
+        assertTrue(future.isCompletedExceptionally());
+        assertFalse(chain.hasWaiters());
+    }
+
+    @Test
+    void prunesCancelledWaiters() {
+        Chain<Handler> chain = newChain();
+        CompletableFuture<Chain.Invocation> cancelled = chain.nextAsync();
+        CompletableFuture<Chain.Invocation> pending = chain.awaitNext(invocation -> invocation.<Integer>arg(0) == 2);
+        cancelled.cancel(false);
+
+        chain.invoker().handle(1);
+        assertTrue(chain.hasWaiters());
+        assertFalse(pending.isDone());
+
+        chain.invoker().handle(2);
+        assertTrue(pending.isDone());
+        assertFalse(chain.hasWaiters());
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.orbyfied.minem.protocol;
+
+import java.util.*;
+
+/**
+ * An immutable snapshot of the lookups of a packet registry, used by frozen
+ * protocols and phase specifications. Mappings are indexed by registry ID in an
+ * array and by name and data class in perfect hash indices, and the results of
+ * {@link PacketRegistry#match(Object)} are precomputed for all names, data classes
+ * and data interfaces of the registered mappings, which are the only keys that can
+ * match anything.
+ *
+ * All state is written in the constructor only, so it can be read by any
+ * amount of threads without synchronization once safely published.
+ */
+final class FrozenPacketIndex {
+
+    static final PacketMapping[] NO_MAPPINGS = new PacketMapping[0];
+
+    final PacketMapping[] byRegistryId;                         // The mappings by registry ID, empty if IDs are not indexed
+    final PerfectHashIndex<String, PacketMapping> byName;       // The mappings by primary name and aliases
+    final PerfectHashIndex<Class<?>, PacketMapping> byClass;    // The mappings by data class
+    final PerfectHashIndex<Object, PacketMapping[]> matches;    // The precomputed match results by key
+
+    /**
+     * Snapshot the lookups of the given registry.
+     *
+     * @param source The registry, which is only read from.
+     * @param indexIds Whether to index the mappings by registry ID.
+     */
+    FrozenPacketIndex(PacketRegistry source, boolean indexIds) {
+        List<PacketMapping> mappings = source.allPacketMappings();
+
+        // index by registry ID
+        if (indexIds) {
+            int maxId = -1;
+            for (PacketMapping mapping : mappings) {
+                maxId = Math.max(maxId, mapping.getRegistryId());
+            }
+
+            byRegistryId = new PacketMapping[maxId + 1];
+            for (PacketMapping mapping : mappings) {
+                if (mapping.getRegistryId() >= 0) {
+                    byRegistryId[mapping.getRegistryId()] = source.getPacketMapping(mapping.getRegistryId());
+                }
+            }
+        } else {
+            byRegistryId = NO_MAPPINGS;
+        }
+
+        // collect all keys, the lookups are resolved through the
+        // source so precedence between mappings is preserved
+        Map<String, PacketMapping> names = new HashMap<>();
+        Map<Class<?>, PacketMapping> classes = new HashMap<>();
+        Set<Object> matchKeys = new HashSet<>();
+        for (PacketMapping mapping : mappings) {
+            names.put(mapping.getPrimaryName(), source.getPacketMapping(mapping.getPrimaryName()));
+            for (String alias : mapping.getAliases()) {
+                names.put(alias, source.getPacketMapping(alias));
+            }
+
+            classes.put(mapping.getDataClass(), source.getPacketMapping(mapping.getDataClass()));
+            matchKeys.add(mapping.getDataClass());
+            matchKeys.addAll(mapping.getDataInterfaces());
+        }
+
+        matchKeys.addAll(names.keySet());
+        Map<Object, PacketMapping[]> matchResults = new HashMap<>();
+        for (Object key : matchKeys) {
+            Set<PacketMapping> result = new LinkedHashSet<>();
+            source.match(result, key);
+            matchResults.put(key, result.toArray(NO_MAPPINGS));
+        }
+
+        byName = new PerfectHashIndex<>(names);
+        byClass = new PerfectHashIndex<>(classes);
+        matches = new PerfectHashIndex<>(matchResults);
+    }
+
+    PacketMapping get(int registryId) {
+        return registryId >= 0 && registryId < byRegistryId.length ? byRegistryId[registryId] : null;
+    }
+
+    PacketMapping get(String name) {
+        return byName.get(name);
+    }
+
+    PacketMapping get(Class<?> klass) {
+        return byClass.get(klass);
+    }
+
+    void match(Collection<PacketMapping> list, Object key) {
+        PacketMapping[] result = matches.get(key);
+        if (result != null) {
+            Collections.addAll(list, result);
+        }
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.orbyfied.minem.protocol;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Denotes that a table of the {@link Mapping} classes in the package of the annotated class and
+ * its subpackages is generated at compile time by the {@code minem-codegen} processor.
+ *
+ * The generated class is named after the annotated class with the suffix {@code Mappings} and
+ * declares a static {@code create()} method returning the {@link PacketMapping}s, which are
+ * built from the values resolved at compile time so loading them requires no reflection.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface MappingTable {
+
+}
@@ -0,0 +1,43 @@
+package com.orbyfied.minem.protocol;
+
+import com.orbyfied.minem.buffer.UnsafeByteBuf;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
+/**
+ * Reads and writes the data of one packet mapping. The codecs of compiled mappings
+ * are hidden classes generated per mapping, so they call the serialization methods
+ * of the mapping class directly instead of going through a {@link MethodHandle}.
+ *
+ * Checked exceptions thrown by the serialization methods are propagated as-is
+ * without being declared.
+ */
+public interface PacketCodec {
+
+    /** Read the given packet data from the given buffer. */
+    void read(Object data, PacketContainer container, UnsafeByteBuf in);
+
+    /** Write the given packet data to the given buffer. */
+    void write(Object data, PacketContainer container, UnsafeByteBuf out);
+
+    /**
+     * Generate a codec calling the target methods of the given handles directly. The handles
+     * have to be direct handles to either static methods taking the data, container and buffer
+     * or virtual methods on the data class taking the container and buffer.
+     *
+     * @param lookup The lookup with full access to the class declaring the methods.
+     * @param dataClass The data class.
+     * @param read The handle to the read method.
+     * @param write The handle to the write method.
+     * @return The codec.
+     */
+    static PacketCodec compile(MethodHandles.Lookup lookup, Class<?> dataClass, MethodHandle read, MethodHandle write) {
+        try {
+            return PacketCodecs.generate(lookup, read, write);
+        } catch (Throwable t) {
+            throw new IllegalArgumentException("Failed to generate codec for " + dataClass.getName(), t);
+        }
+    }
+
+}
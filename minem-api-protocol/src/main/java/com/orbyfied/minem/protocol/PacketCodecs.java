@@ -0,0 +1,90 @@
+package com.orbyfied.minem.protocol;
+
+import com.orbyfied.minem.buffer.UnsafeByteBuf;
+import com.orbyfied.minem.reflect.ClassFile;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandleInfo;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Generates the {@link PacketCodec} classes of compiled mappings.
+ */
+final class PacketCodecs {
+
+    // The descriptor of the codec methods
+    static final String CODEC_DESCRIPTOR = MethodType.methodType(void.class, Object.class, PacketContainer.class, UnsafeByteBuf.class)
+            .toMethodDescriptorString();
+
+    /**
+     * Generate a codec calling the methods of the given direct handles, defined as
+     * hidden class nestmate of the lookup class.
+     */
+    static PacketCodec generate(MethodHandles.Lookup lookup, MethodHandle read, MethodHandle write) throws Throwable {
+        MethodHandleInfo readInfo = lookup.revealDirect(read);
+        MethodHandleInfo writeInfo = lookup.revealDirect(write);
+        MethodHandles.Lookup hidden = lookup.defineHiddenClass(codecBytes(lookup.lookupClass(), readInfo, writeInfo),
+                true, MethodHandles.Lookup.ClassOption.NESTMATE);
+        return (PacketCodec) hidden.findConstructor(hidden.lookupClass(), MethodType.methodType(void.class))
+                .asType(MethodType.methodType(PacketCodec.class))
+                .invokeExact();
+    }
+
+    // generate the class file of the codec, equivalent to
+    //   final class Host$$Codec implements PacketCodec {
+    //       public void read(Object data, PacketContainer c, UnsafeByteBuf in) { Serializer.read((Data) data, c, in); }
+    //       public void write(Object data, PacketContainer c, UnsafeByteBuf out) { Serializer.write((Data) data, c, out); }
+    //   }
+    // or calling ((Data) data).read(c, in) for virtual methods
+    static byte[] codecBytes(Class<?> host, MethodHandleInfo read, MethodHandleInfo write) {
+        String name = ClassFile.internalName(host) + "$$Codec";
+        ClassFile file = new ClassFile(ClassFile.ACC_FINAL | ClassFile.ACC_SYNTHETIC, name,
+                "java/lang/Object", ClassFile.internalName(PacketCodec.class));
+        ClassFile.ConstantPool pool = file.pool();
+
+        ClassFile.Code init = new ClassFile.Code()
+                .op(0x2A)                                                                              // aload_0
+                .op2(0xB7, pool.methodRef(Object.class, "<init>", MethodType.methodType(void.class)))  // invokespecial Object.<init>
+                .op(0xB1);                                                                             // return
+        file.method(0, "<init>", "()V", 1, 1, init);
+
+        file.method(ClassFile.ACC_PUBLIC, "read", CODEC_DESCRIPTOR, 3, 4, callCode(pool, read));
+        file.method(ClassFile.ACC_PUBLIC, "write", CODEC_DESCRIPTOR, 3, 4, callCode(pool, write));
+        return file.toByteArray();
+    }
+
+    // the code passing the arguments to the given method
+    private static ClassFile.Code callCode(ClassFile.ConstantPool pool, MethodHandleInfo info) {
+        Class<?> owner = info.getDeclaringClass();
+        MethodType type = info.getMethodType();
+        int target = pool.methodRef(owner, info.getName(), type);
+
+        ClassFile.Code code = new ClassFile.Code().op(0x2B); // aload_1
+        switch (info.getReferenceKind()) {
+            case MethodHandleInfo.REF_invokeStatic -> {
+                code.op2(0xC0, pool.classRef(type.parameterType(0)))   // checkcast
+                        .op(0x2C, 0x2D)                                 // aload_2, aload_3
+                        .op2(0xB8, target);                             // invokestatic
+            }
+
+            case MethodHandleInfo.REF_invokeVirtual -> {
+                code.op2(0xC0, pool.classRef(owner))
+                        .op(0x2C, 0x2D)
+                        .op2(0xB6, target);                             // invokevirtual
+            }
+
+            case MethodHandleInfo.REF_invokeInterface -> {
+                code.op2(0xC0, pool.classRef(owner))
+                        .op(0x2C, 0x2D)
+                        .op2(0xB9, target).op(3, 0);                    // invokeinterface
+            }
+
+            default -> throw new IllegalArgumentException("Unsupported method handle kind " +
+                    MethodHandleInfo.referenceKindToString(info.getReferenceKind()));
+        }
+
+        return code.op(0xB1); // return
+    }
+
+}
@@ -43,11 +43,101 @@ public class PacketContainer {
     PacketMapping mapping;       // The packet mapping
 
     Object data;                 // The deserialized data of the packet
+    PacketView view;             // The view of the undecoded packet data, null once materialized
 
+    PacketPool pool;             // The pool this container is returned to after handling, null if not pooled
+
+    /**
+     * Clear all state of this container, including the data
+     * and the pool it belongs to.
+     */
     public void reset() {
-        this.data = null;
-        this.flags = 0;
+        this.protocolVersion = 0;
         this.networkId = 0;
+        this.phase = null;
+        this.flags = 0;
+        this.context = null;
+        this.source = null;
+        this.mapping = null;
+        this.data = null;
+        this.view = null;
+        this.pool = null;
+    }
+
+    /**
+     * Whether this container and its data will be recycled after
+     * the packet has been handled.
+     */
+    public boolean isPooled() {
+        return pool != null;
+    }
+
+    /**
+     * Keep this container and its data from being recycled, this has to be called
+     * by handlers which keep a reference to a received packet beyond handling it.
+     *
+     * @return This.
+     */
+    public PacketContainer retain() {
+        materialize();
+        this.pool = null;
+        return this;
+    }
+
+    /**
+     * Create a new container with the same state as this one, which is never
+     * recycled. The data instance is shared, so this container is retained.
+     *
+     * @return The copy.
+     */
+    public PacketContainer copy() {
+        materialize();
+        PacketContainer copy = new PacketContainer();
+        copy.protocolVersion = this.protocolVersion;
+        copy.networkId = this.networkId;
+        copy.phase = this.phase;
+        copy.flags = this.flags;
+        copy.context = this.context;
+        copy.source = this.source;
+        copy.mapping = this.mapping;
+        copy.data = this.data;
+        retain();
+        return copy;
+    }
+
+    /**
+     * Get the view of the undecoded packet data, if this packet was received
+     * in view mode and its data was not read yet. The view is only valid while
+     * the packet is being handled.
+     *
+     * @return The view or null if the data was read.
+     */
+    public PacketView view() {
+        return view;
+    }
+
+    /**
+     * Read the packet data from the view if it was not read yet, this is
+     * done implicitly when the data is accessed.
+     *
+     * @return This.
+     */
+    public PacketContainer materialize() {
+        PacketView view = this.view;
+        if (view != null) {
+            this.view = null;
+            view.readInto(this);
+        }
+
+        return this;
+    }
+
+    /**
+     * Detach the view from this packet without reading the data, after
+     * which the data of this packet is undefined if it was not materialized.
+     */
+    public void releaseView() {
+        this.view = null;
     }
 
     public PacketContainer source(PacketSource source) {
@@ -64,11 +154,16 @@ public class PacketContainer {
     }
 
     public boolean is(Class<?> klass) {
+        if (view != null) {
+            return klass.isAssignableFrom(mapping.dataClass);
+        }
+
         return klass.isInstance(data);
     }
 
     public PacketContainer withData(Object data) {
         this.data = data;
+        this.view = null;
         return this;
     }
 
@@ -109,13 +204,25 @@ public class PacketContainer {
         return (C) context;
     }
 
+    public Object getData() {
+        return data();
+    }
+
     @SuppressWarnings("unchecked")
     public <T> T data() {
+        if (view != null) {
+            materialize();
+        }
+
         return (T) data;
     }
 
     @SuppressWarnings("unchecked")
     public <D> D data(Class<D> cClass) {
+        if (view != null) {
+            materialize();
+        }
+
         if (!cClass.isInstance(data)) {
             throw new IllegalStateException("Expected packet data of type " + cClass.getName());
         }
@@ -124,7 +231,7 @@ public class PacketContainer {
     }
 
     public boolean isUnknown() {
-        return data instanceof UnknownPacket;
+        return view == null && data instanceof UnknownPacket;
     }
 
 }
@@ -2,6 +2,7 @@ package com.orbyfied.minem.protocol;
 
 import com.orbyfied.minem.reflect.UnsafeFieldDesc;
 import com.orbyfied.minem.buffer.UnsafeByteBuf;
+import com.orbyfied.minem.protocol.wire.Serialized;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -14,6 +15,7 @@ import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.*;
+import java.util.function.Supplier;
 
 /**
  * Represents the mapping of a packet type from a universal representation to
@@ -32,12 +34,15 @@ public class PacketMapping {
     protected String primaryName;                  // The primary name of this mapping
     protected String[] aliases;                    // The aliases of this mapping
     protected Class<?> dataClass;                  // The data class of this mapping
-    protected MethodHandle constructor;            // The constructor to be used when building packet data
+    protected MethodHandle constructor;            // The constructor to be used when building packet data, null for precompiled mappings
     protected Set<Class<?>> dataInterfaces;        // All interfaces/superclasses the data class implements
-    protected Map<String, UnsafeFieldDesc> fields; // All compiled fields on the mapping (excludes transient)
+    protected Map<String, UnsafeFieldDesc> fields; // All compiled fields on the mapping (excludes transient), compiled on first use
     protected Destination destination;             // Where packets are bound
-    protected MethodHandle methodDataRead;         // Fast method handle for method `void read(Object data, Packet packet, ByteBuf buf)`
-    protected MethodHandle methodDataWrite;        // Fast method handle for method `void write(Object data, Packet packet, ByteBuf buf)`
+    protected MethodHandle methodDataRead;         // Fast method handle for method `void read(Object data, Packet packet, ByteBuf buf)`, null for precompiled mappings
+    protected MethodHandle methodDataWrite;        // Fast method handle for method `void write(Object data, Packet packet, ByteBuf buf)`, null for precompiled mappings
+    protected PacketCodec codec;                   // The generated codec calling the read and write methods directly
+    protected PacketSchema schema;                 // The declared wire layout for packet views, null if none is declared
+    protected Supplier<?> dataFactory;             // The factory for packet data replacing the constructor handle, null if not precompiled
 
     public static final int FLAG_STATIC = 1 << 16;
 
@@ -47,22 +52,52 @@ public class PacketMapping {
     }
 
     public void writePacketData(PacketContainer packet, UnsafeByteBuf buf) {
-        try {
-            methodDataWrite.invoke(packet.data, packet, buf);
-        } catch (Throwable ex) {
-            Throwables.sneakyThrow(ex);
-        }
+        codec.write(packet.data, packet, buf);
     }
 
     public void readPacketData(PacketContainer packet, UnsafeByteBuf buf) {
         try {
-            methodDataRead.invoke(packet.data, packet, buf);
+            codec.read(packet.data, packet, buf);
         } catch (Throwable ex) {
             ex.printStackTrace();
-            Throwables.sneakyThrow(ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Create a new default data instance of this mapping.
+     *
+     * @return The data.
+     */
+    public Object createData() {
+        if (dataFactory != null) {
+            return dataFactory.get();
+        }
+
+        try {
+            return constructor.invoke();
+        } catch (Throwable t) {
+            Throwables.sneakyThrow(t);
+            return null;
         }
     }
 
+    /**
+     * Get the compiled public fields of the data class, which are compiled
+     * reflectively on the first call as only packet builders use them.
+     *
+     * @return The fields by name.
+     */
+    public Map<String, UnsafeFieldDesc> getFields() {
+        Map<String, UnsafeFieldDesc> fields = this.fields;
+        if (fields == null) {
+            // the map is immutable so a racing compile is harmless
+            this.fields = fields = compileFields(dataClass);
+        }
+
+        return fields;
+    }
+
     /**
      * Create a new packet container without any data.
      *
@@ -71,13 +106,18 @@ public class PacketMapping {
      */
     public PacketContainer createPacketContainer(ProtocolContext context) {
         PacketContainer packet = new PacketContainer();
+        initPacketContainer(packet, context);
+        return packet;
+    }
+
+    // initialize the state of the given (new or reset) packet container for this mapping
+    void initPacketContainer(PacketContainer packet, ProtocolContext context) {
         packet.context = context;
         packet.flags = this.flags;
         packet.networkId = this.networkId;
         packet.phase = this.phase;
         packet.mapping = this;
         packet.protocolVersion = context.getProtocol().getProtocolNumber();
-        return packet;
     }
 
     /**
@@ -87,12 +127,7 @@ public class PacketMapping {
      * @return The packet container.
      */
     public PacketContainer createPacketContainerWithData(ProtocolContext context) {
-        try {
-            return createPacketContainer(context).withData(constructor.invoke());
-        } catch (Throwable t) {
-            Throwables.sneakyThrow(t);
-            return null;
-        }
+        return createPacketContainer(context).withData(createData());
     }
 
     public static PacketMapping compileMapping(Class<?> klass) {
@@ -115,7 +150,8 @@ public class PacketMapping {
     /**
      * Compile the given class to a packet mapping from the unique data class using:
      * - The {@link Mapping} annotation,
-     * - The methods in the {@link SerializablePacketData} interface and
+     * - The methods in the {@link SerializablePacketData} interface, or the generated
+     *   serializer if the class is {@link Serialized} and
      * - An empty constructor for construction
      */
     public static PacketMapping compileDataMapping(Class<?> klass, Mapping annotation) {
@@ -129,9 +165,18 @@ public class PacketMapping {
             MethodHandles.Lookup lookup = UnsafeUtil.getInternalLookup();
             MethodHandle constructor = lookup.findConstructor(klass, MethodType.methodType(void.class));
 
-            var mType = MethodType.methodType(void.class, PacketContainer.class, UnsafeByteBuf.class);
-            MethodHandle methodRead = lookup.findVirtual(klass, "read", mType);
-            MethodHandle methodWrite = lookup.findVirtual(klass, "write", mType);
+            Class<?> serializer = findSerializerClass(klass);
+            MethodHandle methodRead;
+            MethodHandle methodWrite;
+            if (serializer != klass) {
+                var mType = MethodType.methodType(void.class, klass, PacketContainer.class, UnsafeByteBuf.class);
+                methodRead = lookup.findStatic(serializer, "read", mType);
+                methodWrite = lookup.findStatic(serializer, "write", mType);
+            } else {
+                var mType = MethodType.methodType(void.class, PacketContainer.class, UnsafeByteBuf.class);
+                methodRead = lookup.findVirtual(klass, "read", mType);
+                methodWrite = lookup.findVirtual(klass, "write", mType);
+            }
 
             // find data interfaces
             Set<Class<?>> dataItf = new HashSet<>(List.of(klass.getInterfaces()));
@@ -140,17 +185,6 @@ public class PacketMapping {
                 dataItf.add(klass.getSuperclass());
             }
 
-            // compile fields
-            Map<String, UnsafeFieldDesc> fieldMap = new HashMap<>();
-            for (Field field : klass.getFields()) {
-                int mods = field.getModifiers();
-                if (Modifier.isStatic(mods) || Modifier.isTransient(mods)) {
-                    continue;
-                }
-
-                fieldMap.put(field.getName(), UnsafeFieldDesc.forField(field));
-            }
-
             Destination destination = annotation.dest();
             if (destination == Destination.FIND) {
                 destination = primaryName.toLowerCase().startsWith("serverbound") ?
@@ -160,7 +194,8 @@ public class PacketMapping {
             int networkId = annotation.id();
             return new PacketMapping(klass, PacketRegistry.getRegistryID(networkId, destination), networkId, annotation.phase(), annotation.flags(),
                     primaryName, annotation.aliases(), klass, constructor, dataItf,
-                    fieldMap, destination, methodRead, methodWrite);
+                    null, destination, methodRead, methodWrite, PacketCodec.compile(lookup.in(serializer), klass, methodRead, methodWrite),
+                    findSchema(serializer), null);
         } catch (Exception ex) {
             throw new RuntimeException("Failed to compile mapping " + klass, ex);
         }
@@ -169,7 +204,8 @@ public class PacketMapping {
     /**
      * Compile the given class to a packet mapping from the unique data class using:
      * - The {@link Mapping} annotation,
-     * - The methods in the {@link SerializablePacketData} interface statically implemented and
+     * - The methods in the {@link SerializablePacketData} interface statically implemented,
+     *   by the generated serializer if the class is {@link Serialized} and
      * - An empty constructor on the data class for construction
      */
     public static PacketMapping compileStaticMapping(Class<?> klass, Mapping annotation) {
@@ -194,8 +230,9 @@ public class PacketMapping {
             MethodHandle constructor = lookup.findConstructor(dataClass, MethodType.methodType(void.class));
 
             // find static serialization methods
-            MethodHandle methodRead = lookup.findStatic(klass, "read", MethodType.methodType(void.class, dataClass, PacketContainer.class, UnsafeByteBuf.class));
-            MethodHandle methodWrite = lookup.findStatic(klass, "write", MethodType.methodType(void.class, dataClass, PacketContainer.class, UnsafeByteBuf.class));
+            Class<?> serializer = findSerializerClass(klass);
+            MethodHandle methodRead = lookup.findStatic(serializer, "read", MethodType.methodType(void.class, dataClass, PacketContainer.class, UnsafeByteBuf.class));
+            MethodHandle methodWrite = lookup.findStatic(serializer, "write", MethodType.methodType(void.class, dataClass, PacketContainer.class, UnsafeByteBuf.class));
 
             // find data interfaces on data class
             Set<Class<?>> dataItf = new HashSet<>(List.of(dataClass.getInterfaces()));
@@ -204,17 +241,6 @@ public class PacketMapping {
                 dataItf.add(dataClass.getSuperclass());
             }
 
-            // compile fields on data class
-            Map<String, UnsafeFieldDesc> fieldMap = new HashMap<>();
-            for (Field field : dataClass.getFields()) {
-                int mods = field.getModifiers();
-                if (Modifier.isStatic(mods) || Modifier.isTransient(mods)) {
-                    continue;
-                }
-
-                fieldMap.put(field.getName(), UnsafeFieldDesc.forField(field));
-            }
-
             Destination destination = annotation.dest();
             if (destination == Destination.FIND) {
                 destination = annotation.primaryName().toLowerCase().startsWith("serverbound") ?
@@ -224,12 +250,79 @@ public class PacketMapping {
             int networkId = annotation.id();
             return new PacketMapping(klass, PacketRegistry.getRegistryID(networkId, destination), networkId, annotation.phase(), annotation.flags(),
                     primaryName, annotation.aliases(), dataClass, constructor, dataItf,
-                    fieldMap, destination, methodRead, methodWrite);
+                    null, destination, methodRead, methodWrite, PacketCodec.compile(lookup.in(serializer), dataClass, methodRead, methodWrite),
+                    findSchema(serializer), null);
         } catch (Exception ex) {
             throw new RuntimeException("Failed to compile mapping " + klass, ex);
         }
     }
 
+    /**
+     * Create a mapping from the values resolved at compile time by the generated
+     * {@link MappingTable}s, which does not require any reflection.
+     *
+     * @param declaringClass The mapping class.
+     * @param networkId The network ID.
+     * @param phase The protocol phase.
+     * @param flags The flags.
+     * @param primaryName The resolved primary name.
+     * @param aliases The aliases.
+     * @param destination The resolved destination.
+     * @param dataClass The data class.
+     * @param dataInterfaces The data class, its direct interfaces and superclass.
+     * @param dataFactory The factory creating default data.
+     * @param codec The codec.
+     * @param schema The schema or null if none is declared.
+     * @return The mapping.
+     */
+    public static PacketMapping precompiled(Class<?> declaringClass, int networkId, ProtocolPhase phase, int flags,
+                                            String primaryName, String[] aliases, Destination destination,
+                                            Class<?> dataClass, Set<Class<?>> dataInterfaces, Supplier<?> dataFactory,
+                                            PacketCodec codec, PacketSchema schema) {
+        return new PacketMapping(declaringClass, PacketRegistry.getRegistryID(networkId, destination), networkId, phase, flags,
+                primaryName, aliases, dataClass, null, dataInterfaces,
+                null, destination, null, null, codec,
+                schema, dataFactory);
+    }
+
+    // compile the public instance fields which are not transient on the given class
+    static Map<String, UnsafeFieldDesc> compileFields(Class<?> klass) {
+        Map<String, UnsafeFieldDesc> fieldMap = new HashMap<>();
+        for (Field field : klass.getFields()) {
+            int mods = field.getModifiers();
+            if (Modifier.isStatic(mods) || Modifier.isTransient(mods)) {
+                continue;
+            }
+
+            fieldMap.put(field.getName(), UnsafeFieldDesc.forField(field));
+        }
+
+        return Map.copyOf(fieldMap);
+    }
+
+    // find the class declaring the serialization methods, which is
+    // the generated serializer for @Serialized mapping classes
+    static Class<?> findSerializerClass(Class<?> klass) throws ClassNotFoundException {
+        if (!klass.isAnnotationPresent(Serialized.class)) {
+            return klass;
+        }
+
+        return Class.forName(klass.getName() + "Serializer", true, klass.getClassLoader());
+    }
+
+    // find the schema declared in a static field named SCHEMA on the given class
+    static PacketSchema findSchema(Class<?> klass) throws IllegalAccessException {
+        for (Field field : klass.getDeclaredFields()) {
+            int mods = field.getModifiers();
+            if (Modifier.isStatic(mods) && field.getName().equals("SCHEMA") && field.getType() == PacketSchema.class) {
+                field.setAccessible(true);
+                return (PacketSchema) field.get(null);
+            }
+        }
+
+        return null;
+    }
+
     // todo: compile class with static serializer methods but common
     //  packet data type into a mapping (possible through the read and write
     //  method handles)
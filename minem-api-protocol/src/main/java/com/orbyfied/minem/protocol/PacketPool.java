@@ -0,0 +1,121 @@
+package com.orbyfied.minem.protocol;
+
+/**
+ * A small pool of packet containers with data instances of one {@link PacketMapping},
+ * used to recycle received packets instead of allocating new ones for each.
+ *
+ * Containers are acquired by one thread (the one reading packets) and released by
+ * one thread at a time (the one handling them), which may be a different thread, so
+ * no locking is needed. If the pool is full released containers are dropped, if it is
+ * empty new ones are created.
+ *
+ * The data instances are reused as-is, so reading packet data must overwrite all state
+ * of the data instance or implement {@link RecyclablePacketData} to clear it.
+ */
+public final class PacketPool {
+
+    /**
+     * The default maximum amount of pooled containers.
+     */
+    public static final int DEFAULT_CAPACITY = 8;
+
+    final PacketMapping mapping;
+    final ProtocolContext context;
+
+    /* Ring buffer, taken from by the acquiring thread and added to by the releasing thread */
+    final PacketContainer[] slots;
+    final int mask;
+    volatile long head = 0; // The sequence of the next container to acquire
+    volatile long tail = 0; // The sequence of the next container to release
+
+    /* Metrics */
+    long countCreated = 0;
+    long countReused = 0;
+
+    public PacketPool(PacketMapping mapping, ProtocolContext context, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        this.mapping = mapping;
+        this.context = context;
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+
+        this.slots = new PacketContainer[size];
+        this.mask = size - 1;
+    }
+
+    public PacketMapping getMapping() {
+        return mapping;
+    }
+
+    /**
+     * Take a pooled container with data or create a new one. This may
+     * only be called from the acquiring thread.
+     *
+     * @return The container, initialized like a new one.
+     */
+    public PacketContainer acquire() {
+        long h = head;
+        if (h == tail) {
+            countCreated++;
+            PacketContainer packet = mapping.createPacketContainerWithData(context);
+            packet.pool = this;
+            return packet;
+        }
+
+        int index = (int) h & mask;
+        PacketContainer packet = slots[index];
+        slots[index] = null;
+        head = h + 1;
+
+        countReused++;
+        Object data = packet.data;
+        mapping.initPacketContainer(packet, context);
+        packet.data = data;
+        packet.pool = this;
+        return packet;
+    }
+
+    /**
+     * Return the given container and its data to this pool, unless it was
+     * retained. This may only be called by one thread at a time.
+     *
+     * @param packet The container.
+     */
+    public void release(PacketContainer packet) {
+        if (packet.pool != this) {
+            // retained or not from this pool
+            return;
+        }
+
+        Object data = packet.data;
+        if (data instanceof RecyclablePacketData recyclable) {
+            recyclable.recycle();
+        }
+
+        packet.reset();
+        long t = tail;
+        if (t - head >= slots.length) {
+            // full, drop the container
+            return;
+        }
+
+        packet.data = data;
+        slots[(int) t & mask] = packet;
+        tail = t + 1;
+    }
+
+    public long countCreated() {
+        return countCreated;
+    }
+
+    public long countReused() {
+        return countReused;
+    }
+
+}
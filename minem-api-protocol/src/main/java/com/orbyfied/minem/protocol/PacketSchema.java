@@ -0,0 +1,132 @@
+package com.orbyfied.minem.protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The declared wire layout of a packet, an ordered list of named fields with their
+ * encoding. This is used by {@link PacketView}s to decode single fields directly from
+ * the frame buffer without reading the whole packet.
+ *
+ * The offsets of all fields up to the first one with a variable length are fixed and
+ * computed once here, the offsets after that are resolved per packet when accessed.
+ *
+ * A schema is declared by a mapping class in a static field named {@code SCHEMA}, which
+ * is picked up when the mapping is compiled. The field names should match the properties
+ * of the data class, the values are the raw wire values.
+ */
+public final class PacketSchema {
+
+    /**
+     * The encoding of a field on the wire.
+     */
+    public enum Type {
+        BOOLEAN(1),
+        BYTE(1),
+        SHORT(2),
+        INT(4),
+        LONG(8),
+        FLOAT(4),
+        DOUBLE(8),
+        VAR_INT(-1),
+        VAR_LONG(-1),
+        STRING(-1); // VarInt length prefixed UTF-8
+
+        final int size; // The fixed size in bytes, or -1 if variable
+
+        Type(int size) {
+            this.size = size;
+        }
+
+        public boolean isFixed() {
+            return size >= 0;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    final String[] names;      // The names of the fields
+    final Type[] types;        // The types of the fields
+    final int[] fixedOffsets;  // The offset of each field if fixed, or -1 if it depends on the data
+
+    PacketSchema(String[] names, Type[] types) {
+        this.names = names;
+        this.types = types;
+        this.fixedOffsets = new int[types.length];
+
+        int offset = 0;
+        for (int i = 0; i < types.length; i++) {
+            fixedOffsets[i] = offset;
+            if (offset >= 0) {
+                offset = types[i].isFixed() ? offset + types[i].size : -1;
+            }
+        }
+    }
+
+    public int fieldCount() {
+        return types.length;
+    }
+
+    public String name(int field) {
+        return names[field];
+    }
+
+    public Type type(int field) {
+        return types[field];
+    }
+
+    /**
+     * The offset of the given field from the start of the packet data,
+     * or -1 if it depends on the preceding variable length fields.
+     */
+    public int fixedOffset(int field) {
+        return fixedOffsets[field];
+    }
+
+    /**
+     * Get the index of the field with the given name.
+     *
+     * @param name The name.
+     * @return The index, or -1 if absent.
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Builds a packet schema field by field in wire order.
+     */
+    public static final class Builder {
+
+        final List<String> names = new ArrayList<>();
+        final List<Type> types = new ArrayList<>();
+
+        public Builder field(String name, Type type) {
+            if (names.contains(name)) {
+                throw new IllegalArgumentException("Duplicate field " + name);
+            }
+
+            names.add(name);
+            types.add(type);
+            return this;
+        }
+
+        public PacketSchema build() {
+            return new PacketSchema(names.toArray(new String[0]), types.toArray(new Type[0]));
+        }
+
+    }
+
+}
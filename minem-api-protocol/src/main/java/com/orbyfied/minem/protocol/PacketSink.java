@@ -19,6 +19,14 @@ public interface PacketSink extends PacketChannel {
      */
     void sendSync(PacketContainer packet);
 
+    /**
+     * Queue the given packet to be sent asynchronously.
+     *
+     * @param packet The packet.
+     * @return Whether the packet was queued.
+     */
+    boolean sendAsync(PacketContainer packet);
+
     /**
      * Event: called when a packet will be sunk/sent.
      */
@@ -0,0 +1,254 @@
+package com.orbyfied.minem.protocol;
+
+import com.orbyfied.minem.buffer.UnsafeByteBuf;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A flyweight view of a received packet, which decodes single fields directly from
+ * the frame buffer on access using the {@link PacketSchema} of the mapping. This allows
+ * handlers to inspect a few fields and drop most packets without decoding them.
+ *
+ * A view is reused for every received packet of a connection, so it is only valid while
+ * the packet is being handled. The packet data is read when {@link PacketContainer#materialize()}
+ * is called, which happens implicitly when the data of the container is accessed.
+ */
+public final class PacketView {
+
+    PacketContainer packet; // The container currently bound to this view
+    PacketSchema schema;    // The schema of the bound packet
+    UnsafeByteBuf buf;      // The frame buffer
+    int start;              // The offset of the packet data in the buffer
+    int end;                // The end of the packet data in the buffer
+
+    /* Offsets of the fields after the fixed part, resolved on demand */
+    int[] offsets = new int[8];
+    int resolved;           // The amount of fields with a known offset
+    int resolvedEnd;        // The end offset of the last resolved field
+
+    /**
+     * Bind this view to the packet data at the read index of the given buffer
+     * and attach it to the given container, the previous binding is discarded.
+     *
+     * @param packet The container of the packet.
+     * @param schema The schema of the packet.
+     * @param buf The frame buffer.
+     * @return This.
+     */
+    public PacketView bind(PacketContainer packet, PacketSchema schema, UnsafeByteBuf buf) {
+        if (this.packet != null && this.packet.view == this) {
+            this.packet.view = null;
+        }
+
+        this.packet = packet;
+        this.schema = schema;
+        this.buf = buf;
+        this.start = buf.readIndex();
+        this.end = buf.writeIndex();
+        this.resolved = 0;
+        this.resolvedEnd = start;
+        if (offsets.length < schema.fieldCount()) {
+            offsets = new int[schema.fieldCount()];
+        }
+
+        packet.view = this;
+        return this;
+    }
+
+    public PacketSchema schema() {
+        return schema;
+    }
+
+    public PacketContainer packet() {
+        return packet;
+    }
+
+    /**
+     * Read the whole packet data into the given container, creating
+     * the data instance if it has none.
+     */
+    void readInto(PacketContainer packet) {
+        PacketMapping mapping = packet.mapping;
+        if (packet.data == null) {
+            packet.data = mapping.createData();
+        }
+
+        buf.readIndex(start);
+        mapping.readPacketData(packet, buf);
+    }
+
+    /**
+     * Get the offset of the given field in the buffer.
+     *
+     * @param field The field index.
+     * @return The offset.
+     */
+    public int offset(int field) {
+        int offset = schema.fixedOffsets[field];
+        if (offset >= 0) {
+            return checkBounds(start + offset, field);
+        }
+
+        // resolve the fields up to the requested one
+        while (resolved <= field) {
+            int fieldOffset = schema.fixedOffsets[resolved] >= 0 ? start + schema.fixedOffsets[resolved] : resolvedEnd;
+            offsets[resolved] = fieldOffset;
+            resolvedEnd = fieldOffset + sizeAt(schema.types[resolved], checkBounds(fieldOffset, resolved));
+            resolved++;
+        }
+
+        return checkBounds(offsets[field], field);
+    }
+
+    // get the size in bytes of the field of the given type at the given offset
+    private int sizeAt(PacketSchema.Type type, int offset) {
+        return switch (type) {
+            case VAR_INT, VAR_LONG -> varLength(offset);
+            case STRING -> varLength(offset) + getVarInt0(offset);
+            default -> type.size;
+        };
+    }
+
+    // check the given field at the given offset lies within the packet data, fixed size fields
+    // must fit completely, variable length ones are checked further when they are decoded
+    private int checkBounds(int offset, int field) {
+        int size = schema.types[field].size;
+        if (offset + (size > 0 ? size : 1) > end) {
+            throw new IndexOutOfBoundsException("Field " + schema.names[field] + " at offset " + (offset - start) +
+                    " exceeds packet data of length " + (end - start));
+        }
+
+        return offset;
+    }
+
+    // the amount of bytes of the variable length integer at the given offset
+    private int varLength(int offset) {
+        int length = 1;
+        while ((buf.getByte(offset) & 0x80) != 0) {
+            offset++;
+            length++;
+            if (length > 10 || offset >= end) {
+                throw new IllegalStateException("Malformed variable length integer");
+            }
+        }
+
+        return length;
+    }
+
+    private int getVarInt0(int offset) {
+        int value = 0;
+        int position = 0;
+        byte b;
+        do {
+            b = buf.getByte(offset++);
+            value |= (b & 0x7F) << position;
+            position += 7;
+        } while ((b & 0x80) != 0 && position < 35);
+        return value;
+    }
+
+    private long getVarLong0(int offset) {
+        long value = 0;
+        int position = 0;
+        byte b;
+        do {
+            b = buf.getByte(offset++);
+            value |= (long) (b & 0x7F) << position;
+            position += 7;
+        } while ((b & 0x80) != 0 && position < 70);
+        return value;
+    }
+
+    /* Field Accessors */
+
+    /**
+     * Get the integral value of the given field, which must be a
+     * byte, short, int or var int.
+     */
+    public int getInt(int field) {
+        int offset = offset(field);
+        return switch (schema.types[field]) {
+            case BOOLEAN, BYTE -> buf.getByte(offset);
+            case SHORT -> buf.getShortReversed(offset);
+            case INT -> buf.getIntReversed(offset);
+            case VAR_INT -> getVarInt0(offset);
+            default -> throw new IllegalArgumentException("Field " + schema.names[field] + " of type " + schema.types[field] + " is not an int");
+        };
+    }
+
+    /**
+     * Get the integral value of the given field, which must be a byte,
+     * short, int, long, var int or var long.
+     */
+    public long getLong(int field) {
+        return switch (schema.types[field]) {
+            case LONG -> buf.getLongReversed(offset(field));
+            case VAR_LONG -> getVarLong0(offset(field));
+            default -> getInt(field);
+        };
+    }
+
+    /**
+     * Get the numeric value of the given field, which must be a
+     * float, double or any integral type.
+     */
+    public double getDouble(int field) {
+        return switch (schema.types[field]) {
+            case FLOAT -> buf.getFloatReversed(offset(field));
+            case DOUBLE -> buf.getDoubleReversed(offset(field));
+            default -> getLong(field);
+        };
+    }
+
+    public boolean getBoolean(int field) {
+        return getInt(field) != 0;
+    }
+
+    public String getString(int field) {
+        if (schema.types[field] != PacketSchema.Type.STRING) {
+            throw new IllegalArgumentException("Field " + schema.names[field] + " of type " + schema.types[field] + " is not a string");
+        }
+
+        int offset = offset(field);
+        int length = getVarInt0(offset);
+        offset += varLength(offset);
+        if (offset + length > end) {
+            throw new IndexOutOfBoundsException("String field " + schema.names[field] + " exceeds packet data");
+        }
+
+        byte[] bytes = new byte[length];
+        buf.getBytes(offset, bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int getInt(String name) {
+        return getInt(field(name));
+    }
+
+    public long getLong(String name) {
+        return getLong(field(name));
+    }
+
+    public double getDouble(String name) {
+        return getDouble(field(name));
+    }
+
+    public boolean getBoolean(String name) {
+        return getBoolean(field(name));
+    }
+
+    public String getString(String name) {
+        return getString(field(name));
+    }
+
+    private int field(String name) {
+        int index = schema.indexOf(name);
+        if (index == -1) {
+            throw new IllegalArgumentException("No field named " + name + " in the schema of " + packet.mapping.getPrimaryName());
+        }
+
+        return index;
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.orbyfied.minem.protocol;
+
+import java.util.Map;
+
+/**
+ * An immutable hash index over a fixed set of keys, for which a hash seed and
+ * table size are searched at construction so that every key lands in its own slot,
+ * making lookups a single probe. If no such seed is found, like for keys with equal
+ * hash codes, the remaining collisions are resolved by linear probing.
+ */
+final class PerfectHashIndex<K, V> {
+
+    // The amount of seeds tried per table size
+    static final int SEEDS_PER_SIZE = 32;
+
+    // The maximum table size relative to the key count
+    static final int MAX_LOAD_INVERSE = 8;
+
+    final Object[] keys;
+    final Object[] values;
+    final int mask;
+    final int seed;
+
+    PerfectHashIndex(Map<K, V> map) {
+        int count = map.size();
+        int size = Integer.highestOneBit(Math.max(2, count * 2 - 1)) << 1;
+        int maxSize = Integer.highestOneBit(Math.max(2, count * MAX_LOAD_INVERSE - 1)) << 1;
+
+        Object[] bestKeys = null;
+        Object[] bestValues = null;
+        int bestSeed = 0;
+        int bestDisplacement = Integer.MAX_VALUE;
+        search:
+        for (; size <= maxSize; size <<= 1) {
+            for (int seed = 0; seed < SEEDS_PER_SIZE; seed++) {
+                Object[] keys = new Object[size];
+                Object[] values = new Object[size];
+                int displacement = fill(map, keys, values, seed, size - 1);
+                if (displacement < bestDisplacement) {
+                    bestKeys = keys;
+                    bestValues = values;
+                    bestSeed = seed;
+                    bestDisplacement = displacement;
+                    if (displacement == 0) {
+                        break search;
+                    }
+                }
+            }
+        }
+
+        this.keys = bestKeys;
+        this.values = bestValues;
+        this.mask = bestKeys.length - 1;
+        this.seed = bestSeed;
+    }
+
+    // insert all entries with linear probing, returns the total displacement
+    private static int fill(Map<?, ?> map, Object[] keys, Object[] values, int seed, int mask) {
+        int displacement = 0;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            int slot = slot(entry.getKey().hashCode(), seed, mask);
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+                displacement++;
+            }
+
+            keys[slot] = entry.getKey();
+            values[slot] = entry.getValue();
+        }
+
+        return displacement;
+    }
+
+    static int slot(int hash, int seed, int mask) {
+        int h = (hash ^ seed) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Get the value for the given key.
+     *
+     * @param key The key.
+     * @return The value or null if absent.
+     */
+    @SuppressWarnings("unchecked")
+    V get(Object key) {
+        if (key == null) {
+            return null;
+        }
+
+        int slot = slot(key.hashCode(), seed, mask);
+        Object k;
+        while ((k = keys[slot]) != null) {
+            if (k == key || k.equals(key)) {
+                return (V) values[slot];
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return null;
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.orbyfied.minem.protocol;
 
 import com.orbyfied.minem.event.Chain;
+import com.orbyfied.minem.event.Placement;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -48,6 +49,50 @@ public class Protocol implements PacketRegistry {
     // The cached key mappings
     final Map<Object, Set<PacketMapping>> matchCache = new HashMap<>();
 
+    // The immutable lookups if this protocol is frozen
+    FrozenPacketIndex frozenIndex;
+
+    /**
+     * Create an immutable snapshot of this protocol. All phase specs are frozen and the
+     * lookups by name and data class and the results of {@link #match(Object)} for every
+     * key which can match a mapping are precomputed, so the snapshot can be shared by any
+     * amount of clients and read concurrently without synchronization or mutation. It must
+     * be published safely, for example through a final field.
+     *
+     * The default packet handlers of this protocol are added to the handlers of the
+     * snapshot, the handler chains themselves remain mutable.
+     *
+     * @return The frozen protocol, or this if already frozen.
+     */
+    public Protocol freeze() {
+        if (frozenIndex != null) {
+            return this;
+        }
+
+        Protocol copy = new Protocol(protocolNumber);
+        for (ProtocolPhaseSpecification spec : specsByPhaseOrdinal) {
+            if (spec != null) {
+                copy.registerPhaseSpec(spec.freeze());
+            }
+        }
+
+        copy.resources.putAll(resources);
+        copy.packetHandlers.add(packetHandlers, Placement.LAST);
+        copy.frozenIndex = new FrozenPacketIndex(copy, false);
+        copy.matchCache.clear();
+        return copy;
+    }
+
+    public boolean isFrozen() {
+        return frozenIndex != null;
+    }
+
+    private void checkMutable() {
+        if (frozenIndex != null) {
+            throw new UnsupportedOperationException("Protocol " + protocolNumber + " is frozen");
+        }
+    }
+
     public Protocol modifyHandlers(Consumer<Chain<PacketHandler>> consumer) {
         consumer.accept(packetHandlers);
         return this;
@@ -76,6 +121,7 @@ public class Protocol implements PacketRegistry {
      * @return This.
      */
     public Protocol registerPhaseSpec(ProtocolPhaseSpecification spec) {
+        checkMutable();
         int ord = spec.getPhase().ordinal();
         if (ord >= specsByPhaseOrdinal.length) {
             // expand array
@@ -140,6 +186,7 @@ public class Protocol implements PacketRegistry {
      * Register the given protocol resource with the given key.
      */
     public <T> Protocol with(ProtocolResource<T> key, T value) {
+        checkMutable();
         resources.put(key, value);
         return this;
     }
@@ -180,6 +227,10 @@ public class Protocol implements PacketRegistry {
 
     @Override
     public PacketMapping getPacketMapping(String name) {
+        if (frozenIndex != null) {
+            return frozenIndex.get(name);
+        }
+
         for (PacketRegistry registry : allSpecs) {
             PacketMapping mapping = registry.getPacketMapping(name);
             if (mapping != null) {
@@ -192,6 +243,10 @@ public class Protocol implements PacketRegistry {
 
     @Override
     public PacketMapping getPacketMapping(Class<?> klass) {
+        if (frozenIndex != null) {
+            return frozenIndex.get(klass);
+        }
+
         for (PacketRegistry registry : allSpecs) {
             PacketMapping mapping = registry.getPacketMapping(klass);
             if (mapping != null) {
@@ -203,6 +258,7 @@ public class Protocol implements PacketRegistry {
     }
 
     public Protocol registerPacketMapping(PacketMapping mapping) {
+        checkMutable();
         getOrCreatePhaseSpec(mapping.getPhase())
                 .registerPacketMapping(mapping);
         return this;
@@ -236,6 +292,11 @@ public class Protocol implements PacketRegistry {
 
     @Override
     public void match(Collection<PacketMapping> list, Object key) {
+        if (frozenIndex != null) {
+            frozenIndex.match(list, key);
+            return;
+        }
+
         Set<PacketMapping> list1 = matchCache.get(key);
         if (list1 == null) {
             list1 = new HashSet<>();
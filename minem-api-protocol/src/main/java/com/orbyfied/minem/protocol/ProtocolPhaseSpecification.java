@@ -26,11 +26,67 @@ public class ProtocolPhaseSpecification extends MutablePacketRegistry {
      */
     final Chain<PacketHandler> packetHandlers = new Chain<>(PacketHandler.class);
 
+    /**
+     * The immutable lookups if this spec is frozen, see {@link #freeze()}.
+     */
+    @Getter(AccessLevel.NONE)
+    FrozenPacketIndex frozenIndex;
+
+    /**
+     * Create an immutable snapshot of this spec, which answers all lookups from
+     * arrays and perfect hash indices and can be read concurrently without
+     * synchronization. The default packet handlers of this spec are added to the
+     * handlers of the snapshot.
+     *
+     * @return The frozen spec, or this if already frozen.
+     */
+    public ProtocolPhaseSpecification freeze() {
+        if (frozenIndex != null) {
+            return this;
+        }
+
+        ProtocolPhaseSpecification copy = new ProtocolPhaseSpecification(phase);
+        copy.registerPacketMappings(mappingList);
+        copy.packetHandlers.add(packetHandlers, Placement.LAST);
+        copy.frozenIndex = new FrozenPacketIndex(copy, true);
+        return copy;
+    }
+
+    public boolean isFrozen() {
+        return frozenIndex != null;
+    }
+
+    @Override
+    public PacketMapping getPacketMapping(int id) {
+        return frozenIndex != null ? frozenIndex.get(id) : super.getPacketMapping(id);
+    }
+
+    @Override
+    public PacketMapping getPacketMapping(String name) {
+        return frozenIndex != null ? frozenIndex.get(name) : super.getPacketMapping(name);
+    }
+
+    @Override
+    public PacketMapping getPacketMapping(Class<?> klass) {
+        return frozenIndex != null ? frozenIndex.get(klass) : super.getPacketMapping(klass);
+    }
+
+    @Override
+    public void match(Collection<PacketMapping> list, Object key) {
+        if (frozenIndex != null) {
+            frozenIndex.match(list, key);
+            return;
+        }
+
+        super.match(list, key);
+    }
+
     /**
      * Append all registrations from the given mapping to this one.
      */
     @SuppressWarnings("unchecked")
     public void merge(ProtocolPhaseSpecification other) {
+        checkMutable();
         for (PacketMapping mapping : other.allPacketMappings()) {
             this.registerPacketMapping(mapping);
         }
@@ -40,6 +96,7 @@ public class ProtocolPhaseSpecification extends MutablePacketRegistry {
 
     @Override
     public ProtocolPhaseSpecification registerPacketMapping(PacketMapping mapping) {
+        checkMutable();
         return (ProtocolPhaseSpecification) super.registerPacketMapping(mapping);
     }
 
@@ -53,4 +110,10 @@ public class ProtocolPhaseSpecification extends MutablePacketRegistry {
         return (ProtocolPhaseSpecification) super.registerPacketMappings(mappings);
     }
 
+    private void checkMutable() {
+        if (frozenIndex != null) {
+            throw new UnsupportedOperationException("Phase spec " + phase + " is frozen");
+        }
+    }
+
 }
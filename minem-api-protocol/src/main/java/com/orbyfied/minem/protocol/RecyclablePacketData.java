@@ -0,0 +1,12 @@
+package com.orbyfied.minem.protocol;
+
+/**
+ * Packet data which holds state that reading does not fully overwrite, like
+ * collections, and has to be cleared before the instance is reused by a {@link PacketPool}.
+ */
+public interface RecyclablePacketData {
+
+    /** Clear the state of this data instance before it is reused. */
+    void recycle();
+
+}
@@ -26,10 +26,10 @@ public class UnknownPacket implements SerializablePacketData {
 
     public static PacketMapping CLIENTBOUND_MAPPING = new PacketMapping(UnknownPacket.class, -1, -1, ProtocolPhases.UNDEFINED, 0,
             "ClientboundUnknown", new String[0], UnknownPacket.class, CONSTRUCTOR, Set.of(), Collections.emptyMap(), Destination.CLIENTBOUND,
-            null, null);
+            null, null, null, null, null);
     public static PacketMapping SERVERBOUND_MAPPING = new PacketMapping(UnknownPacket.class, -1, -1, ProtocolPhases.UNDEFINED, 0,
             "ServerboundUnknown", new String[0], UnknownPacket.class, CONSTRUCTOR, Set.of(), Collections.emptyMap(), Destination.SERVERBOUND,
-            null, null);
+            null, null, null, null, null);
 
     /**
      * The data buffer.
@@ -0,0 +1,16 @@
+package com.orbyfied.minem.protocol.wire;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Encodes a {@code float} or {@code double} field in degrees
+ * as a byte in steps of 1/256 of a full turn.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface Angle {
+
+}
@@ -0,0 +1,20 @@
+package com.orbyfied.minem.protocol.wire;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Encodes a {@code float} or {@code double} field as an integer of the given
+ * size in units of {@code 1 / value}, like entity positions (32) or entity
+ * velocities (8000).
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface FixedPoint {
+
+    double value();        // The amount of units per 1
+    int bytes() default 4; // The size of the integer, 1, 2 or 4 bytes
+
+}
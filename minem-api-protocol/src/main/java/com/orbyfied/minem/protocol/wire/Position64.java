@@ -0,0 +1,17 @@
+package com.orbyfied.minem.protocol.wire;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Encodes a {@link com.orbyfied.minem.math.Vec3i} field as a block position packed
+ * into a long, with 26 bits for X, 12 bits for Y and 26 bits for Z. The vector held
+ * by the data is reused when reading, if any.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface Position64 {
+
+}
@@ -0,0 +1,25 @@
+package com.orbyfied.minem.protocol.wire;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Denotes that the serializer of a {@link com.orbyfied.minem.protocol.Mapping} class is generated
+ * at compile time from its field declarations, in wire order, by the {@code minem-codegen} processor.
+ *
+ * The generated class is named after the mapping class with the suffix {@code Serializer} and
+ * declares the static {@code read} and {@code write} methods and the {@code SCHEMA} of the mapping,
+ * which are used when the mapping is compiled.
+ *
+ * For static mappings the fields declare the wire layout of the properties of the data class, which
+ * are accessed through their getters and setters. For data mappings the fields are the data itself.
+ * The type of each field is the type of the property, the encoding on the wire is the natural one for
+ * the type in network byte order unless a wire type annotation like {@link VarInt} is present.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Serialized {
+
+}
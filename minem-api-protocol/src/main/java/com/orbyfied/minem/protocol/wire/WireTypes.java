@@ -0,0 +1,49 @@
+package com.orbyfied.minem.protocol.wire;
+
+import com.orbyfied.minem.buffer.UnsafeByteBuf;
+import com.orbyfied.minem.math.Vec3i;
+
+/**
+ * Encoding of the wire types which are more than a single buffer operation,
+ * used by the generated serializers.
+ */
+public final class WireTypes {
+
+    private WireTypes() { }
+
+    /* Angles */
+
+    public static float readAngle(UnsafeByteBuf in) {
+        return in.readByte() * (360F / 256F);
+    }
+
+    public static void writeAngle(UnsafeByteBuf out, double degrees) {
+        out.writeByte((byte) (int) (degrees * (256F / 360F)));
+    }
+
+    /* Block Positions */
+
+    /**
+     * Read a packed block position into the given vector.
+     *
+     * @param in The buffer.
+     * @param dst The vector to reuse, or null to create one.
+     * @return The vector.
+     */
+    public static Vec3i readPosition64(UnsafeByteBuf in, Vec3i dst) {
+        long packed = in.readLongReversed();
+        if (dst == null) {
+            dst = new Vec3i();
+        }
+
+        dst.x = (int) (packed >> 38);
+        dst.y = (int) (packed << 26 >> 52);
+        dst.z = (int) (packed << 38 >> 38);
+        return dst;
+    }
+
+    public static void writePosition64(UnsafeByteBuf out, Vec3i pos) {
+        out.writeLongReversed(((long) (pos.x & 0x3FFFFFF) << 38) | ((long) (pos.y & 0xFFF) << 26) | (pos.z & 0x3FFFFFF));
+    }
+
+}
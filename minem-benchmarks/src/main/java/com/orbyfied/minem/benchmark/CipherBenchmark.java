@@ -0,0 +1,112 @@
+package com.orbyfied.minem.benchmark;
+
+import com.orbyfied.minem.buffer.UnsafeByteBuf;
+import com.orbyfied.minem.network.CipherStage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares encrypting and decrypting frames through the {@link CipherOutputStream} and
+ * {@link CipherInputStream} wrappers with transforming them in place on a direct buffer
+ * through a {@link CipherStage}.
+ *
+ * Run through {@code gradlew :minem-benchmarks:jmh -PjmhArgs=CipherBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CipherBenchmark {
+
+    @Param({ "16", "256", "4096" })
+    int frameSize;
+
+    byte[] frameBytes;    // The frame data
+    byte[] readBytes;     // The buffer read into by the stream path
+    UnsafeByteBuf buffer; // The direct buffer transformed in place
+
+    Cipher streamEncryption;
+    Cipher streamDecryption;
+    CipherStage encryption;
+    CipherStage decryption;
+
+    // Discards all written bytes, like a socket stream would consume them
+    final OutputStream sink = new OutputStream() {
+        @Override public void write(int b) { }
+        @Override public void write(byte[] b, int off, int len) { }
+    };
+
+    @Setup
+    public void setup() throws Exception {
+        frameBytes = new byte[frameSize];
+        ThreadLocalRandom.current().nextBytes(frameBytes);
+        readBytes = new byte[frameSize];
+
+        buffer = UnsafeByteBuf.createDirect(frameSize);
+        buffer.writeBytes(frameBytes, 0, frameSize);
+
+        byte[] key = new byte[16];
+        ThreadLocalRandom.current().nextBytes(key);
+        streamEncryption = cipher(Cipher.ENCRYPT_MODE, key);
+        streamDecryption = cipher(Cipher.DECRYPT_MODE, key);
+        encryption = new CipherStage(cipher(Cipher.ENCRYPT_MODE, key));
+        decryption = new CipherStage(cipher(Cipher.DECRYPT_MODE, key));
+    }
+
+    @TearDown
+    public void tearDown() {
+        buffer.free();
+    }
+
+    // create an AES/CFB8 cipher like the one used by the protocol
+    static Cipher cipher(int mode, byte[] key) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/CFB8/NoPadding");
+        cipher.init(mode, new SecretKeySpec(key, "AES"), new IvParameterSpec(key));
+        return cipher;
+    }
+
+    @Benchmark
+    public void encryptStream() throws Exception {
+        // the stream is created once per frame to not buffer across invocations
+        CipherOutputStream stream = new CipherOutputStream(sink, streamEncryption);
+        stream.write(frameBytes, 0, frameSize);
+        stream.flush();
+    }
+
+    @Benchmark
+    public void encryptInPlace(Blackhole blackhole) {
+        encryption.apply(buffer, 0, frameSize);
+        blackhole.consume(buffer);
+    }
+
+    @Benchmark
+    public int decryptStream() throws Exception {
+        CipherInputStream stream = new CipherInputStream(new ByteArrayInputStream(frameBytes), streamDecryption);
+        int total = 0;
+        int read;
+        while (total < frameSize && (read = stream.read(readBytes, total, frameSize - total)) > 0) {
+            total += read;
+        }
+
+        return total;
+    }
+
+    @Benchmark
+    public void decryptInPlace(Blackhole blackhole) {
+        decryption.apply(buffer, 0, frameSize);
+        blackhole.consume(buffer);
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.orbyfied.minem.benchmark;
+
+import com.orbyfied.minem.buffer.Memory;
+import com.orbyfied.minem.buffer.UnsafeByteBuf;
+import com.orbyfied.minem.network.CompressionCodec;
+import com.orbyfied.minem.network.ZlibCompressionCodec;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compares compressing and decompressing packet data with a {@link ZlibCompressionCodec}
+ * on direct buffers against the previous approach of one lock-guarded {@link Deflater}
+ * per connection writing into a growable heap array.
+ *
+ * The packet sizes start at the 256 byte compression threshold used by most servers,
+ * including Hypixel. Run with the gc profiler to compare allocations and with multiple
+ * threads to compare contention, for example
+ * {@code gradlew :minem-benchmarks:jmh -PjmhArgs="CompressionBenchmark -prof gc -t 4"}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+    // The compression threshold to benchmark at
+    static final int THRESHOLD = 256;
+
+    /**
+     * The state of the previous approach, shared by all threads
+     * like the deflater was shared by all writers of a connection.
+     */
+    @State(Scope.Benchmark)
+    public static class SharedDeflater {
+        final Deflater deflater = new Deflater(2);
+        byte[] compressedBytes = new byte[1024 * 16];
+
+        @TearDown
+        public void tearDown() {
+            deflater.end();
+        }
+    }
+
+    @Param({ "256", "1024", "8192" })
+    int packetSize;
+
+    UnsafeByteBuf packetBuffer;     // The uncompressed packet data
+    UnsafeByteBuf compressedBuffer; // The compressed packet data
+    UnsafeByteBuf outputBuffer;     // The buffer compressed or decompressed into
+    byte[] compressedBytes;         // The compressed packet data as an array
+    byte[] inflatedBytes;           // The array decompressed into by the previous approach
+
+    CompressionCodec codec;
+    Inflater inflater;
+
+    @Setup
+    public void setup() throws Exception {
+        if (packetSize < THRESHOLD) {
+            throw new IllegalArgumentException("Packet size below the compression threshold");
+        }
+
+        byte[] data = packetData(packetSize);
+        packetBuffer = UnsafeByteBuf.createDirect(packetSize);
+        packetBuffer.writeBytes(data);
+
+        codec = CompressionCodec.ZLIB.create(2);
+        inflater = new Inflater();
+
+        compressedBuffer = UnsafeByteBuf.createDirect(packetSize);
+        codec.compress(packetBuffer, 0, packetSize, compressedBuffer);
+        compressedBytes = new byte[compressedBuffer.remainingWritten()];
+        compressedBuffer.getBytes(0, compressedBytes, 0, compressedBytes.length);
+
+        outputBuffer = UnsafeByteBuf.createDirect(packetSize);
+        inflatedBytes = new byte[1024];
+    }
+
+    @TearDown
+    public void tearDown() {
+        codec.release();
+        inflater.end();
+        packetBuffer.free();
+        compressedBuffer.free();
+        outputBuffer.free();
+    }
+
+    // generate packet-like data, small numbers, repeated ids and some text
+    static byte[] packetData(int size) {
+        Random random = new Random(size);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = switch (random.nextInt(4)) {
+                case 0 -> 0;
+                case 1 -> (byte) random.nextInt(16);
+                case 2 -> (byte) ('a' + random.nextInt(26));
+                default -> (byte) (i & 0x3F);
+            };
+        }
+
+        return data;
+    }
+
+    @Benchmark
+    public int compressLocked(SharedDeflater shared) {
+        synchronized (shared.deflater) {
+            shared.compressedBytes = Memory.ensureByteArrayCapacity(shared.compressedBytes, packetSize * 2);
+
+            Deflater deflater = shared.deflater;
+            deflater.reset();
+            deflater.setInput(packetBuffer.nioReference(0, packetSize));
+            deflater.finish();
+            int size = 0;
+            while (!deflater.finished()) {
+                size += deflater.deflate(shared.compressedBytes, size, shared.compressedBytes.length - size);
+            }
+
+            return size;
+        }
+    }
+
+    @Benchmark
+    public int compressCodec() throws Exception {
+        outputBuffer.reset();
+        return codec.compress(packetBuffer, 0, packetSize, outputBuffer);
+    }
+
+    @Benchmark
+    public void decompressHeap(Blackhole blackhole) throws Exception {
+        // the previous read path inflated from and into growable arrays
+        inflatedBytes = Memory.ensureByteArrayCapacity(inflatedBytes, packetSize);
+        inflater.reset();
+        inflater.setInput(compressedBytes);
+        int inflated = inflater.inflate(inflatedBytes, 0, packetSize);
+
+        outputBuffer.reset();
+        outputBuffer.writeBytes(inflatedBytes, 0, inflated);
+        blackhole.consume(outputBuffer);
+    }
+
+    @Benchmark
+    public void decompressCodec(Blackhole blackhole) throws Exception {
+        outputBuffer.reset();
+        codec.decompress(compressedBuffer, 0, compressedBuffer.remainingWritten(), outputBuffer, packetSize);
+        blackhole.consume(outputBuffer);
+    }
+
+}
@@ -0,0 +1,215 @@
+package com.orbyfied.minem.benchmark;
+
+import com.orbyfied.minem.MinecraftClient;
+import com.orbyfied.minem.client.ThreadMode;
+import com.orbyfied.minem.network.MultiplexedNetworkManager;
+import com.orbyfied.minem.network.NetworkManager;
+import com.orbyfied.minem.protocol47.Protocol47;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the OS thread count and resident memory of a process scale with
+ * the amount of idle (connected, logging in) clients for each threading setup.
+ *
+ * Without arguments every setup and client count is measured in a fresh JVM, with
+ * the arguments {@code <setup> <clients>} a single measurement is performed in this JVM.
+ * Run through {@code gradlew :minem-benchmarks:idleClientsBenchmark}.
+ */
+public class IdleClientsBenchmark {
+
+    static final int[] CLIENT_COUNTS = { 100, 500, 1000, 2500, 5000 };
+
+    /**
+     * The threading setups to compare.
+     */
+    enum Setup {
+        PLATFORM,    // blocking connections with platform threads
+        VIRTUAL,     // blocking connections with virtual threads
+        MULTIPLEXED  // multiplexed connections, platform tick and update threads
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 2) {
+            measure(Setup.valueOf(args[0].toUpperCase()), Integer.parseInt(args[1]));
+            return;
+        }
+
+        System.out.printf("%-12s %8s %10s %12s %14s%n", "setup", "clients", "threads", "rss (MiB)", "rss/client (KiB)");
+        for (Setup setup : Setup.values()) {
+            if (setup == Setup.VIRTUAL && !ThreadMode.VIRTUAL.isSupported()) {
+                System.out.println("skipping VIRTUAL, not supported by this runtime (Java " + Runtime.version().feature() + ")");
+                continue;
+            }
+
+            for (int count : CLIENT_COUNTS) {
+                String result = fork(setup, count);
+                if (result == null) {
+                    System.out.printf("%-12s %8d %10s%n", setup, count, "failed");
+                    continue;
+                }
+
+                String[] parts = result.split(" ");
+                long threads = Long.parseLong(parts[0]);
+                long rssKb = Long.parseLong(parts[1]);
+                long baseRssKb = Long.parseLong(parts[2]);
+                System.out.printf("%-12s %8d %10d %12.1f %14.1f%n", setup, count, threads,
+                        rssKb / 1024.0, (rssKb - baseRssKb) / (double) count);
+            }
+        }
+    }
+
+    // run the measurement in a new JVM and return the result line
+    private static String fork(Setup setup, int count) throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-Xss512k", "-cp", System.getProperty("java.class.path"),
+                IdleClientsBenchmark.class.getName(), setup.name(), String.valueOf(count))
+                .redirectErrorStream(true)
+                .start();
+
+        String result = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("RESULT ")) {
+                    result = line.substring("RESULT ".length());
+                } else {
+                    System.err.println("  [" + setup + " " + count + "] " + line);
+                }
+            }
+        }
+
+        process.waitFor(5, TimeUnit.MINUTES);
+        return result;
+    }
+
+    // connect the given amount of clients and print the thread count and rss once settled
+    private static void measure(Setup setup, int count) throws Exception {
+        InetSocketAddress address = startIdleServer();
+        NetworkManager networkManager = setup == Setup.MULTIPLEXED ? MultiplexedNetworkManager.create() : new NetworkManager();
+        ThreadMode threadMode = setup == Setup.VIRTUAL ? ThreadMode.VIRTUAL : ThreadMode.PLATFORM;
+
+        settle();
+        long baseRssKb = rssKb();
+
+        List<MinecraftClient> clients = new ArrayList<>();
+        List<CompletableFuture<MinecraftClient>> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            MinecraftClient client = MinecraftClient.create()
+                    .threadMode(threadMode)
+                    .networkManager(networkManager)
+                    .protocol(Protocol47.PROTOCOL);
+            clients.add(client);
+            batch.add(client.connect(address));
+
+            // connect in batches to not overflow the accept backlog
+            if (batch.size() == 100) {
+                CompletableFuture.allOf(batch.toArray(new CompletableFuture[0])).get(1, TimeUnit.MINUTES);
+                batch.clear();
+            }
+        }
+
+        CompletableFuture.allOf(batch.toArray(new CompletableFuture[0])).get(1, TimeUnit.MINUTES);
+
+        settle();
+        System.out.println("RESULT " + threadCount() + " " + rssKb() + " " + baseRssKb);
+        System.exit(0);
+    }
+
+    // let the clients reach their idle state and collect the garbage
+    private static void settle() throws InterruptedException {
+        Thread.sleep(3000);
+        System.gc();
+        Thread.sleep(500);
+    }
+
+    // start a server on an ephemeral port which accepts connections and discards all input
+    private static InetSocketAddress startIdleServer() throws Exception {
+        Selector selector = Selector.open();
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        Thread thread = new Thread(() -> {
+            ByteBuffer discard = ByteBuffer.allocateDirect(1024 * 8);
+            try {
+                while (true) {
+                    selector.select(key -> {
+                        try {
+                            if (key.isAcceptable()) {
+                                SocketChannel channel;
+                                while ((channel = server.accept()) != null) {
+                                    channel.configureBlocking(false);
+                                    channel.register(selector, SelectionKey.OP_READ);
+                                }
+                            } else if (key.isReadable()) {
+                                discard.clear();
+                                if (((SocketChannel) key.channel()).read(discard) == -1) {
+                                    key.channel().close();
+                                }
+                            }
+                        } catch (Exception ex) {
+                            key.cancel();
+                        }
+                    });
+                }
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }, "IdleServer");
+        thread.setDaemon(true);
+        thread.start();
+
+        return (InetSocketAddress) server.getLocalAddress();
+    }
+
+    // the amount of OS threads in this process
+    private static long threadCount() throws Exception {
+        Long threads = procStatus("Threads:");
+        return threads != null ? threads : ManagementFactory.getThreadMXBean().getThreadCount();
+    }
+
+    // the resident set size of this process in KiB, or the used heap if unavailable
+    private static long rssKb() throws Exception {
+        Long rss = procStatus("VmRSS:");
+        if (rss != null) {
+            return rss;
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        return (runtime.totalMemory() - runtime.freeMemory()) / 1024;
+    }
+
+    // read a numeric value from /proc/self/status, null if not on Linux
+    private static Long procStatus(String key) throws Exception {
+        Path path = Path.of("/proc/self/status");
+        if (!Files.exists(path)) {
+            return null;
+        }
+
+        for (String line : Files.readAllLines(path)) {
+            if (line.startsWith(key)) {
+                return Long.parseLong(line.substring(key.length()).trim().split("\\s+")[0]);
+            }
+        }
+
+        return null;
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.orbyfied.minem.benchmark;
+
+import com.orbyfied.minem.buffer.UnsafeByteBuf;
+import com.orbyfied.minem.protocol.PacketContainer;
+import com.orbyfied.minem.protocol.PacketMapping;
+import com.orbyfied.minem.protocol.PacketCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading and writing packet data through the {@link MethodHandle}s of a mapping
+ * with the generated {@link PacketCodec}, for a few mappings of protocol 47.
+ *
+ * Run through {@code gradlew :minem-benchmarks:jmh -PjmhArgs=PacketCodecBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketCodecBenchmark {
+
+    @Param({
+            "play.ClientboundEntityVelocityPacket47",
+            "play.ClientboundPositionAndLookPacket47",
+            "play.ClientboundPlayerAbilitiesPacket47",
+            "play.ServerboundPlayerPositionAndLookPacket47"
+    })
+    String mappingClass;
+
+    PacketMapping mapping;
+    MethodHandle methodRead;  // The handle invoked by the old read path
+    MethodHandle methodWrite; // The handle invoked by the old write path
+    PacketCodec codec;
+
+    PacketContainer packet;
+    UnsafeByteBuf in;  // Zeroed packet data, which is valid for all benchmarked mappings
+    UnsafeByteBuf out;
+
+    @Setup
+    public void setup() throws Exception {
+        mapping = PacketMapping.compileMapping(Class.forName("com.orbyfied.minem.protocol47." + mappingClass));
+        methodRead = mapping.getMethodDataRead();
+        methodWrite = mapping.getMethodDataWrite();
+        codec = mapping.getCodec();
+
+        packet = new PacketContainer().withData(mapping.createData());
+
+        in = UnsafeByteBuf.createDirect(64);
+        in.writeBytes(new byte[64], 0, 64);
+        out = UnsafeByteBuf.createDirect(64);
+    }
+
+    @TearDown
+    public void tearDown() {
+        in.free();
+        out.free();
+    }
+
+    @Benchmark
+    public Object readMethodHandle() throws Throwable {
+        in.readIndex(0);
+        methodRead.invoke(packet.getData(), packet, in);
+        return packet.getData();
+    }
+
+    @Benchmark
+    public Object readCodec() {
+        in.readIndex(0);
+        codec.read(packet.getData(), packet, in);
+        return packet.getData();
+    }
+
+    @Benchmark
+    public int writeMethodHandle() throws Throwable {
+        out.writeIndex(0);
+        methodWrite.invoke(packet.getData(), packet, out);
+        return out.writeIndex();
+    }
+
+    @Benchmark
+    public int writeCodec() {
+        out.writeIndex(0);
+        codec.write(packet.getData(), packet, out);
+        return out.writeIndex();
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.orbyfied.minem.benchmark;
+
+import com.orbyfied.minem.ClientState;
+import com.orbyfied.minem.MinecraftClient;
+import com.orbyfied.minem.protocol.CommonPacketImplementations;
+import com.orbyfied.minem.protocol.PacketUtil;
+import com.orbyfied.minem.protocol.Protocol;
+import com.orbyfied.minem.protocol47.Protocol47;
+import com.orbyfied.minem.protocol47.Protocol47Mappings;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from the start of a fresh JVM until the {@code ServerboundHandshake}
+ * of a client has been sent, when protocol 47 is loaded from the generated mapping table
+ * and when all of its mappings are compiled reflectively.
+ *
+ * Without arguments every mode is measured in a number of fresh JVMs, with the arguments
+ * {@code <mode> <port>} a single measurement is performed in this JVM, connecting to the given
+ * port on the loopback address. Run through {@code gradlew :minem-benchmarks:startupBenchmark}.
+ */
+public class StartupBenchmark {
+
+    static final int RUNS = 10;
+
+    /**
+     * How the protocol is loaded.
+     */
+    enum Mode {
+        TABLE,     // the generated mapping table
+        REFLECTIVE // compiling the mapping classes reflectively
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 2) {
+            measure(Mode.valueOf(args[0].toUpperCase()), Integer.parseInt(args[1]));
+            return;
+        }
+
+        int port = startDiscardServer();
+        System.out.printf("%-12s %6s %10s %12s %10s%n", "mode", "runs", "min (ms)", "median (ms)", "max (ms)");
+        for (Mode mode : Mode.values()) {
+            List<Long> times = new ArrayList<>();
+            for (int i = 0; i < RUNS; i++) {
+                String result = fork(mode, port);
+                if (result != null) {
+                    times.add(Long.parseLong(result));
+                }
+            }
+
+            if (times.isEmpty()) {
+                System.out.printf("%-12s %6d %10s%n", mode, 0, "failed");
+                continue;
+            }
+
+            Collections.sort(times);
+            System.out.printf("%-12s %6d %10d %12d %10d%n", mode, times.size(),
+                    times.get(0), times.get(times.size() / 2), times.get(times.size() - 1));
+        }
+    }
+
+    // run the measurement in a new JVM and return the result line
+    private static String fork(Mode mode, int port) throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                StartupBenchmark.class.getName(), mode.name(), String.valueOf(port))
+                .redirectErrorStream(true)
+                .start();
+
+        String result = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("RESULT ")) {
+                    result = line.substring("RESULT ".length());
+                } else if (!line.startsWith("Compiled: ")) {
+                    System.err.println("  [" + mode + "] " + line);
+                }
+            }
+        }
+
+        process.waitFor(1, TimeUnit.MINUTES);
+        return result;
+    }
+
+    // load the protocol, connect a client and print the time since the JVM started once the handshake is sent
+    private static void measure(Mode mode, int port) throws Exception {
+        Protocol protocol;
+        if (mode == Mode.TABLE) {
+            protocol = Protocol47.PROTOCOL;
+        } else {
+            protocol = Protocol.create(47);
+            protocol.registerPacketMappings(PacketUtil.compileAll(CommonPacketImplementations.CLASSES));
+            protocol.registerPacketMappings(PacketUtil.compileAll(Protocol47Mappings.CLASSES));
+            protocol = protocol.freeze();
+        }
+
+        long[] sentAt = new long[1];
+        MinecraftClient client = MinecraftClient.create().protocol(protocol);
+        client.onStateSwitch().addLast((oldState, newState) -> {
+            // the client switches to login right after the handshake is sent
+            if (newState == ClientState.LOGIN && sentAt[0] == 0) {
+                sentAt[0] = System.currentTimeMillis();
+            }
+        });
+
+        client.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port)).get(1, TimeUnit.MINUTES);
+
+        // the start time is only queried afterwards to not measure loading the management classes
+        System.out.println("RESULT " + (sentAt[0] - ManagementFactory.getRuntimeMXBean().getStartTime()));
+        System.exit(0);
+    }
+
+    // start a server on an ephemeral port which accepts connections and discards all input
+    private static int startDiscardServer() throws Exception {
+        ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    Socket socket = server.accept();
+                    Thread reader = new Thread(() -> {
+                        try (socket; InputStream in = socket.getInputStream()) {
+                            byte[] discard = new byte[1024];
+                            while (in.read(discard) != -1);
+                        } catch (Exception ignored) { }
+                    }, "DiscardServer-Reader");
+                    reader.setDaemon(true);
+                    reader.start();
+                }
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }, "DiscardServer");
+        thread.setDaemon(true);
+        thread.start();
+
+        return server.getLocalPort();
+    }
+
+}
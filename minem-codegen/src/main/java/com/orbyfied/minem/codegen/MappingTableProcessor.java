@@ -0,0 +1,322 @@
+package com.orbyfied.minem.codegen;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Generates the mapping tables of classes annotated with {@code @MappingTable}. Everything the
+ * reflective compilation of a mapping resolves at runtime, like the primary name, destination, data
+ * class and interfaces, is resolved here instead, and every mapping gets a generated codec calling
+ * its serialization methods and constructing its data directly.
+ */
+@SupportedAnnotationTypes({ MappingTableProcessor.MAPPING_TABLE, SerializerProcessor.MAPPING })
+public class MappingTableProcessor extends AbstractProcessor {
+
+    static final String MAPPING_TABLE = "com.orbyfied.minem.protocol.MappingTable";
+    static final String SERIALIZED = SerializerProcessor.SERIALIZED;
+    static final String PACKET_SCHEMA = "com.orbyfied.minem.protocol.PacketSchema";
+
+    // See PacketMapping#FLAG_STATIC
+    static final int FLAG_STATIC = 1 << 16;
+
+    // a mapping resolved at compile time
+    record MappingSpec(TypeElement type, int id, String phase, int flags, String primaryName, List<String> aliases,
+                       String destination, TypeElement dataType, Set<String> dataInterfaces,
+                       String read, String write, boolean throwing, String schema) { }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement mappingTable = processingEnv.getElementUtils().getTypeElement(MAPPING_TABLE);
+        TypeElement mapping = processingEnv.getElementUtils().getTypeElement(SerializerProcessor.MAPPING);
+        if (mappingTable == null || mapping == null) {
+            return false;
+        }
+
+        Set<? extends Element> tables = roundEnv.getElementsAnnotatedWith(mappingTable);
+        if (tables.isEmpty()) {
+            return false;
+        }
+
+        List<TypeElement> mappingTypes = new ArrayList<>(ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(mapping)));
+        mappingTypes.sort(Comparator.comparing(type -> type.getQualifiedName().toString()));
+        for (TypeElement table : ElementFilter.typesIn(tables)) {
+            try {
+                generate(table, mappingTypes);
+            } catch (IllegalArgumentException ex) {
+                error(table, ex.getMessage());
+            } catch (IOException ex) {
+                error(table, "Failed to write mapping table: " + ex);
+            }
+        }
+
+        return false;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private String packageOf(Element element) {
+        return processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+    }
+
+    // generate the table source for the given annotated class
+    private void generate(TypeElement table, List<TypeElement> mappingTypes) throws IOException {
+        String packageName = packageOf(table);
+        String simpleName = table.getSimpleName() + "Mappings";
+
+        List<MappingSpec> mappings = new ArrayList<>();
+        Set<String> codecNames = new HashSet<>();
+        for (TypeElement type : mappingTypes) {
+            String typePackage = packageOf(type);
+            if (!typePackage.equals(packageName) && !typePackage.startsWith(packageName + ".")) {
+                continue;
+            }
+
+            if (!codecNames.add(type.getSimpleName().toString())) {
+                throw new IllegalArgumentException("Mapping classes in one table need unique simple names, found " +
+                        type.getSimpleName() + " twice");
+            }
+
+            try {
+                mappings.add(resolve(type));
+            } catch (IllegalArgumentException ex) {
+                error(type, ex.getMessage());
+            }
+        }
+
+        StringBuilder src = new StringBuilder();
+        src.append("package ").append(packageName).append(";\n\n");
+        src.append("import com.orbyfied.minem.buffer.UnsafeByteBuf;\n");
+        src.append("import com.orbyfied.minem.protocol.Destination;\n");
+        src.append("import com.orbyfied.minem.protocol.PacketCodec;\n");
+        src.append("import com.orbyfied.minem.protocol.PacketContainer;\n");
+        src.append("import com.orbyfied.minem.protocol.PacketMapping;\n");
+        src.append("import com.orbyfied.minem.protocol.ProtocolPhases;\n\n");
+        src.append("import java.util.Set;\n");
+        src.append("import java.util.function.Supplier;\n\n");
+        src.append("/**\n * The mappings declared in the package of {@link ").append(table.getSimpleName())
+                .append("}, resolved at compile time.\n */\n");
+        src.append("@javax.annotation.processing.Generated(\"").append(MappingTableProcessor.class.getName()).append("\")\n");
+        src.append("public final class ").append(simpleName).append(" {\n\n");
+
+        // mapping classes
+        src.append("    /** The mapping classes in this table. */\n");
+        src.append("    public static final Class<?>[] CLASSES = new Class<?>[] {\n");
+        for (MappingSpec spec : mappings) {
+            src.append("            ").append(spec.type.getQualifiedName()).append(".class,\n");
+        }
+        src.append("    };\n\n");
+
+        src.append("    private ").append(simpleName).append("() { }\n\n");
+
+        // create
+        src.append("    /**\n     * Create the mappings in this table.\n     */\n");
+        src.append("    public static PacketMapping[] create() {\n");
+        src.append("        return new PacketMapping[] {\n");
+        for (MappingSpec spec : mappings) {
+            src.append("                PacketMapping.precompiled(").append(spec.type.getQualifiedName()).append(".class, ")
+                    .append(spec.id).append(", ProtocolPhases.").append(spec.phase).append(", ").append(spec.flags).append(", ")
+                    .append(literal(spec.primaryName)).append(", new String[] { ");
+            for (String alias : spec.aliases) {
+                src.append(literal(alias)).append(", ");
+            }
+            src.append("}, Destination.").append(spec.destination).append(",\n");
+            src.append("                        ").append(spec.dataType.getQualifiedName()).append(".class, Set.of(");
+            src.append(String.join(", ", spec.dataInterfaces.stream().map(name -> name + ".class").toList()));
+            src.append("),\n");
+            String codec = spec.type.getSimpleName() + "Codec.INSTANCE";
+            src.append("                        ").append(codec).append(", ").append(codec).append(", ").append(spec.schema).append("),\n");
+        }
+        src.append("        };\n");
+        src.append("    }\n");
+
+        // codecs
+        for (MappingSpec spec : mappings) {
+            String dataName = spec.dataType.getQualifiedName().toString();
+            src.append("\n    static final class ").append(spec.type.getSimpleName()).append("Codec implements PacketCodec, Supplier<Object> {\n\n");
+            src.append("        static final ").append(spec.type.getSimpleName()).append("Codec INSTANCE = new ")
+                    .append(spec.type.getSimpleName()).append("Codec();\n\n");
+            src.append("        @Override\n        public Object get() {\n");
+            src.append("            return new ").append(dataName).append("();\n        }\n\n");
+            appendCodecMethod(src, spec, "read", "in", spec.read);
+            src.append("\n");
+            appendCodecMethod(src, spec, "write", "out", spec.write);
+            src.append("\n    }\n");
+        }
+
+        src.append("\n}\n");
+
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(packageName + "." + simpleName, table);
+        try (Writer writer = file.openWriter()) {
+            writer.write(src.toString());
+        }
+    }
+
+    private void appendCodecMethod(StringBuilder src, MappingSpec spec, String name, String buf, String call) {
+        String statement = String.format(call, "(" + spec.dataType.getQualifiedName() + ") data", buf) + ";";
+        src.append("        @Override\n        public void ").append(name)
+                .append("(Object data, PacketContainer container, UnsafeByteBuf ").append(buf).append(") {\n");
+        if (spec.throwing) {
+            // checked exceptions are propagated undeclared like by compiled codecs
+            src.append("            try {\n");
+            src.append("                ").append(statement).append("\n");
+            src.append("            } catch (Exception ex) {\n");
+            src.append("                slatepowered.veru.misc.Throwables.sneakyThrow(ex);\n");
+            src.append("            }\n");
+        } else {
+            src.append("            ").append(statement).append("\n");
+        }
+        src.append("        }\n");
+    }
+
+    private static String literal(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private AnnotationMirror findAnnotation(Element element, String name) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(name)) {
+                return mirror;
+            }
+        }
+
+        return null;
+    }
+
+    private Object annotationValue(AnnotationMirror mirror, String name) {
+        for (var entry : processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+
+        return null;
+    }
+
+    private boolean isObject(TypeMirror type) {
+        return type.getKind() != TypeKind.DECLARED ||
+                ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals("java.lang.Object");
+    }
+
+    // resolve the given mapping class like PacketMapping#compileMapping does at runtime
+    @SuppressWarnings("unchecked")
+    private MappingSpec resolve(TypeElement type) {
+        if (type.getNestingKind() != NestingKind.TOP_LEVEL || !type.getModifiers().contains(Modifier.PUBLIC)) {
+            throw new IllegalArgumentException("Mapping classes in a mapping table must be public top level classes");
+        }
+
+        AnnotationMirror mapping = findAnnotation(type, SerializerProcessor.MAPPING);
+        int id = (Integer) annotationValue(mapping, "id");
+        String phase = ((VariableElement) annotationValue(mapping, "phase")).getSimpleName().toString();
+        String declaredName = (String) annotationValue(mapping, "primaryName");
+        List<String> aliases = new ArrayList<>();
+        for (AnnotationValue alias : (List<? extends AnnotationValue>) annotationValue(mapping, "aliases")) {
+            aliases.add((String) alias.getValue());
+        }
+        String destination = ((VariableElement) annotationValue(mapping, "dest")).getSimpleName().toString();
+        int flags = (Integer) annotationValue(mapping, "flags");
+        TypeElement dataType = (TypeElement) processingEnv.getTypeUtils().asElement((TypeMirror) annotationValue(mapping, "dataClass"));
+        boolean serialized = findAnnotation(type, SERIALIZED) != null;
+        String serializer = type.getQualifiedName() + "Serializer";
+
+        boolean staticMapping = !dataType.getQualifiedName().contentEquals("java.lang.Void") ||
+                (flags & FLAG_STATIC) > 0 || type.getModifiers().contains(Modifier.FINAL);
+        String primaryName;
+        String read;
+        String write;
+        boolean throwing = false;
+        if (staticMapping) {
+            if (dataType.getQualifiedName().contentEquals("java.lang.Void")) {
+                if (isObject(type.getSuperclass())) {
+                    throw new IllegalArgumentException("Static mapping by class " + type.getQualifiedName() + " does not have a data class specified");
+                }
+
+                dataType = (TypeElement) processingEnv.getTypeUtils().asElement(type.getSuperclass());
+            }
+
+            primaryName = declaredName.isEmpty() ? type.getSimpleName().toString().replace("Packet", "") : declaredName;
+            if (destination.equals("FIND")) {
+                destination = declaredName.toLowerCase().startsWith("serverbound") ? "SERVERBOUND" : "CLIENTBOUND";
+            }
+
+            String declaring = serialized ? serializer : type.getQualifiedName().toString();
+            read = declaring + ".read(%s, container, %s)";
+            write = declaring + ".write(%s, container, %s)";
+            throwing = !serialized && (declaresThrows(type, "read", 3) || declaresThrows(type, "write", 3));
+        } else {
+            dataType = type;
+            primaryName = declaredName.isEmpty() ? type.getSimpleName().toString().replace("Packet", "").replaceAll("[0-9]", "") : declaredName;
+            if (destination.equals("FIND")) {
+                destination = primaryName.toLowerCase().startsWith("serverbound") ? "SERVERBOUND" : "CLIENTBOUND";
+            }
+
+            if (serialized) {
+                read = serializer + ".read(%s, container, %s)";
+                write = serializer + ".write(%s, container, %s)";
+            } else {
+                read = "(%s).read(container, %s)";
+                write = "(%s).write(container, %s)";
+                throwing = declaresThrows(type, "read", 2) || declaresThrows(type, "write", 2);
+            }
+        }
+
+        // the data class, its direct interfaces and its superclass
+        Set<String> dataInterfaces = new LinkedHashSet<>();
+        dataInterfaces.add(dataType.getQualifiedName().toString());
+        for (TypeMirror itf : dataType.getInterfaces()) {
+            dataInterfaces.add(((TypeElement) processingEnv.getTypeUtils().asElement(itf)).getQualifiedName().toString());
+        }
+        if (!isObject(dataType.getSuperclass())) {
+            dataInterfaces.add(((TypeElement) processingEnv.getTypeUtils().asElement(dataType.getSuperclass())).getQualifiedName().toString());
+        }
+
+        // the schema is declared by the serializer or in a static field on the mapping class
+        String schema = "null";
+        if (serialized) {
+            schema = serializer + ".SCHEMA";
+        } else {
+            for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                if (field.getSimpleName().contentEquals("SCHEMA") && field.getModifiers().contains(Modifier.STATIC) &&
+                        field.asType().toString().equals(PACKET_SCHEMA)) {
+                    if (field.getModifiers().contains(Modifier.PRIVATE)) {
+                        throw new IllegalArgumentException("The SCHEMA of mapping class " + type.getQualifiedName() + " can not be private");
+                    }
+
+                    schema = type.getQualifiedName() + ".SCHEMA";
+                }
+            }
+        }
+
+        return new MappingSpec(type, id, phase, flags, primaryName, aliases, destination, dataType, dataInterfaces,
+                read, write, throwing, schema);
+    }
+
+    // whether the method with the given name and parameter count declares any thrown types
+    private boolean declaresThrows(TypeElement type, String name, int parameters) {
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (method.getSimpleName().contentEquals(name) && method.getParameters().size() == parameters &&
+                    !method.getThrownTypes().isEmpty()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+}
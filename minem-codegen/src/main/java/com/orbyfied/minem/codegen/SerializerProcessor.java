@@ -0,0 +1,366 @@
+package com.orbyfied.minem.codegen;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Generates the serializers of mapping classes annotated with {@code @Serialized} from their
+ * field declarations and wire type annotations. The generated code reads and writes each field
+ * in declaration order directly on the {@code UnsafeByteBuf}, without reflection or allocation.
+ */
+@SupportedAnnotationTypes(SerializerProcessor.SERIALIZED)
+public class SerializerProcessor extends AbstractProcessor {
+
+    static final String SERIALIZED = "com.orbyfied.minem.protocol.wire.Serialized";
+    static final String MAPPING = "com.orbyfied.minem.protocol.Mapping";
+    static final String WIRE_PACKAGE = "com.orbyfied.minem.protocol.wire.";
+    static final String VEC3I = "com.orbyfied.minem.math.Vec3i";
+
+    /**
+     * How a field is encoded on the wire.
+     */
+    enum Encoding {
+        BOOLEAN("BOOLEAN", "in.readBoolean()", "out.writeBoolean(%s)"),
+        BYTE("BYTE", "in.readByte()", "out.writeByte(%s)"),
+        SHORT("SHORT", "in.readShortReversed()", "out.writeShortReversed(%s)"),
+        INT("INT", "in.readIntReversed()", "out.writeIntReversed(%s)"),
+        LONG("LONG", "in.readLongReversed()", "out.writeLongReversed(%s)"),
+        FLOAT("FLOAT", "in.readFloatReversed()", "out.writeFloatReversed(%s)"),
+        DOUBLE("DOUBLE", "in.readDoubleReversed()", "out.writeDoubleReversed(%s)"),
+        STRING("STRING", "in.readString()", "out.writeString(%s)"),
+        VAR_INT("VAR_INT", "in.readVarInt()", "out.writeVarInt(%s)"),
+        VAR_LONG("VAR_LONG", "in.readVarLong()", "out.writeVarLong(%s)"),
+        ANGLE("BYTE", "com.orbyfied.minem.protocol.wire.WireTypes.readAngle(in)", "com.orbyfied.minem.protocol.wire.WireTypes.writeAngle(out, %s)"),
+        POSITION64("LONG", null, "com.orbyfied.minem.protocol.wire.WireTypes.writePosition64(out, %s)"),
+        FIXED_POINT(null, null, null);
+
+        final String schemaType; // The type of the field in the packet schema
+        final String read;       // The expression reading the value
+        final String write;      // The statement format writing the value, see #castFor(Encoding, TypeKind)
+
+        Encoding(String schemaType, String read, String write) {
+            this.schemaType = schemaType;
+            this.read = read;
+            this.write = write;
+        }
+    }
+
+    // a declared field of a serialized mapping
+    record FieldSpec(String name, TypeMirror type, Encoding encoding, double scale, Encoding fixedEncoding,
+                     String getter, String setter) {
+
+        String schemaType() {
+            return encoding == Encoding.FIXED_POINT ? fixedEncoding.schemaType : encoding.schemaType;
+        }
+
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement serialized = processingEnv.getElementUtils().getTypeElement(SERIALIZED);
+        if (serialized == null) {
+            return false;
+        }
+
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(serialized))) {
+            try {
+                generate(type);
+            } catch (IllegalArgumentException ex) {
+                error(type, ex.getMessage());
+            } catch (IOException ex) {
+                error(type, "Failed to write serializer: " + ex);
+            }
+        }
+
+        return true;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    // generate the serializer source for the given mapping class
+    private void generate(TypeElement type) throws IOException {
+        if (type.getNestingKind() != NestingKind.TOP_LEVEL) {
+            throw new IllegalArgumentException("Serialized mapping classes must be top level classes");
+        }
+
+        // static mappings declare the layout of a separate data class
+        TypeElement dataType = findDataClass(type);
+        boolean staticMapping = dataType != null;
+        if (dataType == null) {
+            dataType = type;
+        }
+
+        List<FieldSpec> fields = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (field.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+
+            fields.add(compileField(field, dataType, staticMapping));
+        }
+
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String simpleName = type.getSimpleName() + "Serializer";
+        String dataName = dataType.getQualifiedName().toString();
+
+        StringBuilder src = new StringBuilder();
+        src.append("package ").append(packageName).append(";\n\n");
+        src.append("import com.orbyfied.minem.buffer.UnsafeByteBuf;\n");
+        src.append("import com.orbyfied.minem.protocol.PacketContainer;\n");
+        src.append("import com.orbyfied.minem.protocol.PacketSchema;\n\n");
+        src.append("/**\n * The serializer of {@link ").append(type.getSimpleName())
+                .append("}, generated from its field declarations.\n */\n");
+        src.append("@javax.annotation.processing.Generated(\"").append(SerializerProcessor.class.getName()).append("\")\n");
+        src.append("public final class ").append(simpleName).append(" {\n\n");
+
+        // schema
+        src.append("    public static final PacketSchema SCHEMA = PacketSchema.builder()\n");
+        for (FieldSpec field : fields) {
+            src.append("            .field(\"").append(field.name).append("\", PacketSchema.Type.").append(field.schemaType()).append(")\n");
+        }
+        src.append("            .build();\n\n");
+
+        src.append("    private ").append(simpleName).append("() { }\n\n");
+
+        // read
+        src.append("    public static void read(").append(dataName).append(" packet, PacketContainer container, UnsafeByteBuf in) {\n");
+        for (FieldSpec field : fields) {
+            src.append("        ").append(readStatement(field)).append("\n");
+        }
+        src.append("    }\n\n");
+
+        // write
+        src.append("    public static void write(").append(dataName).append(" packet, PacketContainer container, UnsafeByteBuf out) {\n");
+        for (FieldSpec field : fields) {
+            src.append("        ").append(writeStatement(field)).append("\n");
+        }
+        src.append("    }\n\n");
+        src.append("}\n");
+
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(packageName + "." + simpleName, type);
+        try (Writer writer = file.openWriter()) {
+            writer.write(src.toString());
+        }
+    }
+
+    // find the data class specified in the @Mapping annotation, or null if none is specified
+    private TypeElement findDataClass(TypeElement type) {
+        for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            if (!((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(MAPPING)) {
+                continue;
+            }
+
+            for (var entry : mirror.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("dataClass")) {
+                    TypeMirror dataClass = (TypeMirror) entry.getValue().getValue();
+                    TypeElement element = (TypeElement) processingEnv.getTypeUtils().asElement(dataClass);
+                    return element.getQualifiedName().contentEquals("java.lang.Void") ? null : element;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    // find the wire type annotation with the given simple name on the given field
+    private AnnotationMirror findWireAnnotation(VariableElement field, String name) {
+        for (AnnotationMirror mirror : field.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(WIRE_PACKAGE + name)) {
+                return mirror;
+            }
+        }
+
+        return null;
+    }
+
+    private Object annotationValue(AnnotationMirror mirror, String name) {
+        for (var entry : processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+
+        return null;
+    }
+
+    private FieldSpec compileField(VariableElement field, TypeElement dataType, boolean staticMapping) {
+        String name = field.getSimpleName().toString();
+        TypeMirror type = field.asType();
+        TypeKind kind = type.getKind();
+
+        // determine encoding
+        Encoding encoding;
+        Encoding fixedEncoding = null;
+        double scale = 0;
+        AnnotationMirror fixedPoint;
+        if (findWireAnnotation(field, "VarInt") != null) {
+            requireType(field, kind == TypeKind.INT, "int");
+            encoding = Encoding.VAR_INT;
+        } else if (findWireAnnotation(field, "VarLong") != null) {
+            requireType(field, kind == TypeKind.LONG, "long");
+            encoding = Encoding.VAR_LONG;
+        } else if (findWireAnnotation(field, "Angle") != null) {
+            requireType(field, kind == TypeKind.FLOAT || kind == TypeKind.DOUBLE, "float or double");
+            encoding = Encoding.ANGLE;
+        } else if (findWireAnnotation(field, "Position64") != null) {
+            requireType(field, isDeclared(type, VEC3I), VEC3I);
+            encoding = Encoding.POSITION64;
+        } else if ((fixedPoint = findWireAnnotation(field, "FixedPoint")) != null) {
+            requireType(field, kind == TypeKind.FLOAT || kind == TypeKind.DOUBLE, "float or double");
+            encoding = Encoding.FIXED_POINT;
+            scale = (Double) annotationValue(fixedPoint, "value");
+            fixedEncoding = switch ((Integer) annotationValue(fixedPoint, "bytes")) {
+                case 1 -> Encoding.BYTE;
+                case 2 -> Encoding.SHORT;
+                case 4 -> Encoding.INT;
+                default -> throw new IllegalArgumentException("Fixed point field " + name + " must be 1, 2 or 4 bytes");
+            };
+        } else {
+            encoding = switch (kind) {
+                case BOOLEAN -> Encoding.BOOLEAN;
+                case BYTE -> Encoding.BYTE;
+                case SHORT -> Encoding.SHORT;
+                case INT -> Encoding.INT;
+                case LONG -> Encoding.LONG;
+                case FLOAT -> Encoding.FLOAT;
+                case DOUBLE -> Encoding.DOUBLE;
+                default -> {
+                    if (isDeclared(type, "java.lang.String")) {
+                        yield Encoding.STRING;
+                    }
+
+                    throw new IllegalArgumentException("Field " + name + " of type " + type + " has no wire encoding");
+                }
+            };
+        }
+
+        // find accessors
+        String getter;
+        String setter;
+        if (staticMapping) {
+            getter = findGetter(dataType, name);
+            setter = findSetter(dataType, name);
+            if (getter == null || setter == null) {
+                VariableElement dataField = findPublicField(dataType, name);
+                if (dataField == null) {
+                    throw new IllegalArgumentException("Data class " + dataType.getQualifiedName() + " has no accessors for field " + name);
+                }
+
+                getter = getter != null ? getter : "packet." + name;
+                setter = setter != null ? setter : "packet." + name + " = %s";
+            }
+        } else {
+            if (field.getModifiers().contains(Modifier.PRIVATE)) {
+                throw new IllegalArgumentException("Serialized field " + name + " can not be private");
+            }
+
+            getter = "packet." + name;
+            setter = "packet." + name + " = %s";
+        }
+
+        return new FieldSpec(name, type, encoding, scale, fixedEncoding, getter, setter);
+    }
+
+    private void requireType(VariableElement field, boolean condition, String expected) {
+        if (!condition) {
+            throw new IllegalArgumentException("Field " + field.getSimpleName() + " must be of type " + expected + " for its wire type");
+        }
+    }
+
+    private boolean isDeclared(TypeMirror type, String qualifiedName) {
+        return type.getKind() == TypeKind.DECLARED &&
+                ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals(qualifiedName);
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    // find a public getter for the given property, returns the call expression
+    private String findGetter(TypeElement dataType, String name) {
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(dataType))) {
+            String methodName = method.getSimpleName().toString();
+            if (method.getModifiers().contains(Modifier.PUBLIC) && !method.getModifiers().contains(Modifier.STATIC) &&
+                    method.getParameters().isEmpty() &&
+                    (methodName.equals("get" + capitalize(name)) || methodName.equals("is" + capitalize(name)))) {
+                return "packet." + methodName + "()";
+            }
+        }
+
+        return null;
+    }
+
+    // find a public setter for the given property, returns the statement format
+    private String findSetter(TypeElement dataType, String name) {
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(dataType))) {
+            if (method.getModifiers().contains(Modifier.PUBLIC) && !method.getModifiers().contains(Modifier.STATIC) &&
+                    method.getParameters().size() == 1 && method.getSimpleName().contentEquals("set" + capitalize(name))) {
+                return "packet.set" + capitalize(name) + "(%s)";
+            }
+        }
+
+        return null;
+    }
+
+    private VariableElement findPublicField(TypeElement dataType, String name) {
+        for (VariableElement field : ElementFilter.fieldsIn(processingEnv.getElementUtils().getAllMembers(dataType))) {
+            if (field.getSimpleName().contentEquals(name) && field.getModifiers().contains(Modifier.PUBLIC) &&
+                    !field.getModifiers().contains(Modifier.STATIC) && !field.getModifiers().contains(Modifier.FINAL)) {
+                return field;
+            }
+        }
+
+        return null;
+    }
+
+    private String readStatement(FieldSpec field) {
+        String value = switch (field.encoding) {
+            case FIXED_POINT -> {
+                String read = field.fixedEncoding.read + " / " + field.scale + "D";
+                yield field.type.getKind() == TypeKind.FLOAT ? "(float) (" + read + ")" : read;
+            }
+            case POSITION64 -> "com.orbyfied.minem.protocol.wire.WireTypes.readPosition64(in, " + field.getter + ")";
+            default -> field.encoding.read;
+        };
+
+        return String.format(field.setter, value) + ";";
+    }
+
+    private String writeStatement(FieldSpec field) {
+        if (field.encoding == Encoding.FIXED_POINT) {
+            String value = "(" + field.getter + " * " + field.scale + "D)";
+            return String.format(field.fixedEncoding.write, castFor(field.fixedEncoding, TypeKind.DOUBLE) + value) + ";";
+        }
+
+        return String.format(field.encoding.write, castFor(field.encoding, field.type.getKind()) + field.getter) + ";";
+    }
+
+    // the cast needed to write a value of the given type with the given encoding, empty
+    // if the value converts implicitly so the generated code has no redundant casts
+    private static String castFor(Encoding encoding, TypeKind kind) {
+        return switch (encoding) {
+            case BYTE -> kind == TypeKind.BYTE ? "" : "(byte) ";
+            case SHORT -> kind == TypeKind.SHORT || kind == TypeKind.BYTE ? "" : "(short) ";
+            case INT -> kind == TypeKind.INT || kind == TypeKind.SHORT || kind == TypeKind.BYTE || kind == TypeKind.CHAR ? "" : "(int) ";
+            default -> "";
+        };
+    }
+
+}
@@ -1,16 +1,22 @@
 package com.orbyfied.minem;
 
+import com.orbyfied.minem.client.CatchUpPolicy;
 import com.orbyfied.minem.client.ClientDisconnectHandler;
 import com.orbyfied.minem.client.ClientStateSwitchHandler;
 import com.orbyfied.minem.client.ClientTickHandler;
 import com.orbyfied.minem.client.DisconnectReason;
+import com.orbyfied.minem.client.ThreadMode;
 import com.orbyfied.minem.event.Chain;
+import com.orbyfied.minem.event.ChainInstrumentation;
 import com.orbyfied.minem.event.ExceptionEventHandler;
 import com.orbyfied.minem.event.ExceptionEventSource;
 import com.orbyfied.minem.event.MultiChain;
 import com.orbyfied.minem.exception.ClientConnectException;
+import com.orbyfied.minem.network.CompressionCodec;
+import com.orbyfied.minem.network.DispatchQueue;
 import com.orbyfied.minem.network.NetworkManager;
 import com.orbyfied.minem.network.ProtocolConnection;
+import com.orbyfied.minem.network.SendQueue;
 import com.orbyfied.minem.protocol.*;
 import com.orbyfied.minem.protocol.login.ClientboundLoginDisconnectPacket;
 import com.orbyfied.minem.protocol.login.ClientboundSetCompressionPacket;
@@ -19,6 +25,8 @@ import com.orbyfied.minem.protocol.play.ClientboundPlayDisconnectPacket;
 import com.orbyfied.minem.protocol.play.ClientboundKeepAlivePacket;
 import com.orbyfied.minem.protocol.play.ServerboundKeepAlivePacket;
 import com.orbyfied.minem.scheduler.ClientScheduler;
+import com.orbyfied.minem.scheduler.LoopStats;
+import com.orbyfied.minem.scheduler.TickDriver;
 import lombok.Getter;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 
@@ -28,6 +36,10 @@ import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
 
 /**
  * Represents a simple, modular (component based) Minecraft client.
@@ -35,10 +47,15 @@ import java.util.concurrent.atomic.AtomicLong;
 public class MinecraftClient extends ProtocolContext implements ExceptionEventSource {
 
     /**
-     * The unscheduled executor.
+     * The kind of threads created by this client.
      */
     @Getter
-    ExecutorService executor = Executors.newFixedThreadPool(2, r -> new Thread(r, "MinecraftClient(" + hexHashCode() + ")-PoolThread"));
+    ThreadMode threadMode = ThreadMode.PLATFORM;
+
+    /**
+     * The unscheduled executor, created lazily for the thread mode.
+     */
+    ExecutorService executor;
 
     /**
      * The scheduler for this client.
@@ -50,7 +67,7 @@ public class MinecraftClient extends ProtocolContext implements ExceptionEventSo
      * The network manager for this client.
      */
     @Getter
-    NetworkManager networkManager;
+    NetworkManager networkManager = new NetworkManager();
 
     /**
      * The protocol to use.
@@ -89,13 +106,39 @@ public class MinecraftClient extends ProtocolContext implements ExceptionEventSo
     final MultiChain<PacketMapping, PacketHandler> onTypedSent = new MultiChain<PacketMapping, PacketHandler>(k -> new Chain<>(PacketHandler.class).integerFlagHandling()).keyMapper(o -> protocol.match(o));
     final MultiChain<PacketMapping, PacketHandler> onTypedReceived = new MultiChain<PacketMapping, PacketHandler>(k -> new Chain<>(PacketHandler.class).integerFlagHandling()).keyMapper(o -> protocol.match(o));
 
+    /* Send Queue Configuration */
+    @Getter int sendQueueCapacity = 1024;                                                          // The capacity of each lane of the send queue
+    @Getter SendQueue.OverflowPolicy sendQueueOverflowPolicy = SendQueue.OverflowPolicy.CALLER_RUNS; // What to do when the send queue is full
+    @Getter SendQueue.FlushMode sendQueueFlushMode = SendQueue.FlushMode.IMMEDIATE;                 // When the send queue should be drained
+
+    /* Dispatch Configuration */
+    @Getter DispatchQueue.Mode dispatchMode = DispatchQueue.Mode.SYNCHRONOUS; // How received packets are dispatched to the handlers
+    @Getter int dispatchQueueCapacity = 1024;                                 // The capacity of the dispatch queue if queued
+    Executor dispatchExecutor;                                                // The executor to dispatch queued packets on, the client executor if null
+
+    /* Packet Recycling */
+    @Getter boolean packetRecycling = false; // Whether received packets are recycled after being handled, see PacketPool
+    @Getter boolean packetViews = false;     // Whether packets with a schema are received as lazily decoded views, see PacketView
+
+    /* Compression Configuration */
+    @Getter CompressionCodec.Factory compressionCodecFactory = CompressionCodec.ZLIB; // Creates the codecs of compressed connections
+    @Getter int compressionLevel = 2;                                                 // The compression level of outbound packets
+
     /* Updates and Ticking */
     boolean enableTicking = true; // Whether the 50ms ticking should be enabled
     int targetUps = 60;           // The target updates per second, 0 to disable updates
     Thread tickThread;            // The thread simulating 50ms ticks
     Thread updateThread;          // The thread simulating a 60 FPS render thread
-    volatile long tickDt = 0;     // The latest delta time of one tick
-    volatile long updateDt = 0;   // The latest delta time of one update
+    volatile long tickDt = 0;     // The nanoseconds between the starts of the last two ticks
+    volatile long updateDt = 0;   // The nanoseconds between the starts of the last two updates
+    long lastTickStart;           // The nano time the last tick started at, 0 before the first
+    long lastUpdateStart;         // The nano time the last update started at, 0 before the first
+    @Getter CatchUpPolicy catchUpPolicy = CatchUpPolicy.CATCH_UP; // What the tick and update threads do when behind schedule
+    @Getter int maxCatchUp = 5;                                   // The most missed iterations run back to back when catching up
+    final LoopStats tickStats = new LoopStats(TickDriver.TICK_PERIOD_NANOS); // The timing metrics of the ticks
+    final LoopStats updateStats = new LoopStats(1_000_000_000L / targetUps); // The timing metrics of the updates
+    @Getter TickDriver tickDriver;                       // Drives the ticks and updates instead of the threads if set
+    @Getter volatile TickDriver.Registration tickRegistration; // The registration with the tick driver while connected
     AtomicLong tickCount = new AtomicLong(0);
     AtomicLong updateCount = new AtomicLong(0);
     final Chain<ClientTickHandler> onTick = new Chain<>(ClientTickHandler.class);
@@ -110,12 +153,51 @@ public class MinecraftClient extends ProtocolContext implements ExceptionEventSo
         return new MinecraftClient();
     }
 
+    /**
+     * Set the kind of threads this client should create for the connection
+     * reader, tick and update loops and the default executors. This should
+     * be configured before connecting.
+     *
+     * @throws UnsupportedOperationException If the mode is not supported by this runtime.
+     */
+    public MinecraftClient threadMode(ThreadMode threadMode) {
+        if (!threadMode.isSupported()) {
+            throw new UnsupportedOperationException("Thread mode " + threadMode + " is not supported by this runtime");
+        }
+
+        this.threadMode = threadMode;
+        return this;
+    }
+
+    public synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = threadMode.newExecutor("MinecraftClient(" + hexHashCode() + ")-PoolThread", 2);
+        }
+
+        return executor;
+    }
+
     public MinecraftClient executor(ExecutorService executor) {
         this.executor = executor;
         return this;
     }
 
-    public MinecraftClient protocol(Protocol protocol) {
+    public synchronized MinecraftClient protocol(Protocol protocol) {
+        if (protocol == this.protocol) {
+            return this;
+        }
+
+        // resolve the mappings handled by the base handlers in the new protocol
+        Map<PacketMapping, PacketHandler> handlers = new IdentityHashMap<>();
+        if (protocol != null) {
+            forEachBaseHandler((dataClass, handler) -> {
+                for (PacketMapping mapping : protocol.match(dataClass)) {
+                    handlers.put(mapping, handler);
+                }
+            });
+        }
+
+        this.baseHandlers = handlers;
         this.protocol = protocol;
         return this;
     }
@@ -212,19 +294,7 @@ public class MinecraftClient extends ProtocolContext implements ExceptionEventSo
 
                 connection.start();
 
-                // start tick and update schedule
-                if (enableTicking && tickThread == null) {
-                    tickThread = new Thread(this::runTickLoop, "MinecraftClient(" + hexHashCode() + ")-TickThread");
-                    tickThread.setDaemon(true);
-                }
-
-                if (targetUps != 0 && updateThread == null) {
-                    updateThread = new Thread(this::runUpdateLoop, "MinecraftClient(" + hexHashCode() + ")-UpdateThread");
-                    updateThread.setDaemon(true);
-                }
-
-                if (enableTicking) tickThread.start();
-                if (targetUps != 0) updateThread.start();
+                startTicking();
 
                 return this;
             } catch (Exception ex) {
@@ -232,7 +302,7 @@ public class MinecraftClient extends ProtocolContext implements ExceptionEventSo
                 disconnect(DisconnectReason.ERROR, clientConnectException);
                 throw clientConnectException;
             }
-        }, executor);
+        }, getExecutor());
     }
 
     public boolean isActive() {
@@ -248,6 +318,12 @@ public class MinecraftClient extends ProtocolContext implements ExceptionEventSo
         }
 
         try {
+            TickDriver.Registration registration = tickRegistration;
+            if (registration != null) {
+                registration.cancel();
+                tickRegistration = null;
+            }
+
             if (connection != null) {
                 connection.close();
             }
@@ -284,64 +360,151 @@ public class MinecraftClient extends ProtocolContext implements ExceptionEventSo
         return true;
     }
 
-    // Get the last tick delta time
+    // start the tick and update schedule, on the tick driver if set
+    private void startTicking() {
+        this.tickCount.set(0);
+        this.updateCount.set(0);
+        this.lastTickStart = 0;
+        this.lastUpdateStart = 0;
+        this.tickStats.reset();
+        this.updateStats.reset();
+
+        if (tickDriver != null) {
+            tickRegistration = tickDriver.register(this,
+                    enableTicking ? this::runTick : null,
+                    targetUps != 0 ? this::runUpdate : null,
+                    targetUps);
+            return;
+        }
+
+        if (enableTicking && (tickThread == null || !tickThread.isAlive())) {
+            tickThread = threadMode.newThread("MinecraftClient(" + hexHashCode() + ")-TickThread", this::runTickLoop);
+            tickThread.setDaemon(true);
+            tickThread.start();
+        }
+
+        if (targetUps != 0 && (updateThread == null || !updateThread.isAlive())) {
+            updateThread = threadMode.newThread("MinecraftClient(" + hexHashCode() + ")-UpdateThread", this::runUpdateLoop);
+            updateThread.setDaemon(true);
+            updateThread.start();
+        }
+    }
+
+    // Get the last tick delta time in seconds
     public float tickDeltaTime() {
-        return tickDt / 1000f;
+        return tickDt / 1e9f;
     }
 
-    // Get the last user update delta time
+    // Get the last user update delta time in seconds
     public float updateDeltaTime() {
-        return updateDt / 1000f;
+        return updateDt / 1e9f;
+    }
+
+    // execute one tick, called by the tick thread or the tick driver
+    private void runTick() {
+        long start = System.nanoTime();
+        tickDt = lastTickStart != 0 ? start - lastTickStart : 0;
+        lastTickStart = start;
+
+        scheduler.tick();
+        onTick.invoker().onTick(this);
+
+        // flush the packets queued this tick
+        ProtocolConnection connection = this.connection;
+        if (connection != null) {
+            connection.tickSendQueue();
+        }
+
+        tickCount.incrementAndGet();
+        tickStats.record(start, System.nanoTime() - start);
     }
 
-    private void sleepSafe(long ms) {
-        try { Thread.sleep(ms); }
-        catch (Exception ignored) { }
+    // execute one update, called by the update thread or the tick driver
+    private void runUpdate() {
+        long start = System.nanoTime();
+        updateDt = lastUpdateStart != 0 ? start - lastUpdateStart : 0;
+        lastUpdateStart = start;
+
+        scheduler.update();
+        onUpdate.invoker().onTick(this);
+
+        updateCount.incrementAndGet();
+        updateStats.record(start, System.nanoTime() - start);
     }
 
     // run() for the tick thread
     private void runTickLoop() {
-        this.tickCount.set(0);
-        final long period = 50;
-        long lastTick = 0;
-        while (active.get() && enableTicking) {
-            // execute tick
-            scheduler.tick();
-            onTick.invoker().onTick(this);
-
-            tickCount.incrementAndGet();
+        runFixedRate(() -> active.get() && enableTicking, () -> TickDriver.TICK_PERIOD_NANOS, this::runTick, tickStats);
+    }
 
-            long now = System.currentTimeMillis();
-            tickDt = now - lastTick;
-            lastTick = now;
+    // run() for the update thread
+    private void runUpdateLoop() {
+        runFixedRate(() -> active.get() && targetUps != 0, () -> 1_000_000_000L / Math.max(1, targetUps), this::runUpdate, updateStats);
+    }
+
+    // run the body at a fixed rate while the condition holds, the deadlines are
+    // multiples of the period from the start so sleeping imprecisely does not drift
+    private void runFixedRate(BooleanSupplier condition, LongSupplier period, Runnable body, LoopStats stats) {
+        long next = System.nanoTime();
+        while (condition.getAsBoolean()) {
+            body.run();
+
+            long periodNanos = period.getAsLong();
+            next += periodNanos;
+            long now = System.nanoTime();
+            if (now >= next) {
+                // behind schedule, the next iteration runs right away and the ones
+                // missed before it are dropped or run back to back by the policy
+                long missed = (now - next) / periodNanos;
+                long dropped = catchUpPolicy == CatchUpPolicy.SKIP ? missed : Math.max(0, missed - maxCatchUp);
+                if (dropped > 0) {
+                    next += dropped * periodNanos;
+                    stats.recordSkipped(dropped);
+                }
 
-            if (tickDt < period) {
-                sleepSafe(period - tickDt);
+                stats.recordCaughtUp();
+                continue;
             }
+
+            parkUntil(next);
         }
     }
 
-    // run() for the update thread
-    private void runUpdateLoop() {
-        this.updateCount.set(0);
-        long lastTick = 0;
-        while (active.get() && targetUps != 0) {
-            long period = 1000 / targetUps;
+    // park the current thread until the given nano time
+    private static void parkUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            Thread.interrupted(); // keep the schedule, like the sleep ignoring interrupts did
+        }
+    }
 
-            // execute update
-            scheduler.update();
-            onUpdate.invoker().onTick(this);
+    /**
+     * The timing metrics of the ticks of this client.
+     */
+    public LoopStats tickStats() {
+        return tickStats;
+    }
 
-            long now = System.currentTimeMillis();
-            updateDt = now - lastTick;
-            lastTick = now;
+    /**
+     * The timing metrics of the updates of this client.
+     */
+    public LoopStats updateStats() {
+        return updateStats;
+    }
 
-            if (updateDt < period) {
-                sleepSafe(period - updateDt);
-            }
+    /**
+     * The achieved ticks per second over the last second.
+     */
+    public double tps() {
+        return tickStats.rate();
+    }
 
-            updateCount.incrementAndGet();
-        }
+    /**
+     * The achieved updates per second over the last second.
+     */
+    public double ups() {
+        return updateStats.rate();
     }
 
     public long tickCount() {
@@ -404,6 +567,27 @@ public class MinecraftClient extends ProtocolContext implements ExceptionEventSo
 
     /* ------------ Events ------------ */
 
+    /**
+     * Install the given instrumentation in all event chains of this client,
+     * to find out which handlers the network and tick threads spend their time in.
+     *
+     * @param instrumentation The instrumentation or null to disable it.
+     * @return This.
+     */
+    public MinecraftClient instrumentHandlers(ChainInstrumentation instrumentation) {
+        onPacket.instrument(instrumentation);
+        onPacketSink.instrument(instrumentation);
+        onPacketReceived.instrument(instrumentation);
+        onTypedSent.instrument(instrumentation);
+        onTypedReceived.instrument(instrumentation);
+        onTick.instrument(instrumentation);
+        onUpdate.instrument(instrumentation);
+        onError.instrument(instrumentation);
+        onStateSwitch.instrument(instrumentation);
+        onDisconnect.instrument(instrumentation);
+        return this;
+    }
+
     public Chain<PacketHandler> onPacketSink() {
         return onPacketSink;
     }
@@ -440,37 +624,46 @@ public class MinecraftClient extends ProtocolContext implements ExceptionEventSo
         return onUpdate;
     }
 
-    {
-        /*
-            Base Packet Handlers
-         */
+    /* Base Packet Handlers, run by the connection before all other handlers and regardless of cancellation */
+    volatile Map<PacketMapping, PacketHandler> baseHandlers = Map.of(); // The base handlers by mapping of the current protocol
 
-        onPacketReceived.addFirst(packetContainer -> {
-            // Disconnect Packets
-            if (packetContainer.data() instanceof ClientboundLoginDisconnectPacket) {
-                disconnect(DisconnectReason.REMOTE, LegacyComponentSerializer.legacySection().deserialize(packetContainer
-                        .data(ClientboundLoginDisconnectPacket.class).getReason()));
-                return 0;
-            }
+    /**
+     * Get the base handler of the given received packet mapping, which keeps the
+     * connection alive and in sync, or null if it has none. The connection runs
+     * it before the other handlers, so handlers can not cancel it.
+     */
+    public PacketHandler baseReceivedHandler(PacketMapping mapping) {
+        return baseHandlers.get(mapping);
+    }
 
-            if (packetContainer.data() instanceof ClientboundPlayDisconnectPacket) {
-                disconnect(DisconnectReason.REMOTE, packetContainer.data(ClientboundPlayDisconnectPacket.class).getReason());
-                return 0;
-            }
+    final PacketHandler onLoginDisconnect = packetContainer -> {
+        disconnect(DisconnectReason.REMOTE, LegacyComponentSerializer.legacySection().deserialize(packetContainer
+                .data(ClientboundLoginDisconnectPacket.class).getReason()));
+        return 0;
+    };
 
-            // Set Compression
-            if (packetContainer.data() instanceof ClientboundSetCompressionPacket packet) {
-                connection.setCompressionThreshold(packet.getThreshold());
-            }
+    final PacketHandler onPlayDisconnect = packetContainer -> {
+        disconnect(DisconnectReason.REMOTE, packetContainer.data(ClientboundPlayDisconnectPacket.class).getReason());
+        return 0;
+    };
 
-            // Keep-Alive
-            if (packetContainer.data() instanceof ClientboundKeepAlivePacket) {
-                connection.sendSync(createPacket("ServerboundKeepAlive",
-                        new ServerboundKeepAlivePacket(packetContainer.data(ClientboundKeepAlivePacket.class).getId())));
-            }
+    final PacketHandler onSetCompression = packetContainer -> {
+        connection.setCompressionThreshold(packetContainer.data(ClientboundSetCompressionPacket.class).getThreshold());
+        return 0;
+    };
+
+    final PacketHandler onKeepAlive = packetContainer -> {
+        connection.sendAsync(createPacket("ServerboundKeepAlive",
+                new ServerboundKeepAlivePacket(packetContainer.data(ClientboundKeepAlivePacket.class).getId())), true);
+        return 0;
+    };
 
-            return 0;
-        });
+    // call the given consumer with each base handler and the data class it handles
+    private void forEachBaseHandler(BiConsumer<Class<?>, PacketHandler> consumer) {
+        consumer.accept(ClientboundLoginDisconnectPacket.class, onLoginDisconnect);
+        consumer.accept(ClientboundPlayDisconnectPacket.class, onPlayDisconnect);
+        consumer.accept(ClientboundSetCompressionPacket.class, onSetCompression);
+        consumer.accept(ClientboundKeepAlivePacket.class, onKeepAlive);
     }
 
     /* ------------ Configuration ------------ */
@@ -484,10 +677,129 @@ public class MinecraftClient extends ProtocolContext implements ExceptionEventSo
         return this;
     }
 
+    /**
+     * Configure the send queue of the connections created after this call.
+     *
+     * @param capacity The capacity of each lane.
+     * @param overflowPolicy What to do when a lane is full.
+     * @param flushMode When the queue should be drained.
+     * @return This.
+     */
+    public MinecraftClient sendQueue(int capacity, SendQueue.OverflowPolicy overflowPolicy, SendQueue.FlushMode flushMode) {
+        this.sendQueueCapacity = capacity;
+        this.sendQueueOverflowPolicy = overflowPolicy;
+        this.sendQueueFlushMode = flushMode;
+        return this;
+    }
+
+    /**
+     * Configure how packets received by the connections created after this call are
+     * dispatched to the handlers, see {@link DispatchQueue}.
+     *
+     * @param mode The dispatch mode.
+     * @param capacity The capacity of the dispatch queue if queued.
+     * @return This.
+     */
+    public MinecraftClient dispatch(DispatchQueue.Mode mode, int capacity) {
+        this.dispatchMode = mode;
+        this.dispatchQueueCapacity = capacity;
+        return this;
+    }
+
+    /**
+     * Set the executor to dispatch queued packets on, this can be shared by
+     * many clients as each connection is dispatched by one task at a time.
+     *
+     * @return This.
+     */
+    public MinecraftClient dispatchExecutor(Executor executor) {
+        this.dispatchExecutor = executor;
+        return this;
+    }
+
+    public Executor getDispatchExecutor() {
+        return dispatchExecutor != null ? dispatchExecutor : getExecutor();
+    }
+
+    /**
+     * Set whether the connections created after this call recycle the containers and
+     * data of received packets after they were handled. Handlers which keep a reference
+     * to a packet beyond handling it have to {@link PacketContainer#retain()} or
+     * {@link PacketContainer#copy()} it when this is enabled.
+     *
+     * @return This.
+     */
+    public MinecraftClient packetRecycling(boolean packetRecycling) {
+        this.packetRecycling = packetRecycling;
+        return this;
+    }
+
+    /**
+     * Set whether received packets which have a {@link com.orbyfied.minem.protocol.PacketSchema}
+     * are handled as views of the frame buffer, which only decode the fields that are accessed.
+     * The data is read once a handler accesses it, so handlers which only inspect
+     * {@link PacketContainer#view()} avoid decoding packets they drop.
+     *
+     * Views only apply to synchronously dispatched packets, queued packets are always decoded.
+     *
+     * @return This.
+     */
+    public MinecraftClient packetViews(boolean packetViews) {
+        this.packetViews = packetViews;
+        return this;
+    }
+
+    /**
+     * Configure the compression codecs used by connections once the server
+     * enables compression, codecs which already exist are not affected.
+     *
+     * @param factory The factory to create the codecs with.
+     * @param level The compression level of outbound packets.
+     * @return This.
+     */
+    public MinecraftClient compression(CompressionCodec.Factory factory, int level) {
+        this.compressionCodecFactory = factory;
+        this.compressionLevel = level;
+        return this;
+    }
+
+    /**
+     * Set the driver which drives the ticks and updates of this client from the
+     * next connection on, instead of a tick and an update thread per client. The
+     * real-time tasks of the scheduler then also run on the executor of the driver.
+     *
+     * @param tickDriver The driver, e.g. {@link TickDriver#shared()}, or null to use threads.
+     * @return This.
+     */
+    public MinecraftClient tickDriver(TickDriver tickDriver) {
+        this.tickDriver = tickDriver;
+        return this;
+    }
+
+    /**
+     * Set what the tick and update threads do when they fell behind their schedule,
+     * loops driven by a {@link TickDriver} always skip the missed iterations.
+     *
+     * @param policy The policy.
+     * @param maxCatchUp The most missed iterations run back to back with {@link CatchUpPolicy#CATCH_UP}.
+     * @return This.
+     */
+    public MinecraftClient catchUp(CatchUpPolicy policy, int maxCatchUp) {
+        this.catchUpPolicy = policy;
+        this.maxCatchUp = maxCatchUp;
+        return this;
+    }
+
+    public boolean isTickingEnabled() {
+        return enableTicking;
+    }
+
     public MinecraftClient targetUpdateRate(int targetUps) {
         this.targetUps = targetUps;
         if (targetUps == 0) {
             updateThread = null;
+        } else {
+            updateStats.setPeriodNanos(1_000_000_000L / targetUps);
         }
 
         return this;
@@ -96,7 +96,8 @@ public class ClientAuthenticator extends ClientComponent {
 
     @Override
     protected boolean attach(MinecraftClient client) {
-        client.onPacketReceived().addLast(this::onPacketReceived);
+        client.onTypedReceived().by(ClientboundEncryptionRequestPacket.class).addLast(this::onPacketReceived);
+        client.onTypedReceived().by(ClientboundLoginSuccessPacket.class).addLast(this::onPacketReceived);
         client.onStateSwitch().addLast((oldState, newState) -> {
             if (newState == ClientState.LOGIN) {
                 // send login start packet
@@ -108,7 +109,7 @@ public class ClientAuthenticator extends ClientComponent {
         return super.attach(client);
     }
 
-    // Handler for all incoming packets
+    // Handler for the incoming login packets
     private int onPacketReceived(PacketContainer pc) {
         // encryption request
         if (pc.data() instanceof ClientboundEncryptionRequestPacket) {
@@ -131,7 +132,8 @@ public class ClientAuthenticator extends ClientComponent {
                 byte[] encryptedSecret = rsa.doFinal(secretKeyBytes);
                 byte[] encryptedVerifyToken = rsa.doFinal(verifyTokenBytes);
 
-                // authenticate
+                // authenticate with the session server asynchronously, so the thread
+                // reading the connection is not blocked by the request
                 if (shouldAuth) {
                     String accessToken = account.assertAuthenticated();
                     String uuidDashless = account.getProfileUUID().toString().replace("-", "");
@@ -146,25 +148,25 @@ public class ClientAuthenticator extends ClientComponent {
                     body.addProperty("selectedProfile", uuidDashless);
                     body.addProperty("serverId", hexDigest);
 
-                    var response = accountContext.verifyResponse(accountContext.getHttpClient().send(HttpRequest.newBuilder()
+                    final byte[] secret = secretKeyBytes;
+                    accountContext.getHttpClient().sendAsync(HttpRequest.newBuilder()
                             .uri(URI.create("https://sessionserver.mojang.com/session/minecraft/join"))
                             .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
-                            .build(), HttpResponse.BodyHandlers.ofString()));
-
+                            .build(), HttpResponse.BodyHandlers.ofString()).whenComplete((response, t) -> {
+                        try {
+                            if (t != null) {
+                                throw t;
+                            }
+
+                            accountContext.verifyResponse(response);
+                            respondEncryption(secret, encryptedSecret, encryptedVerifyToken);
+                        } catch (Throwable ex) {
+                            client.onException().invoker().onException(ex);
+                        }
+                    });
+                } else {
+                    respondEncryption(secretKeyBytes, encryptedSecret, encryptedVerifyToken);
                 }
-
-                // send encryption response
-                client.getConnection().sendSync(client.createPacket("ServerboundEncryptionResponse",
-                        new ServerboundEncryptionResponsePacket(encryptedSecret, encryptedVerifyToken)));
-
-                // register the encryption to the client
-                SecretKey secretKey = new SecretKeySpec(secretKeyBytes, "AES");
-                IvParameterSpec parameterSpec = new IvParameterSpec(secretKeyBytes);
-                Cipher encryptionCipher = Cipher.getInstance("AES/CFB8/NoPadding");
-                encryptionCipher.init(Cipher.ENCRYPT_MODE, secretKey, parameterSpec);
-                Cipher decryptionCipher = Cipher.getInstance("AES/CFB8/NoPadding");
-                decryptionCipher.init(Cipher.DECRYPT_MODE, secretKey, parameterSpec);
-                client.getConnection().withCiphers(encryptionCipher, decryptionCipher);
             } catch (Exception ex) {
                 Throwables.sneakyThrow(ex);
             }
@@ -181,6 +183,19 @@ public class ClientAuthenticator extends ClientComponent {
         return 0;
     }
 
+    // send the encryption response and enable the encryption with the given secret
+    private void respondEncryption(byte[] secret, byte[] encryptedSecret, byte[] encryptedVerifyToken) throws Exception {
+        SecretKey secretKey = new SecretKeySpec(secret, "AES");
+        IvParameterSpec parameterSpec = new IvParameterSpec(secret);
+        Cipher encryptionCipher = Cipher.getInstance("AES/CFB8/NoPadding");
+        encryptionCipher.init(Cipher.ENCRYPT_MODE, secretKey, parameterSpec);
+        Cipher decryptionCipher = Cipher.getInstance("AES/CFB8/NoPadding");
+        decryptionCipher.init(Cipher.DECRYPT_MODE, secretKey, parameterSpec);
+
+        client.getConnection().sendThenEncrypt(client.createPacket("ServerboundEncryptionResponse",
+                new ServerboundEncryptionResponsePacket(encryptedSecret, encryptedVerifyToken)), encryptionCipher, decryptionCipher);
+    }
+
     /**
      * Event Handler: called when the client successfully completed the login process, as marked
      * by the receiving of the {@link ClientboundLoginSuccessPacket} packet.
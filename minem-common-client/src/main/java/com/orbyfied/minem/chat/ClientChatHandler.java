@@ -51,6 +51,15 @@ public class ClientChatHandler extends ClientComponent {
         client.getConnection().sendSync(client.createPacket(new ServerboundChatPacket(message)));
     }
 
+    /**
+     * Queue the given chat message/command to be sent.
+     *
+     * @return Whether the message was queued.
+     */
+    public boolean sendChatAsync(String message) {
+        return client.getConnection().sendAsync(client.createPacket(new ServerboundChatPacket(message)));
+    }
+
     /**
      * The type/position of a chat message.
      */
@@ -0,0 +1,21 @@
+package com.orbyfied.minem.client;
+
+/**
+ * Determines what the tick and update loops of a client do when they fell
+ * behind their schedule by more than one period.
+ */
+public enum CatchUpPolicy {
+
+    /**
+     * Run the missed iterations back to back without sleeping, up to the
+     * configured maximum, dropping the ones beyond it.
+     */
+    CATCH_UP,
+
+    /**
+     * Drop all missed iterations and continue with the one currently due,
+     * keeping the following deadlines on the original schedule.
+     */
+    SKIP
+
+}
@@ -0,0 +1,142 @@
+package com.orbyfied.minem.client;
+
+import slatepowered.veru.misc.Throwables;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Determines what kind of threads a client creates for its connection reader,
+ * tick and update loops and executors.
+ */
+public enum ThreadMode {
+
+    /**
+     * Dedicated platform (OS) threads, the default.
+     */
+    PLATFORM {
+        @Override
+        public Thread newThread(String name, Runnable runnable) {
+            return new Thread(runnable, name);
+        }
+    },
+
+    /**
+     * Virtual threads, which park cheaply on blocking socket reads and sleeps
+     * so that many idle clients only occupy a few carrier threads. This requires
+     * the runtime to support virtual threads (Java 21+), see {@link #isSupported()}.
+     */
+    VIRTUAL {
+        @Override
+        public Thread newThread(String name, Runnable runnable) {
+            if (OF_VIRTUAL == null) {
+                throw new UnsupportedOperationException("Virtual threads are not supported by this runtime (Java " + Runtime.version().feature() + ")");
+            }
+
+            try {
+                Object builder = OF_VIRTUAL.invoke();
+                builder = BUILDER_NAME.invoke(builder, name);
+                return (Thread) BUILDER_UNSTARTED.invoke(builder, runnable);
+            } catch (Throwable t) {
+                Throwables.sneakyThrow(t);
+                return null;
+            }
+        }
+
+        @Override
+        public boolean isSupported() {
+            return OF_VIRTUAL != null;
+        }
+    };
+
+    /* Thread.Builder API, resolved reflectively as the baseline targets Java 16 */
+    static final MethodHandle OF_VIRTUAL;         // Thread.ofVirtual()
+    static final MethodHandle BUILDER_NAME;       // Thread.Builder#name(String)
+    static final MethodHandle BUILDER_UNSTARTED;  // Thread.Builder#unstarted(Runnable)
+    static final MethodHandle THREAD_PER_TASK;    // Executors.newThreadPerTaskExecutor(ThreadFactory)
+
+    static {
+        MethodHandle ofVirtual = null, builderName = null, builderUnstarted = null, threadPerTask = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Class<?> ofVirtualClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(ofVirtualClass));
+            builderName = lookup.findVirtual(builderClass, "name", MethodType.methodType(builderClass, String.class))
+                    .asType(MethodType.methodType(Object.class, Object.class, String.class));
+            builderUnstarted = lookup.findVirtual(builderClass, "unstarted", MethodType.methodType(Thread.class, Runnable.class))
+                    .asType(MethodType.methodType(Thread.class, Object.class, Runnable.class));
+            threadPerTask = lookup.findStatic(Executors.class, "newThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+            ofVirtual = ofVirtual.asType(MethodType.methodType(Object.class));
+        } catch (Throwable ignored) {
+            // not supported by this runtime
+            ofVirtual = null;
+        }
+
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_UNSTARTED = builderUnstarted;
+        THREAD_PER_TASK = threadPerTask;
+    }
+
+    /**
+     * Create a new unstarted thread of this kind.
+     *
+     * @param name The name of the thread.
+     * @param runnable The code to run.
+     * @return The unstarted thread.
+     */
+    public abstract Thread newThread(String name, Runnable runnable);
+
+    /**
+     * Whether this mode can be used on the current runtime.
+     */
+    public boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * Create a thread factory naming the threads {@code prefix-n}.
+     */
+    public ThreadFactory threadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> newThread(prefix + "-" + counter.getAndIncrement(), runnable);
+    }
+
+    /**
+     * Create an executor for unscheduled tasks. With platform threads this is a
+     * fixed pool of the given size, with virtual threads each task gets its own
+     * thread as they are cheap to create and are not meant to be pooled.
+     */
+    public ExecutorService newExecutor(String prefix, int platformThreads) {
+        if (this == PLATFORM) {
+            return Executors.newFixedThreadPool(platformThreads, threadFactory(prefix));
+        }
+
+        if (THREAD_PER_TASK == null) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this runtime (Java " + Runtime.version().feature() + ")");
+        }
+
+        try {
+            return (ExecutorService) THREAD_PER_TASK.invoke(threadFactory(prefix));
+        } catch (Throwable t) {
+            Throwables.sneakyThrow(t);
+            return null;
+        }
+    }
+
+    /**
+     * Create a single-threaded scheduled executor.
+     */
+    public ScheduledExecutorService newScheduledExecutor(String prefix) {
+        return Executors.newSingleThreadScheduledExecutor(threadFactory(prefix));
+    }
+
+}
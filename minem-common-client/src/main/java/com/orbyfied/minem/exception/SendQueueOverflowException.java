@@ -0,0 +1,24 @@
+package com.orbyfied.minem.exception;
+
+public class SendQueueOverflowException extends RuntimeException {
+
+    public SendQueueOverflowException() {
+    }
+
+    public SendQueueOverflowException(String message) {
+        super(message);
+    }
+
+    public SendQueueOverflowException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public SendQueueOverflowException(Throwable cause) {
+        super(cause);
+    }
+
+    public SendQueueOverflowException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.orbyfied.minem.listener;
+
+import com.orbyfied.minem.protocol.PacketContainer;
+import com.orbyfied.minem.protocol.PacketHandler;
+import com.orbyfied.minem.reflect.ClassFile;
+import slatepowered.veru.misc.Throwables;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@link SubscribePacket} methods of listener classes. Each method is bound once per class
+ * to its own hidden {@link PacketHandler} class, whose instances hold the listener and call the
+ * method directly, so every handler in the chain has a monomorphic call to its method.
+ */
+final class PacketSubscribers {
+
+    // The subscriptions by listener class
+    static final ClassValue<List<Subscription>> SUBSCRIPTIONS = new ClassValue<>() {
+        @Override
+        protected List<Subscription> computeValue(Class<?> type) {
+            return bindAll(type);
+        }
+    };
+
+    /**
+     * A bound {@link SubscribePacket} method.
+     */
+    record Subscription(Method method,          // The annotated method
+                        Class<?> dataClass,     // The packet data class subscribed to
+                        MethodHandle factory)   // Creates the handler for a listener, (Object)PacketHandler
+    {
+        /**
+         * Create the packet handler calling the method on the given listener.
+         */
+        PacketHandler handlerFor(Object listener) {
+            try {
+                return (PacketHandler) factory.invokeExact(listener);
+            } catch (Throwable t) {
+                Throwables.sneakyThrow(t);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Get the subscriptions of the given listener class.
+     */
+    static List<Subscription> of(Class<?> type) {
+        return SUBSCRIPTIONS.get(type);
+    }
+
+    // bind all annotated methods declared by the given class
+    private static List<Subscription> bindAll(Class<?> type) {
+        List<Subscription> list = new ArrayList<>();
+        for (Method method : type.getDeclaredMethods()) {
+            if (Modifier.isStatic(method.getModifiers())) continue;
+            if (!method.isAnnotationPresent(SubscribePacket.class)) continue;
+
+            Class<?>[] params = method.getParameterTypes();
+            if (params.length != 2 || !PacketContainer.class.isAssignableFrom(params[0])) {
+                continue;
+            }
+
+            list.add(new Subscription(method, params[1], bind(method)));
+        }
+
+        return List.copyOf(list);
+    }
+
+    // bind the given method to a hidden handler class defined as nestmate of the declaring
+    // class, or to a reflective handler if the class can not be defined
+    private static MethodHandle bind(Method method) {
+        Class<?> declaringClass = method.getDeclaringClass();
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(declaringClass, MethodHandles.lookup())
+                    .defineHiddenClass(adapterBytes(method), true, MethodHandles.Lookup.ClassOption.NESTMATE);
+            return lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class, declaringClass))
+                    .asType(MethodType.methodType(PacketHandler.class, Object.class));
+        } catch (Throwable t) {
+            System.err.println("Could not generate the handler of @SubscribePacket method " + declaringClass.getName() + "#" +
+                    method.getName() + ", falling back to reflection: " + t);
+
+            method.setAccessible(true);
+            try {
+                return MethodHandles.lookup().findStatic(PacketSubscribers.class, "reflectiveHandler",
+                        MethodType.methodType(PacketHandler.class, Method.class, Object.class)).bindTo(method);
+            } catch (ReflectiveOperationException ex) {
+                Throwables.sneakyThrow(ex);
+                return null;
+            }
+        }
+    }
+
+    // create a handler calling the given method through reflection
+    private static PacketHandler reflectiveHandler(Method method, Object listener) {
+        return container -> {
+            try {
+                method.invoke(listener, container, container.data());
+            } catch (InvocationTargetException ex) {
+                Throwables.sneakyThrow(ex.getCause());
+            } catch (Exception ex) {
+                Throwables.sneakyThrow(ex);
+            }
+
+            return 0;
+        };
+    }
+
+    /* Adapter Generation */
+
+    // generate the class file of the handler for the given method, equivalent to
+    //   final class Declaring$$Subscriber implements PacketHandler {
+    //       final Declaring listener;
+    //       Declaring$$Subscriber(Declaring listener) { this.listener = listener; }
+    //       public int onPacket(PacketContainer c) { listener.method(c, (DataClass) c.data()); return 0; }
+    //   }
+    // the code has no branches so no stack map frames are needed
+    static byte[] adapterBytes(Method method) {
+        Class<?> declaringClass = method.getDeclaringClass();
+        Class<?> dataClass = method.getParameterTypes()[1];
+        String name = ClassFile.internalName(declaringClass) + "$$Subscriber";
+
+        ClassFile file = new ClassFile(ClassFile.ACC_FINAL | ClassFile.ACC_SYNTHETIC, name,
+                "java/lang/Object", ClassFile.internalName(PacketHandler.class));
+        ClassFile.ConstantPool pool = file.pool();
+        int listenerField = pool.fieldRef(name, "listener", ClassFile.descriptor(declaringClass));
+        int objectInit = pool.methodRef(Object.class, "<init>", MethodType.methodType(void.class));
+        int dataMethod = pool.methodRef(PacketContainer.class, "data", MethodType.methodType(Object.class));
+        int target = pool.methodRef(declaringClass, method.getName(),
+                MethodType.methodType(method.getReturnType(), method.getParameterTypes()));
+
+        file.field(ClassFile.ACC_FINAL, "listener", ClassFile.descriptor(declaringClass));
+
+        ClassFile.Code init = new ClassFile.Code()
+                .op(0x2A)                      // aload_0
+                .op2(0xB7, objectInit)         // invokespecial Object.<init>
+                .op(0x2A, 0x2B)                // aload_0, aload_1
+                .op2(0xB5, listenerField)      // putfield listener
+                .op(0xB1);                     // return
+        file.method(0, "<init>", "(" + ClassFile.descriptor(declaringClass) + ")V", 2, 2, init);
+
+        ClassFile.Code handle = new ClassFile.Code()
+                .op(0x2A)                      // aload_0
+                .op2(0xB4, listenerField)      // getfield listener
+                .op(0x2B, 0x2B)                // aload_1, aload_1
+                .op2(0xB6, dataMethod);        // invokevirtual PacketContainer.data
+        if (dataClass != Object.class) {
+            handle.op2(0xC0, pool.classRef(dataClass)); // checkcast
+        }
+
+        if (declaringClass.isInterface()) {
+            handle.op2(0xB9, target).op(3, 0); // invokeinterface
+        } else {
+            handle.op2(0xB6, target);          // invokevirtual
+        }
+
+        Class<?> returnType = method.getReturnType();
+        if (returnType == long.class || returnType == double.class) {
+            handle.op(0x58); // pop2
+        } else if (returnType != void.class) {
+            handle.op(0x57); // pop
+        }
+
+        handle.op(0x03, 0xAC); // iconst_0, ireturn
+        file.method(ClassFile.ACC_PUBLIC, "onPacket", MethodType.methodType(int.class, PacketContainer.class)
+                .toMethodDescriptorString(), 4, 2, handle);
+        return file.toByteArray();
+    }
+
+}
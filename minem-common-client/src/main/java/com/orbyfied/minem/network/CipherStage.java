@@ -0,0 +1,73 @@
+package com.orbyfied.minem.network;
+
+import com.orbyfied.minem.buffer.UnsafeByteBuf;
+import slatepowered.veru.misc.Throwables;
+
+import javax.crypto.Cipher;
+import java.nio.ByteBuffer;
+
+/**
+ * Encrypts or decrypts whole regions of direct buffers in place with a stream
+ * cipher like AES/CFB8, replacing {@link javax.crypto.CipherInputStream} and
+ * {@link javax.crypto.CipherOutputStream} which transform byte by byte.
+ *
+ * Instances are not thread-safe, the owner has to ensure only one
+ * thread applies the stage at a time.
+ */
+public final class CipherStage {
+
+    /**
+     * The cipher to update with, which must produce exactly as many
+     * bytes as it is given.
+     */
+    final Cipher cipher;
+
+    /* Cached views of the last transformed buffer */
+    ByteBuffer lastBase;
+    ByteBuffer inputView;
+    ByteBuffer outputView;
+
+    public CipherStage(Cipher cipher) {
+        this.cipher = cipher;
+    }
+
+    public Cipher getCipher() {
+        return cipher;
+    }
+
+    /**
+     * Transform the given region of the given buffer in place.
+     *
+     * @param buf The buffer.
+     * @param offset The offset of the region.
+     * @param length The length of the region in bytes.
+     */
+    public void apply(UnsafeByteBuf buf, int offset, int length) {
+        if (length == 0) {
+            return;
+        }
+
+        // reuse the views while the buffer is not reallocated
+        ByteBuffer base = buf.nioReference();
+        if (base != lastBase) {
+            lastBase = base;
+            inputView = base.duplicate();
+            outputView = base.duplicate();
+        }
+
+        ByteBuffer in = inputView;
+        ByteBuffer out = outputView;
+        in.limit(offset + length).position(offset);
+        out.limit(offset + length).position(offset);
+
+        try {
+            int transformed = cipher.update(in, out);
+            if (transformed != length) {
+                throw new IllegalStateException("Cipher transformed " + transformed + " of " + length + " bytes, only stream ciphers are supported");
+            }
+        } catch (Exception ex) {
+            Throwables.sneakyThrow(ex);
+        }
+    }
+
+}
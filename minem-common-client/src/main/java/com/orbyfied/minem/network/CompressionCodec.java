@@ -0,0 +1,70 @@
+package com.orbyfied.minem.network;
+
+import com.orbyfied.minem.buffer.UnsafeByteBuf;
+
+/**
+ * Compresses outbound and decompresses inbound packet data of a compressed
+ * connection, operating directly on the memory of the given buffers.
+ *
+ * Instances are not thread-safe, a connection uses one codec per thread
+ * at a time so no locking is needed around them.
+ */
+public interface CompressionCodec {
+
+    /**
+     * Creates codecs with a given compression level.
+     */
+    interface Factory {
+        CompressionCodec create(int level);
+    }
+
+    /**
+     * The default factory, creating {@link ZlibCompressionCodec}s.
+     */
+    Factory ZLIB = ZlibCompressionCodec::new;
+
+    /**
+     * Compress the given region of the source buffer and append
+     * the result to the destination buffer, growing it as needed.
+     *
+     * @param src The source buffer.
+     * @param offset The offset of the data in the source buffer.
+     * @param length The length of the data.
+     * @param dst The destination buffer.
+     * @return The amount of compressed bytes written.
+     */
+    int compress(UnsafeByteBuf src, int offset, int length, UnsafeByteBuf dst) throws Exception;
+
+    /**
+     * Decompress the given region of the source buffer and append the
+     * result to the destination buffer, growing it as needed.
+     *
+     * @param src The source buffer.
+     * @param offset The offset of the compressed data in the source buffer.
+     * @param length The length of the compressed data.
+     * @param dst The destination buffer.
+     * @param dataLength The expected length of the decompressed data.
+     * @throws Exception If the data could not be decompressed or the length does not match.
+     */
+    void decompress(UnsafeByteBuf src, int offset, int length, UnsafeByteBuf dst, int dataLength) throws Exception;
+
+    /**
+     * Decompress at most the given amount of bytes from the start of the given
+     * region of the source buffer, appending them to the destination buffer.
+     * This is used to read the packet ID without decompressing the whole packet.
+     *
+     * @param src The source buffer.
+     * @param offset The offset of the compressed data in the source buffer.
+     * @param length The length of the compressed data.
+     * @param dst The destination buffer.
+     * @param maxLength The maximum amount of bytes to decompress.
+     * @return The amount of bytes decompressed, less than the maximum if the data is shorter.
+     */
+    int decompressPrefix(UnsafeByteBuf src, int offset, int length, UnsafeByteBuf dst, int maxLength) throws Exception;
+
+    /**
+     * Free the native resources of this codec, it can not be used after.
+     */
+    void release();
+
+}
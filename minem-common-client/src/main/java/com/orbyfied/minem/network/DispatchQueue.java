@@ -0,0 +1,266 @@
+package com.orbyfied.minem.network;
+
+import com.orbyfied.minem.protocol.PacketContainer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The inbound dispatch stage of a {@link ProtocolConnection}, which decouples handling
+ * received packets from reading them. The reading thread decodes the packets and queues
+ * them, they are then passed to the event chains in order by a single dispatcher at a
+ * time on the dispatch executor, so a slow handler does not stall reading the socket.
+ *
+ * Only packets of the play phase are queued, packets of the earlier phases may change how
+ * the following frames are decoded (compression, encryption and the phase itself) so they
+ * are always dispatched on the reading thread.
+ *
+ * When the queue is full the reading thread waits for the dispatcher, which pushes back
+ * on the socket. For multiplexed connections this stalls the event loop, so the capacity
+ * should be large enough to absorb bursts.
+ */
+public class DispatchQueue {
+
+    /**
+     * How received packets are dispatched to the handlers.
+     */
+    public enum Mode {
+        /** Invoke the handlers on the reading thread, for the lowest latency. */
+        SYNCHRONOUS,
+
+        /** Queue the packets to be handled in order on the dispatch executor. */
+        QUEUED
+    }
+
+    // The maximum amount of packets dispatched before rescheduling, so
+    // connections sharing an executor take turns
+    static final int MAX_DISPATCH_BATCH = 256;
+
+    // The maximum time the reading thread parks while waiting for space
+    static final long WAIT_NANOS = 1_000_000;
+
+    final ProtocolConnection connection;
+    final Executor executor;
+
+    /* Ring buffer, written by the reading thread and read by the current dispatcher */
+    final PacketContainer[] packets;
+    final long[] queueTimes;         // The nano time each packet was queued at
+    final int capacity;
+    final int mask;
+    volatile long writeSequence = 0; // The sequence of the next packet to be queued
+    volatile long readSequence = 0;  // The sequence of the next packet to be dispatched
+
+    final AtomicBoolean dispatching = new AtomicBoolean(false); // Whether a dispatcher owns the queue
+    volatile boolean released = false;                          // Whether the connection was closed
+    volatile Thread waitingReader;                              // The reading thread if it is waiting for space
+
+    /* Metrics, written by the reading thread */
+    volatile int maxDepth = 0;
+    volatile long countWaits = 0;
+
+    /* Metrics, written by the current dispatcher */
+    volatile long countDispatched = 0;
+    volatile long totalLatencyNanos = 0;
+    volatile long maxLatencyNanos = 0;
+
+    public DispatchQueue(ProtocolConnection connection, int capacity, Executor executor) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        this.connection = connection;
+        this.executor = executor;
+        this.capacity = capacity;
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+
+        this.packets = new PacketContainer[size];
+        this.queueTimes = new long[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Queue the given received packet to be dispatched, waiting for space if the
+     * queue is full. This may only be called from the reading thread.
+     *
+     * @param packet The packet.
+     * @return False if the connection was closed, in which case the packet is not queued.
+     */
+    public boolean offer(PacketContainer packet) {
+        long seq = writeSequence;
+        if (seq - readSequence >= capacity) {
+            countWaits++;
+            do {
+                if (released) {
+                    return false;
+                }
+
+                waitingReader = Thread.currentThread();
+                scheduleDispatch();
+                if (seq - readSequence >= capacity && !released) {
+                    LockSupport.parkNanos(this, WAIT_NANOS);
+                }
+
+                waitingReader = null;
+            } while (seq - readSequence >= capacity);
+        }
+
+        if (released) {
+            return false;
+        }
+
+        int index = (int) seq & mask;
+        packets[index] = packet;
+        queueTimes[index] = System.nanoTime();
+        writeSequence = seq + 1;
+
+        int depth = (int) (seq + 1 - readSequence);
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+
+        scheduleDispatch();
+        return true;
+    }
+
+    // schedule a dispatch on the executor if none is in progress
+    void scheduleDispatch() {
+        if (dispatching.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::dispatchAndRelease);
+            } catch (RuntimeException ex) {
+                dispatching.set(false);
+                throw ex;
+            }
+        }
+    }
+
+    // dispatch the queued packets while owning the queue, then release ownership
+    private void dispatchAndRelease() {
+        try {
+            dispatch();
+        } finally {
+            dispatching.set(false);
+        }
+
+        if (released) {
+            // the connection was closed while dispatching
+            if (dispatching.compareAndSet(false, true)) {
+                freeResources();
+            }
+        } else if (!isEmpty()) {
+            // reschedule if the batch limit was hit or packets
+            // were queued after the last check
+            scheduleDispatch();
+        }
+    }
+
+    // dispatch up to one batch of queued packets, must own the queue
+    private void dispatch() {
+        long seq = readSequence;
+        long end = Math.min(writeSequence, seq + MAX_DISPATCH_BATCH);
+        while (seq < end && !released) {
+            int index = (int) seq & mask;
+            PacketContainer packet = packets[index];
+            long latency = System.nanoTime() - queueTimes[index];
+            packets[index] = null;
+            readSequence = ++seq;
+
+            // wake up the reader if it is waiting for space
+            Thread reader = waitingReader;
+            if (reader != null) {
+                LockSupport.unpark(reader);
+            }
+
+            countDispatched++;
+            totalLatencyNanos += latency;
+            if (latency > maxLatencyNanos) {
+                maxLatencyNanos = latency;
+            }
+
+            try {
+                connection.dispatchReceived(packet);
+            } catch (Throwable t) {
+                connection.onException().invoker().onException(t);
+            }
+        }
+    }
+
+    // free the resources after the connection was closed, deferred to
+    // the end of the current dispatch if one is in progress
+    void release() {
+        released = true;
+        Thread reader = waitingReader;
+        if (reader != null) {
+            LockSupport.unpark(reader);
+        }
+
+        if (dispatching.compareAndSet(false, true)) {
+            freeResources();
+        }
+    }
+
+    // discard the remaining packets, must own the queue which is never released again
+    private void freeResources() {
+        for (int i = 0; i < packets.length; i++) {
+            PacketContainer packet = packets[i];
+            if (packet != null) {
+                packets[i] = null;
+                connection.discardReceived(packet);
+            }
+        }
+    }
+
+    /**
+     * The amount of packets currently queued.
+     */
+    public int depth() {
+        return (int) (writeSequence - readSequence);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isEmpty() {
+        return writeSequence == readSequence;
+    }
+
+    /**
+     * The highest depth observed.
+     */
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * The amount of times the reading thread had to wait for space.
+     */
+    public long countWaits() {
+        return countWaits;
+    }
+
+    public long countDispatched() {
+        return countDispatched;
+    }
+
+    /**
+     * The average time packets spent in the queue in nanoseconds.
+     */
+    public long averageLatencyNanos() {
+        long count = countDispatched;
+        return count == 0 ? 0 : totalLatencyNanos / count;
+    }
+
+    /**
+     * The longest time a packet spent in the queue in nanoseconds.
+     */
+    public long maxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.orbyfied.minem.network;
+
+import com.orbyfied.minem.event.Chain;
+import com.orbyfied.minem.event.MultiChain;
+import com.orbyfied.minem.protocol.*;
+
+import java.util.function.Function;
+
+/**
+ * The packet mappings and typed event chains of one protocol phase and destination
+ * of a connection, indexed by network ID, so resolving the mapping of a packet and
+ * whether anyone is interested in it are two array loads instead of registry and
+ * hash map lookups.
+ *
+ * The typed chains of all mappings are created when the table is built, so handlers
+ * subscribed later are added to the chains in the table. The invokers and interest bits
+ * are refreshed whenever the version of the typed {@link MultiChain} changed. Packets
+ * with a base handler are always of interest.
+ */
+final class DispatchTable {
+
+    final Protocol protocol;                                 // The protocol the table was built from
+    final ProtocolPhase phase;                               // The phase of all mappings in the table
+    final Destination destination;                           // The destination of all mappings in the table
+    final MultiChain<PacketMapping, PacketHandler> typed;    // The typed event chains
+
+    final PacketMapping[] mappings;                          // The mappings by network ID
+    final Chain<PacketHandler>[] chains;                     // The typed chains by network ID
+    final Chain<PacketHandler> unknownChain;                 // The typed chain of unknown packets
+    final PacketHandler[] baseHandlers;                      // The base handlers by network ID, see MinecraftClient#baseReceivedHandler
+
+    /* Refreshed State */
+    volatile Slots slots; // The invokers and interest bits, replaced as a whole when refreshed
+
+    // the invokers and interest bits at one version of the typed chains, the
+    // last index is used for unknown packets
+    record Slots(int version, PacketHandler[] invokers, long[] interested) { }
+
+    @SuppressWarnings("unchecked")
+    DispatchTable(Protocol protocol, ProtocolPhase phase, Destination destination,
+                  MultiChain<PacketMapping, PacketHandler> typed,
+                  Function<PacketMapping, PacketHandler> baseHandlers) {
+        this.protocol = protocol;
+        this.phase = phase;
+        this.destination = destination;
+        this.typed = typed;
+
+        ProtocolPhaseSpecification spec = protocol.forPhaseOrNull(phase);
+        int maxId = -1;
+        if (spec != null) {
+            for (PacketMapping mapping : spec.allPacketMappings()) {
+                if (mapping.getDestination() == destination) {
+                    maxId = Math.max(maxId, mapping.getNetworkId());
+                }
+            }
+        }
+
+        mappings = new PacketMapping[maxId + 1];
+        chains = new Chain[maxId + 1];
+        this.baseHandlers = new PacketHandler[maxId + 1];
+        for (int id = 0; id <= maxId; id++) {
+            PacketMapping mapping = spec.getPacketMapping(PacketRegistry.getRegistryID(id, destination));
+            if (mapping != null) {
+                mappings[id] = mapping;
+                chains[id] = typed.get(mapping);
+                this.baseHandlers[id] = baseHandlers != null ? baseHandlers.apply(mapping) : null;
+            }
+        }
+
+        unknownChain = typed.get(destination == Destination.SERVERBOUND ?
+                UnknownPacket.SERVERBOUND_MAPPING : UnknownPacket.CLIENTBOUND_MAPPING);
+        refresh();
+    }
+
+    // recompute the invokers and interest bits from the current chains
+    Slots refresh() {
+        int version = typed.version(); // read first so concurrent changes cause another refresh
+        int count = chains.length + 1;
+        PacketHandler[] invokers = new PacketHandler[count];
+        long[] interested = new long[(count + 63) >>> 6];
+        for (int i = 0; i < count; i++) {
+            Chain<PacketHandler> chain = i < chains.length ? chains[i] : unknownChain;
+            if (chain != null && !chain.isEmpty()) {
+                invokers[i] = chain.invoker();
+                interested[i >>> 6] |= 1L << i;
+            }
+
+            if (i < chains.length && baseHandlers[i] != null) {
+                interested[i >>> 6] |= 1L << i;
+            }
+        }
+
+        Slots slots = new Slots(version, invokers, interested);
+        this.slots = slots;
+        return slots;
+    }
+
+    // get the current slots, refreshing them if the chains changed
+    Slots slots() {
+        Slots slots = this.slots;
+        return slots.version == typed.version() ? slots : refresh();
+    }
+
+    // the slot index of the given network ID, unmapped IDs use the unknown slot
+    int index(int networkId) {
+        return networkId >= 0 && networkId < mappings.length && mappings[networkId] != null ? networkId : mappings.length;
+    }
+
+    /**
+     * Get the mapping for the given network ID.
+     *
+     * @return The mapping or null if unmapped.
+     */
+    PacketMapping mapping(int networkId) {
+        return networkId >= 0 && networkId < mappings.length ? mappings[networkId] : null;
+    }
+
+    /**
+     * Whether any typed or base handler is interested in packets with the given network ID.
+     */
+    boolean isInterested(int networkId) {
+        int index = index(networkId);
+        return (slots().interested[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Get the invoker of the typed chain for the given mapping, which
+     * has to be covered by this table.
+     *
+     * @return The invoker or null if the chain is empty.
+     * @see #covers(PacketMapping)
+     */
+    PacketHandler invoker(PacketMapping mapping) {
+        return slots().invokers[mapping.getRegistryId() < 0 ? mappings.length : mapping.getNetworkId()];
+    }
+
+    /**
+     * Get the base handler for the given mapping, which has
+     * to be covered by this table.
+     *
+     * @return The base handler or null if none.
+     * @see #covers(PacketMapping)
+     */
+    PacketHandler baseHandler(PacketMapping mapping) {
+        return mapping.getRegistryId() < 0 ? null : baseHandlers[mapping.getNetworkId()];
+    }
+
+    /**
+     * Whether the given mapping is in this table, unknown mappings
+     * are if their destination matches.
+     */
+    boolean covers(PacketMapping mapping) {
+        if (mapping.getRegistryId() < 0) {
+            return mapping.getDestination() == destination;
+        }
+
+        int networkId = mapping.getNetworkId();
+        return networkId >= 0 && networkId < mappings.length && mappings[networkId] == mapping;
+    }
+
+    /**
+     * Whether this table is valid for the given protocol and phase.
+     */
+    boolean isFor(Protocol protocol, ProtocolPhase phase) {
+        return this.protocol == protocol && this.phase == phase;
+    }
+
+}
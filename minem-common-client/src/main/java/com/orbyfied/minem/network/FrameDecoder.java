@@ -0,0 +1,198 @@
+package com.orbyfied.minem.network;
+
+import com.orbyfied.minem.buffer.UnsafeByteBuf;
+import com.orbyfied.minem.buffer.UnsafeSliceByteBuf;
+import com.orbyfied.minem.exception.ClientReadException;
+import com.orbyfied.minem.io.ProtocolIO;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Decodes the inbound frames of a {@link ProtocolConnection}.
+ *
+ * Bytes are read from the channel in large chunks into one direct input buffer and
+ * decrypted in place. Frames are then parsed in place: uncompressed packet data is
+ * handed to the connection as a slice of the input buffer, compressed data is inflated
+ * straight from it. Incomplete frames stay in the buffer until the rest is read, after
+ * which the unconsumed bytes are moved to the start of the buffer.
+ *
+ * Of compressed frames only the packet ID is inflated at first, frames of packets
+ * nobody is interested in are then skipped without inflating the rest.
+ *
+ * Instances are not thread-safe and should only be used by the reading thread.
+ */
+public class FrameDecoder {
+
+    // The minimum amount of free space in the input buffer before reading
+    static final int READ_CHUNK_SIZE = 1024 * 16;
+
+    // The maximum length of a frame, the largest 3-byte VarInt
+    static final int MAX_FRAME_LENGTH = (1 << 21) - 1;
+
+    // The maximum length of a VarInt, like the packet ID
+    static final int MAX_VAR_INT_LENGTH = 5;
+
+    final ProtocolConnection connection;
+
+    final UnsafeByteBuf inputBuffer = UnsafeByteBuf.createDirect(READ_CHUNK_SIZE * 2); // The received bytes which have not been decoded yet
+    final UnsafeByteBuf packetBuffer = UnsafeByteBuf.createDirect(1024);              // The inflated packet data
+    final UnsafeByteBuf peekBuffer = UnsafeByteBuf.createDirect(8);                   // The inflated packet ID of the current compressed frame
+    final UnsafeSliceByteBuf frameSlice = new UnsafeSliceByteBuf();                   // The view of uncompressed packet data in the input buffer
+    CompressionCodec codec;                                                            // The codec to decompress with, created when first needed
+
+    /* Metrics */
+    long countReads = 0;
+    long countFrames = 0;
+
+    public FrameDecoder(ProtocolConnection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Read the next chunk of bytes from the given channel into the input
+     * buffer, decrypting them in place if encryption is enabled.
+     *
+     * @param channel The channel to read from.
+     * @return The amount of bytes read, or -1 if the end of the stream was reached.
+     */
+    public int readFrom(ReadableByteChannel channel) throws IOException {
+        UnsafeByteBuf in = inputBuffer;
+        in.ensureWriteCapacity(READ_CHUNK_SIZE);
+
+        int offset = in.writeIndex();
+        int read = channel.read(in.nioReference(offset, in.remainingWriteCapacity()));
+        if (read <= 0) {
+            return read;
+        }
+
+        // decrypt the received bytes in place
+        CipherStage stage = connection.decryption;
+        if (stage != null) {
+            stage.apply(in, offset, read);
+        }
+
+        in.writeIndex(offset + read);
+        countReads++;
+        return read;
+    }
+
+    /**
+     * Decode all complete frames in the input buffer and pass their packet
+     * data to the connection, keeping any trailing incomplete frame.
+     *
+     * @return The amount of frames decoded.
+     */
+    public int decodeFrames() throws Exception {
+        UnsafeByteBuf in = inputBuffer;
+        int count = 0;
+        try {
+            while (in.remainingWritten() > 0 && !connection.closed) {
+                int frameStart = in.readIndex();
+                long lengthVarInt = ProtocolIO.peekVarInt(in, frameStart, in.writeIndex());
+                if (lengthVarInt == -1) {
+                    break;
+                }
+
+                int frameLength = (int) lengthVarInt;
+                if (frameLength < 0 || frameLength > MAX_FRAME_LENGTH) {
+                    throw new ClientReadException("Invalid frame length " + frameLength);
+                }
+
+                int dataStart = frameStart + (int) (lengthVarInt >>> 32);
+                int frameEnd = dataStart + frameLength;
+                if (frameEnd > in.writeIndex()) {
+                    // wait for the rest of the frame, ensuring it will fit once compacted
+                    in.ensureCapacity(frameEnd - frameStart + READ_CHUNK_SIZE);
+                    break;
+                }
+
+                // consume the frame before handling it, so a failing
+                // handler does not cause it to be decoded again
+                in.readIndex(frameEnd);
+                count++;
+                countFrames++;
+
+                int dataLength = 0;
+                if (connection.compressionThreshold != -1) {
+                    long dataLengthVarInt = ProtocolIO.peekVarInt(in, dataStart, frameEnd);
+                    if (dataLengthVarInt == -1) {
+                        throw new ClientReadException("Truncated data length in compressed frame");
+                    }
+
+                    dataLength = (int) dataLengthVarInt;
+                    dataStart += (int) (dataLengthVarInt >>> 32);
+                }
+
+                if (dataLength == 0) {
+                    // hand out the uncompressed packet data in place
+                    connection.receivePacketData(frameSlice.set(in, dataStart, frameEnd - dataStart));
+                } else if (connection.isInterested(peekPacketId(dataStart, frameEnd - dataStart))) {
+                    connection.receivePacketData(inflate(dataStart, frameEnd - dataStart, dataLength));
+                } else {
+                    // skip the frame without inflating the rest of it
+                    connection.skippedPacket();
+                }
+            }
+        } finally {
+            in.compact();
+        }
+
+        return count;
+    }
+
+    // inflate only the packet ID at the start of the compressed data in the given region of the input buffer
+    private int peekPacketId(int offset, int length) throws Exception {
+        if (codec == null) {
+            codec = connection.newCompressionCodec();
+        }
+
+        UnsafeByteBuf peek = peekBuffer;
+        peek.reset();
+        int inflated = codec.decompressPrefix(inputBuffer, offset, length, peek, MAX_VAR_INT_LENGTH);
+        long idVarInt = ProtocolIO.peekVarInt(peek, 0, inflated);
+        if (idVarInt == -1) {
+            throw new ClientReadException("Truncated packet ID in compressed frame");
+        }
+
+        return (int) idVarInt;
+    }
+
+    // inflate the compressed data in the given region of the input buffer into the packet buffer
+    private UnsafeByteBuf inflate(int offset, int length, int dataLength) throws Exception {
+        if (dataLength > MAX_FRAME_LENGTH * 4) {
+            throw new ClientReadException("Invalid uncompressed data length " + dataLength);
+        }
+
+        if (codec == null) {
+            codec = connection.newCompressionCodec();
+        }
+
+        UnsafeByteBuf packet = packetBuffer;
+        packet.reset();
+        codec.decompress(inputBuffer, offset, length, packet, dataLength);
+        return packet;
+    }
+
+    /**
+     * Free the buffers of this decoder, it can not be used after.
+     */
+    public void release() {
+        inputBuffer.free();
+        packetBuffer.free();
+        peekBuffer.free();
+        frameSlice.free();
+        if (codec != null) {
+            codec.release();
+        }
+    }
+
+    public long countReads() {
+        return countReads;
+    }
+
+    public long countFrames() {
+        return countFrames;
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.orbyfied.minem.network;
+
+import com.orbyfied.minem.MinecraftClient;
+import com.orbyfied.minem.exception.ClientConnectException;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A {@link NetworkManager} which multiplexes the connections of many clients over a
+ * small pool of {@link NetworkEventLoop} threads using non-blocking socket channels,
+ * instead of dedicating a blocking reader thread to every connection.
+ *
+ * One instance is meant to be shared by all clients using it.
+ */
+public class MultiplexedNetworkManager extends NetworkManager {
+
+    public static MultiplexedNetworkManager create() {
+        return create(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    public static MultiplexedNetworkManager create(int threads) {
+        return new MultiplexedNetworkManager(threads);
+    }
+
+    /**
+     * The event loops connections are distributed over.
+     */
+    final NetworkEventLoop[] eventLoops;
+
+    public MultiplexedNetworkManager(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one event loop thread is required");
+        }
+
+        eventLoops = new NetworkEventLoop[threads];
+        for (int i = 0; i < threads; i++) {
+            eventLoops[i] = new NetworkEventLoop("NetworkEventLoop-" + i + "@" + Integer.toHexString(hashCode())).start();
+        }
+    }
+
+    // select the event loop with the least connections
+    private NetworkEventLoop nextEventLoop() {
+        NetworkEventLoop best = eventLoops[0];
+        for (int i = 1; i < eventLoops.length; i++) {
+            if (eventLoops[i].connectionCount() < best.connectionCount()) {
+                best = eventLoops[i];
+            }
+        }
+
+        return best;
+    }
+
+    @Override
+    public ProtocolConnection connect(MinecraftClient client, InetSocketAddress address) {
+        try {
+            // open channel, connecting synchronously
+            SocketChannel channel = SocketChannel.open();
+            channel.connect(address);
+            channel.configureBlocking(false);
+
+            // create connection instance
+            NetworkEventLoop eventLoop = nextEventLoop();
+            MultiplexedProtocolConnection connection = new MultiplexedProtocolConnection(this, client, eventLoop, channel);
+            eventLoop.register(connection);
+            return connection;
+        } catch (Exception ex) {
+            throw new ClientConnectException("An exception occurred when trying to create a connection to `" + address + "`", ex);
+        }
+    }
+
+    /**
+     * Stop all event loop threads, this does not close the connections.
+     */
+    public void shutdown() {
+        for (NetworkEventLoop eventLoop : eventLoops) {
+            eventLoop.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,175 @@
+package com.orbyfied.minem.network;
+
+import com.orbyfied.minem.MinecraftClient;
+import com.orbyfied.minem.buffer.UnsafeByteBuf;
+import com.orbyfied.minem.client.DisconnectReason;
+import com.orbyfied.minem.exception.ClientReadException;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A {@link ProtocolConnection} over a non-blocking {@link SocketChannel} which is driven
+ * by a shared {@link NetworkEventLoop} instead of a dedicated reader thread.
+ */
+public class MultiplexedProtocolConnection extends ProtocolConnection {
+
+    final NetworkEventLoop eventLoop;
+
+    @Getter
+    final SocketChannel channel;
+    SelectionKey key;
+
+    UnsafeByteBuf outputBuffer = UnsafeByteBuf.createDirect(1024 * 4); // The bytes pending to be written to the channel, guarded by the write lock
+
+    boolean readInterest = false;  // Whether the channel should be selected for reading, guarded by the write lock
+    boolean writeInterest = false; // Whether the channel should be selected for writing, guarded by the write lock
+
+    public MultiplexedProtocolConnection(NetworkManager networkManager, MinecraftClient client,
+                                         NetworkEventLoop eventLoop, SocketChannel channel) {
+        super(networkManager, client);
+        this.eventLoop = eventLoop;
+        this.channel = channel;
+        this.socket = channel.socket();
+    }
+
+    public NetworkEventLoop eventLoop() {
+        return eventLoop;
+    }
+
+    @Override
+    public synchronized void start() {
+        initReadState();
+        synchronized (writeLock) {
+            readInterest = true;
+            updateInterest();
+        }
+    }
+
+    @Override
+    public synchronized boolean close() {
+        if (!super.close()) {
+            return false;
+        }
+
+        eventLoop.deregister(this);
+        return true;
+    }
+
+    @Override
+    protected ReadableByteChannel openReadChannel() {
+        throw new UnsupportedOperationException("Multiplexed connections are read by the event loop");
+    }
+
+    @Override
+    protected void executeWrite(Runnable task) {
+        eventLoop.execute(task);
+    }
+
+    @Override
+    protected void writeFrame(UnsafeByteBuf frame) throws Exception {
+        synchronized (writeLock) {
+            // encrypt the frame in place
+            CipherStage stage = encryption;
+            if (stage != null) {
+                stage.apply(frame, frame.readIndex(), frame.remainingWritten());
+            }
+
+            ByteBuffer view = frame.nioReference(frame.readIndex(), frame.remainingWritten());
+
+            // try to write directly to the channel if nothing is pending
+            UnsafeByteBuf out = outputBuffer;
+            if (out.remainingWritten() == 0) {
+                channel.write(view);
+            }
+
+            // queue the rest until the channel is writable
+            int remaining = view.remaining();
+            if (remaining > 0) {
+                out.ensureWriteCapacity(remaining);
+                out.nioReference(out.writeIndex(), remaining).put(view);
+                out.writeIndex(out.writeIndex() + remaining);
+                flushOutput();
+            }
+        }
+    }
+
+    // update the interest set of the selection key, must hold the write lock
+    private void updateInterest() {
+        int ops = (readInterest ? SelectionKey.OP_READ : 0) | (writeInterest ? SelectionKey.OP_WRITE : 0);
+        if (key.isValid() && key.interestOps() != ops) {
+            key.interestOps(ops);
+            if (!eventLoop.inEventLoop()) {
+                key.selector().wakeup();
+            }
+        }
+    }
+
+    // called by the event loop when the channel is readable
+    void onReadable() throws Exception {
+        FrameDecoder decoder = frameDecoder;
+        int read = decoder.readFrom(channel);
+        if (read == -1) {
+            throw new ClientReadException("Connection closed by remote host");
+        }
+
+        if (read > 0) {
+            decoder.decodeFrames();
+        }
+    }
+
+    // called by the event loop when the channel is writable
+    void onWritable() throws IOException {
+        synchronized (writeLock) {
+            flushOutput();
+        }
+    }
+
+    // try to write all pending output to the channel, must hold the write lock
+    private void flushOutput() throws IOException {
+        UnsafeByteBuf out = outputBuffer;
+        int remaining = out.remainingWritten();
+        if (remaining > 0) {
+            int written = channel.write(out.nioReference(out.readIndex(), remaining));
+            out.readIndex(out.readIndex() + written);
+        }
+
+        boolean pending = out.remainingWritten() > 0;
+        if (!pending) {
+            out.reset();
+        }
+
+        if (pending != writeInterest) {
+            writeInterest = pending;
+            updateInterest();
+        }
+    }
+
+    // called by the event loop when an error occurred while handling this connection
+    void onFailure(Throwable t) {
+        if (!isOpen()) {
+            return;
+        }
+
+        ClientReadException ex = t instanceof ClientReadException ? (ClientReadException) t : new ClientReadException(t);
+        onException().invoker().onException(ex);
+        client.disconnect(DisconnectReason.ERROR, ex);
+    }
+
+    // free the buffers after the connection was closed, called on the event loop
+    void releaseBuffers() {
+        frameDecoder.release();
+        synchronized (writeLock) {
+            outputBuffer.free();
+        }
+
+        if (unknownPacketData != null) {
+            unknownPacketData.buffer(null);
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.orbyfied.minem.network;
+
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A single thread which drives the IO of many {@link MultiplexedProtocolConnection}s
+ * using one {@link Selector}.
+ */
+public class NetworkEventLoop implements Runnable {
+
+    final Selector selector;
+    final Thread thread;
+
+    // Tasks to be executed on the event loop thread
+    final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    // The amount of connections registered to this loop
+    final AtomicInteger connectionCount = new AtomicInteger();
+
+    volatile boolean running = true;
+
+    public NetworkEventLoop(String name) {
+        try {
+            this.selector = Selector.open();
+        } catch (Exception ex) {
+            throw new IllegalStateException("Failed to open selector for event loop " + name, ex);
+        }
+
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    public NetworkEventLoop start() {
+        thread.start();
+        return this;
+    }
+
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    public int connectionCount() {
+        return connectionCount.get();
+    }
+
+    public boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Execute the given task on the event loop thread.
+     */
+    public void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    // register the given connection to this loop with no interest set
+    void register(MultiplexedProtocolConnection connection) throws Exception {
+        connection.key = connection.channel.register(selector, 0, connection);
+        connectionCount.incrementAndGet();
+    }
+
+    // called by a connection when it was closed
+    void deregister(MultiplexedProtocolConnection connection) {
+        connectionCount.decrementAndGet();
+        execute(connection::releaseBuffers);
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select(this::processKey);
+
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (Throwable t) {
+                        System.err.println("An error occurred in a task on " + thread.getName());
+                        t.printStackTrace();
+                    }
+                }
+            }
+        } catch (Throwable t) {
+            System.err.println("Event loop " + thread.getName() + " failed");
+            t.printStackTrace();
+        } finally {
+            try {
+                selector.close();
+            } catch (Exception ignored) { }
+        }
+    }
+
+    // handle the ready operations for the given key
+    private void processKey(SelectionKey key) {
+        MultiplexedProtocolConnection connection = (MultiplexedProtocolConnection) key.attachment();
+        try {
+            if (key.isValid() && key.isReadable()) {
+                connection.onReadable();
+            }
+
+            if (key.isValid() && key.isWritable()) {
+                connection.onWritable();
+            }
+        } catch (Throwable t) {
+            connection.onFailure(t);
+        }
+    }
+
+}
@@ -6,15 +6,21 @@ import lombok.RequiredArgsConstructor;
 
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.channels.SocketChannel;
 
+/**
+ * Creates the connections for clients. The default implementation uses a blocking
+ * socket with a dedicated reader thread per connection, see {@link MultiplexedNetworkManager}
+ * for driving many connections from a few threads.
+ */
 @RequiredArgsConstructor
 public class NetworkManager {
 
     public ProtocolConnection connect(MinecraftClient client, InetSocketAddress address) {
         try {
-            // create socket
-            Socket socket = new Socket();
-            socket.connect(address);
+            // create socket, backed by a blocking channel so
+            // the frame decoder can read into direct memory
+            Socket socket = SocketChannel.open(address).socket();
 
             // create connection instance
             ProtocolConnection connection = new ProtocolConnection(this, client);
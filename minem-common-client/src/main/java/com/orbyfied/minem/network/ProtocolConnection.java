@@ -1,7 +1,6 @@
 package com.orbyfied.minem.network;
 
 import com.orbyfied.minem.MinecraftClient;
-import com.orbyfied.minem.buffer.Memory;
 import com.orbyfied.minem.buffer.UnsafeByteBuf;
 import com.orbyfied.minem.client.DisconnectReason;
 import com.orbyfied.minem.concurrent.FastThreadLocal;
@@ -9,7 +8,6 @@ import com.orbyfied.minem.event.Chain;
 import com.orbyfied.minem.event.ExceptionEventHandler;
 import com.orbyfied.minem.event.ExceptionEventSource;
 import com.orbyfied.minem.exception.ClientReadException;
-import com.orbyfied.minem.io.ProtocolIO;
 import com.orbyfied.minem.protocol.*;
 import com.orbyfied.minem.util.ClientDebugUtils;
 import lombok.Getter;
@@ -17,15 +15,17 @@ import lombok.RequiredArgsConstructor;
 import slatepowered.veru.misc.Throwables;
 
 import javax.crypto.Cipher;
-import javax.crypto.CipherInputStream;
-import javax.crypto.CipherOutputStream;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.zip.Deflater;
-import java.util.zip.Inflater;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The client network channel used by {@link MinecraftClient} to
@@ -41,31 +41,48 @@ public class ProtocolConnection extends ProtocolContext implements PacketSink, P
     protected Socket socket; // The actual socket connection
 
     final AtomicBoolean readActive = new AtomicBoolean(false);
+    volatile boolean closed; // Whether this connection was closed, set once while holding the monitor
     Thread readThread; // The connection reader thread
 
-    private OutputStream socketOutput;
-    private InputStream socketInput;
-    private OutputStream encryptingStream;
-    private InputStream decryptedStream;
+    private WritableByteChannel writeChannel; // The channel frames are written to, guarded by the write lock
 
-    // Used by send(Packet) synchronized on deflater
-    byte[] compressedSendingBytes = new byte[1024 * 16];
+    /**
+     * The maximum size of a frame header, being the packet length and
+     * data length VarInts, which is reserved in front of outbound packet data.
+     */
+    static final int MAX_FRAME_HEADER_SIZE = 10;
+
+    // Guards the output stream so packets sent concurrently are not interleaved
+    final Object writeLock = new Object();
 
     // The pool of write buffers
     FastThreadLocal<UnsafeByteBuf> writeBufferPool = new FastThreadLocal<>();
+    FastThreadLocal<UnsafeByteBuf> compressedWriteBufferPool = new FastThreadLocal<>();
 
-    /* Compression */
-    int compressionLevel = 2;         // The compression level to use
-    int compressionThreshold = -1;    // The connection threshold agreed upon with the server, -1 if no compression
-    volatile Cipher decryptionCipher; // The decryption cipher if encryption is enabled
-    volatile Cipher encryptionCipher; // The encryption cipher if encryption is enabled
+    volatile SendQueue sendQueue; // The outbound packet queue, created lazily
 
-    final Deflater deflater = new Deflater();
-    final Inflater inflater = new Inflater();
+    /* Compression */
+    volatile int compressionThreshold = -1; // The connection threshold agreed upon with the server, -1 if no compression
+    final AtomicReference<CompressionCodec> idleCompressionCodec = new AtomicReference<>(); // The codec not currently used by a writer
+    volatile CipherStage decryption;  // The in place decryption if encryption is enabled, used by the reading thread
+    volatile CipherStage encryption;  // The in place encryption if encryption is enabled, guarded by the write lock
+
+    /* Reading */
+    FrameDecoder frameDecoder;    // The decoder for inbound frames, owned by the reading thread
+    volatile DispatchTable receiveTable; // The dispatch table of clientbound packets in the current phase, rebuilt by the reading thread
+    volatile DispatchTable sendTable;    // The dispatch table of serverbound packets in the phase last sent in
+    DispatchQueue dispatchQueue;  // The queue of received packets if they are dispatched off the reading thread
+
+    /* Pooled Instances */
+    PacketContainer unknownPacketContainer; // The reused container for unmapped packets
+    UnknownPacket unknownPacketData;        // The reused data for unmapped packets
+    Map<PacketMapping, PacketPool> packetPools; // The pools of received packets by mapping if recycling is enabled, owned by the reading thread
+    PacketView packetView;                      // The reused view of received packets if views are enabled, owned by the reading thread
 
     /* Events */
     AtomicInteger countReceived = new AtomicInteger();
     AtomicInteger countSent = new AtomicInteger();
+    int countSkipped = 0; // The amount of received packets nobody was interested in, written by the reading thread
 
     @Override
     public Protocol getProtocol() {
@@ -83,6 +100,7 @@ public class ProtocolConnection extends ProtocolContext implements PacketSink, P
             return false;
         }
 
+        closed = true;
         try {
             readActive.set(false);
             if (!socket.isClosed()) {
@@ -94,6 +112,23 @@ public class ProtocolConnection extends ProtocolContext implements PacketSink, P
             writeBufferPool.forEach((integer, byteBuf) -> {
                 byteBuf.free();
             });
+
+            compressedWriteBufferPool.forEach((integer, byteBuf) -> {
+                byteBuf.free();
+            });
+
+            CompressionCodec codec = idleCompressionCodec.getAndSet(null);
+            if (codec != null) {
+                codec.release();
+            }
+
+            if (sendQueue != null) {
+                sendQueue.release();
+            }
+
+            if (dispatchQueue != null) {
+                dispatchQueue.release();
+            }
         }
 
         return true;
@@ -115,7 +150,7 @@ public class ProtocolConnection extends ProtocolContext implements PacketSink, P
     public synchronized void start() {
         // create the read thread if needed
         if (readThread == null) {
-            readThread = new Thread(this::runReadThread, "ProtocolConnectionBlockingWorker");
+            readThread = client.getThreadMode().newThread("ProtocolConnectionBlockingWorker", this::runReadThread);
         }
 
         readThread.start();
@@ -131,106 +166,265 @@ public class ProtocolConnection extends ProtocolContext implements PacketSink, P
      * Register the given encryption cipher to this connection.
      */
     public synchronized void withCiphers(Cipher encryption, Cipher decryption) {
-        this.encryptionCipher = encryption;
-        this.decryptionCipher = decryption;
-        encryptingStream = null;
-        decryptedStream = null;
+        synchronized (writeLock) {
+            this.encryption = new CipherStage(encryption);
+        }
+
+        this.decryption = new CipherStage(decryption);
+    }
+
+    /**
+     * Synchronously send the given packet unencrypted and register the given ciphers for
+     * everything after it. The decryption is registered before sending, so this can be called
+     * from any thread while the connection is being read as long as the server sends nothing
+     * until it receives the packet, like with the encryption response.
+     *
+     * @param packet The last unencrypted packet.
+     */
+    public synchronized void sendThenEncrypt(PacketContainer packet, Cipher encryption, Cipher decryption) {
+        this.decryption = new CipherStage(decryption);
+        flushSendQueue();
+        synchronized (writeLock) {
+            writePacket(packet);
+            this.encryption = new CipherStage(encryption);
+        }
     }
 
     /**
-     * Synchronously serialize and send the given packet to the server.
+     * Synchronously serialize and send the given packet to the server, bypassing
+     * the send queue. The packets queued before are flushed first, so packets sent
+     * through both are written in the order they were sent.
      *
      * @param packet The packet.
      */
     @Override
     public void sendSync(PacketContainer packet) {
+        flushSendQueue();
+        writePacket(packet);
+    }
+
+    // flush the send queue if it was created
+    private void flushSendQueue() {
+        SendQueue queue = sendQueue;
+        if (queue != null) {
+            queue.flush();
+        }
+    }
+
+    // encode and write the given packet on the calling thread
+    private void writePacket(PacketContainer packet) {
         try {
-            packet.set(PacketContainer.OUTBOUND);
+            UnsafeByteBuf frame = encodePacket(packet);
+            if (frame != null) {
+                writeFrame(frame);
+            }
+        } catch (Exception ex) {
+            throw sendFailed(packet, ex);
+        }
+    }
 
-            // call events
-            var h = client.onTypedSent().orNull(packet.getMapping());
-            if (h != null) {
-                h.invoker().onPacket(packet);
-                if (packet.check(PacketContainer.CANCEL)) {
-                    return;
+    /**
+     * Queue the given packet to be serialized and sent by the writer of
+     * the send queue.
+     *
+     * @param packet The packet.
+     * @return Whether the packet was queued, false if it was dropped by the overflow policy.
+     */
+    @Override
+    public boolean sendAsync(PacketContainer packet) {
+        return sendAsync(packet, false);
+    }
+
+    /**
+     * Queue the given packet to be serialized and sent by the writer of the send queue,
+     * in the priority lane if specified which is drained before the normal lane.
+     *
+     * @param packet The packet.
+     * @param priority Whether to queue the packet in the priority lane.
+     * @return Whether the packet was queued, false if it was dropped by the overflow policy
+     *         or the connection is closed.
+     */
+    public boolean sendAsync(PacketContainer packet, boolean priority) {
+        SendQueue queue = getSendQueue();
+        return queue != null && queue.offer(packet, priority);
+    }
+
+    /**
+     * Get or create the send queue for this connection, configured by the client.
+     *
+     * @return The send queue, or null if the connection was closed before it was created.
+     */
+    public SendQueue getSendQueue() {
+        SendQueue queue = sendQueue;
+        if (queue == null) {
+            synchronized (this) {
+                if (closed) {
+                    return null;
                 }
-            }
 
-            client.onPacketSink().invoker().onPacket(packet);
-            if (packet.check(PacketContainer.CANCEL)) {
-                return;
+                if ((queue = sendQueue) == null) {
+                    queue = sendQueue = new SendQueue(this, client.getSendQueueCapacity(), client.getSendQueueOverflowPolicy(), client.getSendQueueFlushMode());
+                }
             }
+        }
 
-            client.onPacket().invoker().onPacket(packet);
+        return queue;
+    }
+
+    /**
+     * Flush the packets queued this tick, called by the client at the end of every tick.
+     * Does not create the send queue, so idle connections never allocate one.
+     */
+    public void tickSendQueue() {
+        SendQueue queue = sendQueue;
+        if (queue != null && isOpen()) {
+            queue.tick();
+        }
+    }
+
+    /**
+     * Execute the given task which drains the send queue.
+     */
+    protected void executeWrite(Runnable task) {
+        client.getExecutor().execute(task);
+    }
+
+    // handle an exception while sending the given packet
+    RuntimeException sendFailed(PacketContainer packet, Exception ex) {
+        RuntimeException ex2 = new RuntimeException("An exception occurred while sending packet\n  " + (packet != null ? ClientDebugUtils.debugInfo(packet) : "batch"), ex);
+        client.disconnect(DisconnectReason.ERROR, ex2);
+        return ex2;
+    }
+
+    /**
+     * Call the send events for the given packet and encode it into a complete frame.
+     *
+     * @param packet The packet.
+     * @return The buffer containing the frame between its read and write offsets, only valid
+     *         on the calling thread until the next packet is encoded, or null if the packet was cancelled.
+     */
+    protected UnsafeByteBuf encodePacket(PacketContainer packet) throws Exception {
+        packet.set(PacketContainer.OUTBOUND);
+
+        // call events
+        PacketHandler h = typedSentInvoker(packet.getMapping());
+        if (h != null) {
+            h.onPacket(packet);
             if (packet.check(PacketContainer.CANCEL)) {
-                return;
+                return null;
             }
+        }
 
-            // prepare IO/buffers
-            OutputStream stream = getOutputStream();
-            UnsafeByteBuf buf = getWriteBuffer();
-            buf.reset();
-
-            // write packet type and data
-            buf.writeVarInt(packet.getNetworkId());
-            packet.getMapping().writePacketData(packet, buf);
-            int dataLength = buf.remainingWritten();
-
-            if (compressionThreshold == -1 || dataLength < compressionThreshold) {
-                // uncompressed
-                if (compressionThreshold != -1) {
-                    // uncompressed, below threshold
-                    // write full packet length
-                    int totalPacketSize = 1 + dataLength;                    // length of dataLength + dataLength
-                    ProtocolIO.writeVarIntToStream(stream, totalPacketSize); // write the total packet size (VarInt)
-                    stream.write(0);                                      // write 0 for dataLength (0 bc uncompressed)
-                } else {
-                    // uncompressed, no compression set
-                    // write length directly, then write the buffer
-                    ProtocolIO.writeVarIntToStream(stream, dataLength);
-                }
+        client.onPacketSink().invoker().onPacket(packet);
+        if (packet.check(PacketContainer.CANCEL)) {
+            return null;
+        }
 
-                int written = buf.readTo(stream, dataLength); // write uncompressed data
-            } else {
-                // compressed, set and above threshold
-                synchronized (deflater) {
-                    this.compressedSendingBytes = Memory.ensureByteArrayCapacity(this.compressedSendingBytes, buf.remainingWritten() * 2);
-
-                    deflater.reset();
-                    deflater.setInput(buf.nioReference());
-                    int compressedSize = deflater.deflate(compressedSendingBytes);
-                    deflater.finish();
-
-                    int dataLengthSize = ProtocolIO.lengthVarInt(dataLength);
-                    ProtocolIO.writeVarIntToStream(stream, compressedSize + dataLengthSize);
-                    ProtocolIO.writeVarIntToStream(stream, dataLength);
-                    stream.write(compressedSendingBytes);
-                }
+        client.onPacket().invoker().onPacket(packet);
+        if (packet.check(PacketContainer.CANCEL)) {
+            return null;
+        }
+
+        // prepare IO/buffers, reserving space for the frame header
+        UnsafeByteBuf buf = getWriteBuffer();
+        buf.resetWithHeadroom(MAX_FRAME_HEADER_SIZE);
+
+        // write packet type and data
+        buf.writeVarInt(packet.getNetworkId());
+        packet.getMapping().writePacketData(packet, buf);
+        int dataLength = buf.remainingWritten();
+        countSent.incrementAndGet();
+
+        if (compressionThreshold == -1) {
+            // uncompressed, no compression set
+            // prefix the data with its length directly
+            buf.prependVarInt(dataLength);
+            return buf;
+        } else if (dataLength < compressionThreshold) {
+            // uncompressed, below threshold
+            buf.prependByte((byte) 0);         // write 0 for dataLength (0 bc uncompressed)
+            buf.prependVarInt(1 + dataLength); // write the total packet size, length of dataLength + dataLength
+            return buf;
+        }
+
+        // compressed, set and above threshold
+        UnsafeByteBuf compressed = getCompressedWriteBuffer();
+        compressed.resetWithHeadroom(MAX_FRAME_HEADER_SIZE);
+        CompressionCodec codec = acquireCompressionCodec();
+        try {
+            codec.compress(buf, buf.readIndex(), dataLength, compressed);
+        } finally {
+            releaseCompressionCodec(codec);
+        }
+
+        compressed.prependVarInt(dataLength);                    // write the uncompressed data length
+        compressed.prependVarInt(compressed.remainingWritten()); // write the total packet size
+        return compressed;
+    }
+
+    /**
+     * Write the complete frame between the read and write offsets of the given
+     * buffer to the connection with a single write, encrypting it if enabled.
+     *
+     * The contents of the buffer may be modified by this method.
+     *
+     * @param frame The buffer containing the frame.
+     */
+    protected void writeFrame(UnsafeByteBuf frame) throws Exception {
+        synchronized (writeLock) {
+            int offset = frame.readIndex();
+            int length = frame.remainingWritten();
+
+            // encrypt the frame in place
+            CipherStage stage = encryption;
+            if (stage != null) {
+                stage.apply(frame, offset, length);
             }
 
-            stream.flush();
-        } catch (Exception ex) {
-            RuntimeException ex2 = new RuntimeException("An exception occurred while sending packet\n  " + ClientDebugUtils.debugInfo(packet), ex);
-            client.disconnect(DisconnectReason.ERROR, ex2);
-            throw ex2;
+            if (writeChannel == null) {
+                writeChannel = openWriteChannel();
+            }
+
+            ByteBuffer view = frame.nioReference(offset, length);
+            while (view.hasRemaining()) {
+                writeChannel.write(view);
+            }
         }
     }
 
-    // run() for the connection read thread
-    private void runReadThread() {
-        UnsafeByteBuf buf = UnsafeByteBuf.createDirect(1024);
-        byte[] compressedReadPacket = new byte[1024 * 16];
+    // initialize the pooled instances used when reading packets
+    void initReadState() {
+        if (unknownPacketContainer != null) {
+            return;
+        }
+
+        frameDecoder = new FrameDecoder(this);
+        if (client.isPacketViews()) {
+            packetView = new PacketView();
+        }
+
+        if (client.isPacketRecycling()) {
+            packetPools = new IdentityHashMap<>();
+        }
 
-        /* Pooled Instances */
-        PacketContainer unknownPacketContainer = UnknownPacket.CLIENTBOUND_MAPPING.createPacketContainerWithData(this);
-        UnknownPacket unknownPacketData = new UnknownPacket();
+        if (client.getDispatchMode() == DispatchQueue.Mode.QUEUED) {
+            dispatchQueue = new DispatchQueue(this, client.getDispatchQueueCapacity(), client.getDispatchExecutor());
+        }
+
+        unknownPacketContainer = UnknownPacket.CLIENTBOUND_MAPPING.createPacketContainerWithData(this);
+        unknownPacketData = new UnknownPacket();
         unknownPacketContainer.source(this);
         unknownPacketContainer.set(PacketContainer.INBOUND);
         unknownPacketContainer.withData(unknownPacketData);
+    }
 
-        PacketContainer packet; // for release of any resources
+    // run() for the connection read thread
+    private void runReadThread() {
+        initReadState();
+        FrameDecoder decoder = frameDecoder;
 
         try {
+            ReadableByteChannel channel = openReadChannel();
             while (client.isActive()) {
                 if (!readActive.get()) {
                     synchronized (readActive) {
@@ -242,88 +436,17 @@ public class ProtocolConnection extends ProtocolContext implements PacketSink, P
 
                 while (!socket.isClosed() && socket.isConnected()) {
                     try {
-                        InputStream stream = getInputStream();
-
-                        // check if compression is set, then decide
-                        // how to read packet and data length
-                        if (compressionThreshold != -1) {
-                            int packetLength = ProtocolIO.readVarIntFromStream(stream);
-                            int decompressedDataLength = ProtocolIO.readVarIntFromStream(stream);
-
-                            int viSizeDataLength = ProtocolIO.lengthVarInt(decompressedDataLength);
-                            int compressedDataLength = packetLength - viSizeDataLength;
-
-                            buf.reset();
-
-                            if (decompressedDataLength == 0) {
-                                // uncompressed packet
-                                buf.writeFrom(stream, compressedDataLength);
-                            } else {
-                                // read compressed packet
-                                compressedReadPacket = Memory.ensureByteArrayCapacity(compressedReadPacket, compressedDataLength);
-                                int readDataLength = 0;
-                                while (readDataLength < compressedDataLength) {
-                                    readDataLength += stream.read(compressedReadPacket, readDataLength, compressedDataLength - readDataLength);
-                                }
-
-                                // decompress packet data
-                                synchronized (inflater) {
-                                    buf.ensureWriteCapacity(decompressedDataLength);
-                                    inflater.reset();
-                                    inflater.setInput(compressedReadPacket, 0, compressedDataLength);
-                                    inflater.inflate(buf.nioReference());
-                                }
-                            }
-                        } else {
-                            int dataLength = ProtocolIO.readVarIntFromStream(stream);
-                            buf.reset();
-                            buf.writeFrom(stream, dataLength);
-                        }
-
-                        ProtocolPhase phase = client.getState().getPhase();
-                        int packetID = buf.readVarInt();
-                        PacketMapping mapping = getProtocol()
-                                .forPhase(phase)
-                                .getClientboundPacketMapping(packetID);
-                        if (mapping != null) {
-                            packet = mapping.createPacketContainerWithData(this);
-                            mapping.readPacketData(packet, buf);
-                        } else {
-                            // create unknown packet
-                            mapping = UnknownPacket.CLIENTBOUND_MAPPING;
-                            packet = unknownPacketContainer;
-                            unknownPacketData.buffer(buf);
-                            packet.networkId = packetID;
-                            packet.phase = phase;
+                        // read the next chunk and handle all complete frames
+                        if (decoder.readFrom(channel) == -1) {
+                            throw new ClientReadException("Connection closed by remote host");
                         }
 
-                        packet.source(this);
-                        packet.set(PacketContainer.INBOUND);
-                        packet.clear(PacketContainer.CANCEL);
-
-                        countReceived.incrementAndGet();
-
-                        // invoke event chains
-                        client.onPacketReceived().invoker().onPacket(packet);
-                        if (packet.check(PacketContainer.CANCEL)) {
-                            continue;
-                        }
-
-                        var h = client.onTypedReceived().orNull(packet.getMapping());
-                        if (h != null) {
-                            h.invoker().onPacket(packet);
-                            if (packet.check(PacketContainer.CANCEL)) {
-                                continue;
-                            }
+                        decoder.decodeFrames();
+                    } catch (Exception ex) {
+                        if (socket.isClosed()) {
+                            break;
                         }
 
-                        client.onPacket().invoker().onPacket(packet);
-
-                        // release buffer from packet after being handled
-                        if (packet.isUnknown()) {
-                            unknownPacketData.buffer(null);
-                        }
-                    } catch (Exception ex) {
                         ex.printStackTrace();
                         Throwables.sneakyThrow(ex); // todo error handling
                     }
@@ -334,12 +457,246 @@ public class ProtocolConnection extends ProtocolContext implements PacketSink, P
         } catch (Exception ex) {
             onException().invoker().onException(new ClientReadException(ex));
         } finally {
-            buf.free();
+            decoder.release();
 
             unknownPacketData.buffer(null);
         }
     }
 
+    /**
+     * Decode the packet data in the given buffer, starting with the packet ID at the
+     * current read index and ending at the write index, and invoke the event chains
+     * for the resulting packet or queue it to be dispatched.
+     *
+     * This must be called from the thread reading from this connection, as the
+     * pooled instances used for unknown packets are not thread-safe.
+     *
+     * @param buf The buffer containing the (decompressed) packet data.
+     */
+    protected void receivePacketData(UnsafeByteBuf buf) {
+        PacketContainer packet;
+
+        ProtocolPhase phase = client.getState().getPhase();
+        DispatchTable table = receiveTable(phase);
+        int packetID = buf.readVarInt();
+        PacketMapping mapping = table.mapping(packetID);
+        if (!isInterested(table, packetID)) {
+            // skip decoding the packet
+            skippedPacket();
+            return;
+        }
+
+        DispatchQueue queue = dispatchQueue;
+        boolean queued = queue != null && phase == ProtocolPhases.PLAY;
+        if (mapping != null) {
+            if (packetView != null && !queued && mapping.getSchema() != null) {
+                // bind the view, the data is read only if a handler accesses it
+                packet = packetPools != null
+                        ? packetPools.computeIfAbsent(mapping, m -> new PacketPool(m, this, PacketPool.DEFAULT_CAPACITY)).acquire()
+                        : mapping.createPacketContainer(this);
+                packetView.bind(packet, mapping.getSchema(), buf);
+            } else {
+                packet = packetPools != null
+                        ? packetPools.computeIfAbsent(mapping, m -> new PacketPool(m, this, PacketPool.DEFAULT_CAPACITY)).acquire()
+                        : mapping.createPacketContainerWithData(this);
+                mapping.readPacketData(packet, buf);
+            }
+        } else {
+            // create unknown packet
+            packet = unknownPacketContainer;
+            unknownPacketData.buffer(buf);
+            packet.networkId = packetID;
+            packet.phase = phase;
+        }
+
+        packet.source(this);
+        packet.set(PacketContainer.INBOUND);
+        packet.clear(PacketContainer.CANCEL);
+
+        countReceived.incrementAndGet();
+
+        if (queued) {
+            if (packet == unknownPacketContainer) {
+                packet = copyUnknownPacket(packet, buf);
+            }
+
+            if (!queue.offer(packet)) {
+                discardReceived(packet);
+            }
+
+            return;
+        }
+
+        dispatchReceived(packet);
+    }
+
+    /**
+     * Invoke the event chains for the given received packet.
+     *
+     * @param packet The packet.
+     */
+    protected void dispatchReceived(PacketContainer packet) {
+        try {
+            // the base handlers keep the connection alive, so they run first and can not be cancelled
+            PacketHandler base = baseReceivedHandler(packet.getMapping());
+            if (base != null) {
+                base.onPacket(packet);
+            }
+
+            // invoke event chains
+            client.onPacketReceived().invoker().onPacket(packet);
+            if (packet.check(PacketContainer.CANCEL)) {
+                return;
+            }
+
+            PacketHandler h = typedReceivedInvoker(packet.getMapping());
+            if (h != null) {
+                h.onPacket(packet);
+                if (packet.check(PacketContainer.CANCEL)) {
+                    return;
+                }
+            }
+
+            client.onPacket().invoker().onPacket(packet);
+        } finally {
+            // release the buffer or recycle the packet after being handled
+            discardReceived(packet);
+        }
+    }
+
+    // release the resources of the given received packet, or return it
+    // to its pool unless it was retained
+    void discardReceived(PacketContainer packet) {
+        if (packet.isUnknown()) {
+            UnknownPacket data = packet.data();
+            if (data != unknownPacketData) {
+                data.buffer().free();
+            }
+
+            data.buffer(null);
+        } else {
+            // the view is only valid until the frame buffer is reused
+            packet.releaseView();
+            if (packet.isPooled()) {
+                packet.getPool().release(packet);
+            }
+        }
+    }
+
+    // copy the pooled unknown packet, so it can be handled after the buffer it refers to is reused
+    private PacketContainer copyUnknownPacket(PacketContainer packet, UnsafeByteBuf buf) {
+        UnsafeByteBuf copy = UnsafeByteBuf.createDirect(Math.max(1, buf.remainingWritten()));
+        copy.writeBytes(buf, buf.readIndex(), buf.remainingWritten());
+        unknownPacketData.buffer(null);
+
+        PacketContainer container = UnknownPacket.CLIENTBOUND_MAPPING.createPacketContainerWithData(this);
+        container.<UnknownPacket>data().buffer(copy);
+        container.networkId = packet.networkId;
+        container.phase = packet.phase;
+        container.source(this);
+        container.set(PacketContainer.INBOUND);
+        return container;
+    }
+
+    /**
+     * Whether any handler is interested in the given clientbound packet, packets
+     * nobody is interested in are skipped without being decoded or decompressed.
+     *
+     * @param mapping The packet mapping, or null for unknown packets.
+     * @return Whether the packet should be handled.
+     */
+    public boolean isInterested(PacketMapping mapping) {
+        if (!client.onPacketReceived().isEmpty() || !client.onPacket().isEmpty()) {
+            return true;
+        }
+
+        if (mapping != null && client.baseReceivedHandler(mapping) != null) {
+            return true;
+        }
+
+        Chain<PacketHandler> chain = client.onTypedReceived().orNull(mapping != null ? mapping : UnknownPacket.CLIENTBOUND_MAPPING);
+        return chain != null && !chain.isEmpty();
+    }
+
+    /**
+     * Whether any handler is interested in the clientbound packet with
+     * the given network ID in the current phase.
+     *
+     * @see #isInterested(PacketMapping)
+     */
+    public boolean isInterested(int packetID) {
+        return isInterested(receiveTable(client.getState().getPhase()), packetID);
+    }
+
+    // whether any handler is interested in the packet with the given network ID in the table
+    private boolean isInterested(DispatchTable table, int packetID) {
+        return !client.onPacketReceived().isEmpty() || !client.onPacket().isEmpty() || table.isInterested(packetID);
+    }
+
+    // get the dispatch table of clientbound packets in the given phase,
+    // rebuilding it if the phase or protocol changed
+    DispatchTable receiveTable(ProtocolPhase phase) {
+        DispatchTable table = receiveTable;
+        if (table == null || !table.isFor(getProtocol(), phase)) {
+            receiveTable = table = new DispatchTable(getProtocol(), phase, Destination.CLIENTBOUND, client.onTypedReceived(), client::baseReceivedHandler);
+        }
+
+        return table;
+    }
+
+    // get the base handler for the given received mapping, or null if there is none
+    private PacketHandler baseReceivedHandler(PacketMapping mapping) {
+        DispatchTable table = receiveTable;
+        if (table != null && table.covers(mapping)) {
+            return table.baseHandler(mapping);
+        }
+
+        return client.baseReceivedHandler(mapping);
+    }
+
+    // get the invoker of the typed receive chain for the given mapping, or null if there are no handlers
+    private PacketHandler typedReceivedInvoker(PacketMapping mapping) {
+        DispatchTable table = receiveTable;
+        if (table != null && table.covers(mapping)) {
+            return table.invoker(mapping);
+        }
+
+        return invokerOrNull(client.onTypedReceived().orNull(mapping));
+    }
+
+    // get the invoker of the typed send chain for the given mapping, or null if there are no handlers,
+    // the table is rebuilt for the phase of the mapping when it changes
+    private PacketHandler typedSentInvoker(PacketMapping mapping) {
+        DispatchTable table = sendTable;
+        if (mapping.getRegistryId() >= 0 && (table == null || !table.isFor(getProtocol(), mapping.getPhase()))) {
+            sendTable = table = new DispatchTable(getProtocol(), mapping.getPhase(), Destination.SERVERBOUND, client.onTypedSent(), null);
+        }
+
+        if (table != null && table.covers(mapping)) {
+            return table.invoker(mapping);
+        }
+
+        return invokerOrNull(client.onTypedSent().orNull(mapping));
+    }
+
+    private static PacketHandler invokerOrNull(Chain<PacketHandler> chain) {
+        return chain != null && !chain.isEmpty() ? chain.invoker() : null;
+    }
+
+    // called on the reading thread for each received packet which is skipped
+    void skippedPacket() {
+        countReceived.incrementAndGet();
+        countSkipped++;
+    }
+
+    /**
+     * The amount of received packets which were skipped because
+     * nobody was interested in them.
+     */
+    public int countSkipped() {
+        return countSkipped;
+    }
+
     @Override
     public Chain<PacketHandler> onPacketSink() {
         return client.onPacketSink();
@@ -355,36 +712,22 @@ public class ProtocolConnection extends ProtocolContext implements PacketSink, P
         return client.onPacketReceived();
     }
 
-    // Get the current output stream to use
-    private OutputStream getOutputStream() {
-        try {
-            if (socketOutput == null) {
-                socketOutput = socket.getOutputStream();
-            }
-
-            return encryptionCipher != null ?
-                    (encryptingStream != null ? encryptingStream : (encryptingStream = new CipherOutputStream(socketOutput, encryptionCipher))) :
-                    socketOutput;
-        } catch (Exception ex) {
-            Throwables.sneakyThrow(ex);
-            throw new AssertionError();
-        }
+    /**
+     * Open the raw (unencrypted) channel to write frames to, frames are written
+     * directly from their buffer if the socket has a channel.
+     */
+    protected WritableByteChannel openWriteChannel() throws Exception {
+        SocketChannel channel = socket.getChannel();
+        return channel != null ? channel : Channels.newChannel(socket.getOutputStream());
     }
 
-    // Get the current input stream to use
-    private InputStream getInputStream() {
-        try {
-            if (socketInput == null) {
-                socketInput = socket.getInputStream();
-            }
-
-            return decryptionCipher != null ?
-                    (decryptedStream != null ? decryptedStream : (decryptedStream = new CipherInputStream(socketInput, decryptionCipher))) :
-                    socketInput;
-        } catch (Exception ex) {
-            Throwables.sneakyThrow(ex);
-            throw new AssertionError();
-        }
+    /**
+     * Open the raw (undecrypted) channel to read packet data from, the frame
+     * decoder reads directly into its buffer if the socket has a channel.
+     */
+    protected ReadableByteChannel openReadChannel() throws Exception {
+        SocketChannel channel = socket.getChannel();
+        return channel != null ? channel : Channels.newChannel(socket.getInputStream());
     }
 
     // get or create a byte buffer for writing packets
@@ -392,9 +735,36 @@ public class ProtocolConnection extends ProtocolContext implements PacketSink, P
         return writeBufferPool.getOrCompute(() -> UnsafeByteBuf.createDirect(1024));
     }
 
+    // get or create a byte buffer for compressing packets
+    private UnsafeByteBuf getCompressedWriteBuffer() {
+        return compressedWriteBufferPool.getOrCompute(() -> UnsafeByteBuf.createDirect(1024));
+    }
+
     public void setCompressionThreshold(int threshold) {
-        synchronized (deflater) {
-            this.compressionThreshold = threshold;
+        this.compressionThreshold = threshold;
+    }
+
+    /**
+     * Create a new compression codec as configured on the client.
+     */
+    public CompressionCodec newCompressionCodec() {
+        return client.getCompressionCodecFactory().create(client.getCompressionLevel());
+    }
+
+    // take the idle compression codec, or create a new one if another
+    // writer is currently using it
+    private CompressionCodec acquireCompressionCodec() {
+        CompressionCodec codec = idleCompressionCodec.getAndSet(null);
+        return codec != null ? codec : newCompressionCodec();
+    }
+
+    // return the given codec to be reused, releasing it if another one
+    // was returned first or the connection was closed in the meantime
+    private void releaseCompressionCodec(CompressionCodec codec) {
+        if (!idleCompressionCodec.compareAndSet(null, codec)) {
+            codec.release();
+        } else if (socket.isClosed() && idleCompressionCodec.compareAndSet(codec, null)) {
+            codec.release();
         }
     }
 
@@ -0,0 +1,327 @@
+package com.orbyfied.minem.network;
+
+import com.orbyfied.minem.buffer.UnsafeByteBuf;
+import com.orbyfied.minem.concurrent.MpscQueue;
+import com.orbyfied.minem.exception.SendQueueOverflowException;
+import com.orbyfied.minem.protocol.PacketContainer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The outbound packet queue of a {@link ProtocolConnection}, packets can be queued from any
+ * thread and are drained in batches by a single writer at a time, which encodes them into one
+ * buffer and writes and flushes it at once.
+ *
+ * Packets in the priority lane, like keep-alive responses, are always drained before the
+ * normal lane and trigger a drain immediately regardless of the {@link FlushMode}.
+ */
+public class SendQueue {
+
+    /**
+     * What to do when a packet is queued while the queue is at capacity.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Drain the queue on the calling thread, or wait for the current writer, until there is space.
+         * A drain which was scheduled but did not start yet is taken over by the caller, so this does
+         * not wait on the executor the caller may be running on. Dropped like {@link #DROP} when called
+         * by the writer itself while it is draining.
+         */
+        CALLER_RUNS,
+
+        /** Discard the packet, {@link ProtocolConnection#sendAsync(PacketContainer)} returns false. */
+        DROP,
+
+        /** Throw a {@link SendQueueOverflowException}. */
+        FAIL
+    }
+
+    /**
+     * When the queue should be drained.
+     */
+    public enum FlushMode {
+        /** Schedule a drain as soon as a packet is queued. */
+        IMMEDIATE,
+
+        /** Drain once per client tick, falls back to {@link #IMMEDIATE} if ticking is disabled. */
+        TICK
+    }
+
+    // The maximum amount of bytes written in one batch
+    static final int MAX_BATCH_BYTES = 1024 * 64;
+
+    final ProtocolConnection connection;
+
+    final MpscQueue<PacketContainer> queue;         // The normal lane
+    final MpscQueue<PacketContainer> priorityQueue; // The priority lane, drained first
+    final OverflowPolicy overflowPolicy;
+    final FlushMode flushMode;
+
+    /* Writer States */
+    static final int IDLE = 0;      // No writer owns the queue
+    static final int SCHEDULED = 1; // A drain was passed to the executor but did not start yet, can be taken over
+    static final int DRAINING = 2;  // A writer is draining the queue
+
+    final AtomicInteger state = new AtomicInteger(IDLE); // The writer state, owning the queue unless idle
+    volatile Thread writer;                              // The thread currently draining, null if none
+    volatile boolean released = false;                   // Whether the connection was closed
+    final UnsafeByteBuf batchBuffer = UnsafeByteBuf.createDirect(1024 * 4); // The encoded frames of the current batch, owned by the writer
+
+    /* Metrics */
+    volatile int maxDepth = 0;
+    final AtomicLong countDropped = new AtomicLong();
+    final AtomicLong countOverflows = new AtomicLong();
+    final AtomicLong countDrained = new AtomicLong();
+    final AtomicLong countBatches = new AtomicLong();
+
+    public SendQueue(ProtocolConnection connection, int capacity, OverflowPolicy overflowPolicy, FlushMode flushMode) {
+        this.connection = connection;
+        this.queue = new MpscQueue<>(capacity);
+        this.priorityQueue = new MpscQueue<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.flushMode = flushMode;
+    }
+
+    /**
+     * Queue the given packet to be sent.
+     *
+     * @param packet The packet.
+     * @param priority Whether to queue it in the priority lane.
+     * @return Whether the packet was queued, false if the queue was released.
+     * @throws SendQueueOverflowException If the queue is full and the overflow policy is {@link OverflowPolicy#FAIL}.
+     */
+    public boolean offer(PacketContainer packet, boolean priority) {
+        if (released) {
+            return false;
+        }
+
+        MpscQueue<PacketContainer> lane = priority ? priorityQueue : queue;
+        if (!lane.offer(packet)) {
+            countOverflows.incrementAndGet();
+            do {
+                switch (overflowPolicy) {
+                    case DROP -> {
+                        countDropped.incrementAndGet();
+                        return false;
+                    }
+
+                    case FAIL -> throw new SendQueueOverflowException("Send queue is full (capacity: " + lane.capacity() + ")");
+
+                    case CALLER_RUNS -> {
+                        if (released || writer == Thread.currentThread()) {
+                            // the writer can not wait for itself
+                            countDropped.incrementAndGet();
+                            return false;
+                        }
+
+                        if (!tryDrain()) {
+                            // let the current writer make progress
+                            Thread.yield();
+                        }
+                    }
+                }
+            } while (!lane.offer(packet));
+        }
+
+        int depth = depth();
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+
+        if (priority || flushMode == FlushMode.IMMEDIATE || !connection.client.isTickingEnabled()) {
+            scheduleDrain();
+        }
+
+        return true;
+    }
+
+    /**
+     * Called every client tick, drains the queue if the flush mode is {@link FlushMode#TICK}.
+     */
+    public void tick() {
+        if (flushMode == FlushMode.TICK && !isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Write all queued packets before returning, draining on the calling thread once the
+     * current writer finished, so nothing queued before is written after what the caller
+     * writes next. Returns immediately when called by the writer itself.
+     */
+    public void flush() {
+        if (writer == Thread.currentThread()) {
+            return;
+        }
+
+        while (!released && (!isEmpty() || state.get() == DRAINING)) {
+            if (!tryDrain()) {
+                // let the current writer finish its batch
+                Thread.yield();
+            }
+        }
+    }
+
+    // schedule a drain on the connection's writer executor if none is in progress
+    void scheduleDrain() {
+        if (state.compareAndSet(IDLE, SCHEDULED)) {
+            try {
+                connection.executeWrite(this::runScheduled);
+            } catch (RuntimeException ex) {
+                state.compareAndSet(SCHEDULED, IDLE);
+                throw ex;
+            }
+        }
+    }
+
+    // run a scheduled drain, unless it was taken over in the meantime
+    private void runScheduled() {
+        if (state.compareAndSet(SCHEDULED, DRAINING)) {
+            drainAndRelease();
+        }
+    }
+
+    // try to drain on the calling thread if no other writer is draining,
+    // taking over a drain which is scheduled but did not start yet
+    boolean tryDrain() {
+        if (!state.compareAndSet(IDLE, DRAINING) && !state.compareAndSet(SCHEDULED, DRAINING)) {
+            return false;
+        }
+
+        drainAndRelease();
+        return true;
+    }
+
+    // drain the queue while owning it, then release ownership
+    private void drainAndRelease() {
+        writer = Thread.currentThread();
+        try {
+            drain();
+        } finally {
+            writer = null;
+            state.set(IDLE);
+        }
+
+        if (released) {
+            // the connection was closed while draining
+            if (state.compareAndSet(IDLE, DRAINING)) {
+                freeResources();
+            }
+        } else if (!isEmpty()) {
+            // reschedule if packets were queued after the last poll
+            scheduleDrain();
+        }
+    }
+
+    // drain all queued packets in batches, must own the queue
+    private void drain() {
+        UnsafeByteBuf out = batchBuffer;
+        PacketContainer packet = null;
+        try {
+            while (connection.isOpen()) {
+                out.reset();
+                int count = 0;
+                while (out.writeIndex() < MAX_BATCH_BYTES && (packet = poll()) != null) {
+                    UnsafeByteBuf frame = connection.encodePacket(packet);
+                    if (frame != null) {
+                        out.writeBytes(frame, frame.readIndex(), frame.remainingWritten());
+                        count++;
+                    }
+                }
+
+                packet = null;
+                if (count == 0) {
+                    break;
+                }
+
+                connection.writeFrame(out);
+                countDrained.addAndGet(count);
+                countBatches.incrementAndGet();
+            }
+        } catch (Exception ex) {
+            queue.clear();
+            priorityQueue.clear();
+            connection.sendFailed(packet, ex);
+        }
+    }
+
+    // poll the next packet, preferring the priority lane
+    private PacketContainer poll() {
+        PacketContainer packet = priorityQueue.poll();
+        return packet != null ? packet : queue.poll();
+    }
+
+    // free the resources after the connection was closed, deferred to
+    // the end of the current drain if one is in progress
+    void release() {
+        released = true;
+        if (state.compareAndSet(IDLE, DRAINING) || state.compareAndSet(SCHEDULED, DRAINING)) {
+            freeResources();
+        }
+    }
+
+    // free the resources, must own the queue which is never released again
+    private void freeResources() {
+        queue.clear();
+        priorityQueue.clear();
+        batchBuffer.free();
+    }
+
+    /**
+     * The amount of packets currently queued in both lanes.
+     */
+    public int depth() {
+        return queue.size() + priorityQueue.size();
+    }
+
+    /**
+     * The maximum amount of packets in the normal lane.
+     */
+    public int capacity() {
+        return queue.capacity();
+    }
+
+    public boolean isEmpty() {
+        return queue.isEmpty() && priorityQueue.isEmpty();
+    }
+
+    /**
+     * Whether the normal lane is at capacity.
+     */
+    public boolean isSaturated() {
+        return queue.size() >= queue.capacity();
+    }
+
+    /**
+     * The highest depth observed.
+     */
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    public long countDropped() {
+        return countDropped.get();
+    }
+
+    public long countOverflows() {
+        return countOverflows.get();
+    }
+
+    public long countDrained() {
+        return countDrained.get();
+    }
+
+    public long countBatches() {
+        return countBatches.get();
+    }
+
+    public OverflowPolicy overflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public FlushMode flushMode() {
+        return flushMode;
+    }
+
+}
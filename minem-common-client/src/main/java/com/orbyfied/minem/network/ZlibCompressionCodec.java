@@ -0,0 +1,154 @@
+package com.orbyfied.minem.network;
+
+import com.orbyfied.minem.buffer.UnsafeByteBuf;
+import com.orbyfied.minem.exception.ClientReadException;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The zlib compression used by the protocol, with a {@link Deflater} and
+ * {@link Inflater} reading from and writing to {@code ByteBuffer} views of
+ * the buffers. Each is created on first use, so codecs which only ever
+ * decompress do not allocate the (much larger) deflate state.
+ */
+public class ZlibCompressionCodec implements CompressionCodec {
+
+    final int level;   // The deflate compression level
+    Deflater deflater; // The deflater, created lazily
+    Inflater inflater; // The inflater, created lazily
+
+    /* Cached views of the last source and destination buffers */
+    ByteBuffer lastSrcBase;
+    ByteBuffer srcView;
+    ByteBuffer lastDstBase;
+    ByteBuffer dstView;
+
+    public ZlibCompressionCodec(int level) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level " + level);
+        }
+
+        this.level = level;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    @Override
+    public int compress(UnsafeByteBuf src, int offset, int length, UnsafeByteBuf dst) {
+        Deflater deflater = this.deflater;
+        if (deflater == null) {
+            deflater = this.deflater = new Deflater(level);
+        }
+
+        deflater.reset();
+        deflater.setInput(srcView(src, offset, length));
+        deflater.finish();
+
+        int start = dst.writeIndex();
+        while (!deflater.finished()) {
+            dst.ensureWriteCapacity(Math.max(256, length / 2));
+            int written = deflater.deflate(dstView(dst, dst.writeIndex(), dst.remainingWriteCapacity()));
+            dst.writeIndex(dst.writeIndex() + written);
+        }
+
+        return dst.writeIndex() - start;
+    }
+
+    @Override
+    public void decompress(UnsafeByteBuf src, int offset, int length, UnsafeByteBuf dst, int dataLength) throws Exception {
+        Inflater inflater = this.inflater;
+        if (inflater == null) {
+            inflater = this.inflater = new Inflater();
+        }
+
+        dst.ensureWriteCapacity(dataLength);
+        int start = dst.writeIndex();
+
+        inflater.reset();
+        inflater.setInput(srcView(src, offset, length));
+        int inflated = 0;
+        while (inflated < dataLength && !inflater.finished()) {
+            int n = inflater.inflate(dstView(dst, start + inflated, dataLength - inflated));
+            if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                break;
+            }
+
+            inflated += n;
+        }
+
+        if (inflated != dataLength) {
+            throw new ClientReadException("Compressed packet inflated to " + inflated + " bytes, expected " + dataLength);
+        }
+
+        dst.writeIndex(start + dataLength);
+    }
+
+    @Override
+    public int decompressPrefix(UnsafeByteBuf src, int offset, int length, UnsafeByteBuf dst, int maxLength) throws Exception {
+        Inflater inflater = this.inflater;
+        if (inflater == null) {
+            inflater = this.inflater = new Inflater();
+        }
+
+        dst.ensureWriteCapacity(maxLength);
+        int start = dst.writeIndex();
+
+        // the inflater stops once the output is full, leaving the rest of the input
+        inflater.reset();
+        inflater.setInput(srcView(src, offset, length));
+        int inflated = 0;
+        while (inflated < maxLength && !inflater.finished()) {
+            int n = inflater.inflate(dstView(dst, start + inflated, maxLength - inflated));
+            if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                break;
+            }
+
+            inflated += n;
+        }
+
+        dst.writeIndex(start + inflated);
+        return inflated;
+    }
+
+    // get a view of the given region of the source buffer, reusing
+    // the cached view while the buffer is not reallocated
+    private ByteBuffer srcView(UnsafeByteBuf buf, int offset, int length) {
+        ByteBuffer base = buf.nioReference();
+        if (base != lastSrcBase) {
+            lastSrcBase = base;
+            srcView = base.duplicate();
+        }
+
+        srcView.limit(offset + length).position(offset);
+        return srcView;
+    }
+
+    // get a view of the given region of the destination buffer, reusing
+    // the cached view while the buffer is not reallocated
+    private ByteBuffer dstView(UnsafeByteBuf buf, int offset, int length) {
+        ByteBuffer base = buf.nioReference();
+        if (base != lastDstBase) {
+            lastDstBase = base;
+            dstView = base.duplicate();
+        }
+
+        dstView.limit(offset + length).position(offset);
+        return dstView;
+    }
+
+    @Override
+    public void release() {
+        if (deflater != null) {
+            deflater.end();
+        }
+
+        if (inflater != null) {
+            inflater.end();
+        }
+    }
+
+}
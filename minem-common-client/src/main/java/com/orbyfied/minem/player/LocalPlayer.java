@@ -261,22 +261,22 @@ public class LocalPlayer extends ClientComponent implements IncomingPacketListen
 
     public void sendPositionAndLook() {
         Vec3d position = this.transform.position;
-        client.getConnection().sendSync(client.createPacket(new ServerboundPlayerPositionAndLookPacket(position.x, position.y, position.z, transform.yaw, transform.pitch, effectivelyGrounded())));
+        client.getConnection().sendAsync(client.createPacket(new ServerboundPlayerPositionAndLookPacket(position.x, position.y, position.z, transform.yaw, transform.pitch, effectivelyGrounded())));
         this.lastPositionTick = client.tickCount();
     }
 
     public void sendPosition() {
         Vec3d position = this.transform.position;
-        client.getConnection().sendSync(client.createPacket(new ServerboundPlayerPositionPacket(position.x, position.y, position.z, effectivelyGrounded())));
+        client.getConnection().sendAsync(client.createPacket(new ServerboundPlayerPositionPacket(position.x, position.y, position.z, effectivelyGrounded())));
         this.lastPositionTick = client.tickCount();
     }
 
     public void sendLook() {
-        client.getConnection().sendSync(client.createPacket(new ServerboundPlayerLookPacket(transform.yaw, transform.pitch, effectivelyGrounded())));
+        client.getConnection().sendAsync(client.createPacket(new ServerboundPlayerLookPacket(transform.yaw, transform.pitch, effectivelyGrounded())));
     }
 
     public void sendGrounded() {
-        client.getConnection().sendSync(client.createPacket(new ServerboundPlayerGroundedPacket(effectivelyGrounded())));
+        client.getConnection().sendAsync(client.createPacket(new ServerboundPlayerGroundedPacket(effectivelyGrounded())));
     }
 
     public Chain<TransformInitializedHandler> onPositionInitialized() {
@@ -336,7 +336,7 @@ public class LocalPlayer extends ClientComponent implements IncomingPacketListen
         }
 
         flying = b;
-        client.getConnection().sendSync(client.createPacket(new ServerboundPlayerAbilitiesPacket()
+        client.getConnection().sendAsync(client.createPacket(new ServerboundPlayerAbilitiesPacket()
                 .flying(b)
                 .flySpeed(flySpeed)
                 .walkSpeed(1)));
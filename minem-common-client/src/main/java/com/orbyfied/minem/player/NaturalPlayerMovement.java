@@ -3,14 +3,16 @@ package com.orbyfied.minem.player;
 import com.orbyfied.minem.ClientComponent;
 import com.orbyfied.minem.MinecraftClient;
 import com.orbyfied.minem.listener.IncomingPacketListener;
-import com.orbyfied.minem.listener.SubscribePacket;
 import com.orbyfied.minem.math.Vec3d;
 import com.orbyfied.minem.model.transform.AxisAlignedBB;
 import com.orbyfied.minem.model.transform.Transform;
 import com.orbyfied.minem.model.world.WorldPhysicsProvider;
 import com.orbyfied.minem.protocol.PacketContainer;
+import com.orbyfied.minem.protocol.PacketSchema;
+import com.orbyfied.minem.protocol.PacketView;
 import com.orbyfied.minem.protocol.play.ClientboundEntityVelocityPacket;
 import com.orbyfied.minem.protocol47.adhoc.ServerboundClientStatusPacket47;
+import com.orbyfied.minem.protocol47.play.ClientboundEntityVelocityPacket47Serializer;
 
 public class NaturalPlayerMovement extends ClientComponent implements IncomingPacketListener {
 
@@ -18,6 +20,10 @@ public class NaturalPlayerMovement extends ClientComponent implements IncomingPa
         return new NaturalPlayerMovement();
     }
 
+    // The schema of velocity packets and the index of the entity ID in it
+    static final PacketSchema VELOCITY_SCHEMA = ClientboundEntityVelocityPacket47Serializer.SCHEMA;
+    static final int VELOCITY_ENTITY_ID = VELOCITY_SCHEMA.indexOf("entityID");
+
     transient LocalPlayer player;
     transient WorldPhysicsProvider physics = WorldPhysicsProvider.stub();
 
@@ -30,6 +36,7 @@ public class NaturalPlayerMovement extends ClientComponent implements IncomingPa
     @Override
     protected boolean attach(MinecraftClient client) {
         subscribeAllIncomingPackets(client);
+        client.onTypedReceived().by(ClientboundEntityVelocityPacket.class).addLast(this::onVelocity);
 
         player = client.require(LocalPlayer.class);
         player.onMovementTick().addLast(this::tickMovement);
@@ -67,7 +74,7 @@ public class NaturalPlayerMovement extends ClientComponent implements IncomingPa
 
         // todo: ad-hoc
         if (player.isDead()) {
-            client.getConnection().sendSync(client.createPacket(new ServerboundClientStatusPacket47(/* respawn */ 0)));
+            client.getConnection().sendAsync(client.createPacket(new ServerboundClientStatusPacket47(/* respawn */ 0)));
         }
     }
 
@@ -140,13 +147,22 @@ public class NaturalPlayerMovement extends ClientComponent implements IncomingPa
 //        System.out.println(bb + " -> " + moved + " grounded: " + player.grounded + ", velocity: " + player.velocity);
     }
 
-    @SubscribePacket
-    void onVelocity(PacketContainer c, ClientboundEntityVelocityPacket packet) {
+    // most velocity packets are for other entities, so check the
+    // entity ID on the view before decoding the packet
+    int onVelocity(PacketContainer c) {
+        PacketView view = c.view();
+        if (view != null && view.schema() == VELOCITY_SCHEMA && view.getInt(VELOCITY_ENTITY_ID) != player.entityID) {
+            return 0;
+        }
+
+        ClientboundEntityVelocityPacket packet = c.data();
         if (packet.getEntityID() == player.entityID) {
             player.velocity.x = packet.getVelocityX();
             player.velocity.y = packet.getVelocityY();
             player.velocity.z = packet.getVelocityZ();
         }
+
+        return 0;
     }
 
 }
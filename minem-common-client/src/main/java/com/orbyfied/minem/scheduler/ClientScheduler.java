@@ -1,43 +1,197 @@
 package com.orbyfied.minem.scheduler;
 
 import com.orbyfied.minem.MinecraftClient;
-import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import slatepowered.veru.misc.Throwables;
 
 import java.time.Duration;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * A scheduler.
+ * A scheduler, which runs tasks on the ticks of the client or delayed in real time.
+ *
+ * Tick tasks can be submitted from any thread through a lock-free multi-producer queue,
+ * which the ticking thread drains into a wheel indexed by tick at the start of every tick
+ * before running the tasks due. The tasks are the nodes of both, so draining, running and
+ * rescheduling repeating tasks allocates nothing.
  */
-@RequiredArgsConstructor
 public class ClientScheduler {
 
     final MinecraftClient client;
 
+    /* Tick Tasks */
+    static final int WHEEL_SIZE = 64; // The amount of slots in the tick wheel, a power of two
+
+    final TickTask[] wheelHeads = new TickTask[WHEEL_SIZE]; // The first task of each slot, owned by the ticking thread
+    final TickTask[] wheelTails = new TickTask[WHEEL_SIZE]; // The last task of each slot, owned by the ticking thread
+    final AtomicReference<TickTask> submitTail;            // The last submitted task, swapped by the producers
+    TickTask submitHead;                                   // The last drained task, the stub of the queue, owned by the ticking thread
+    volatile long currentTick;                             // The number of the current or last tick
+
+    public ClientScheduler(MinecraftClient client) {
+        this.client = client;
+
+        TickTask stub = new TickTask(null, 1, 0);
+        this.submitHead = stub;
+        this.submitTail = new AtomicReference<>(stub);
+    }
+
     /**
-     * The real-time scheduled executor.
+     * The real-time scheduled executor, created lazily with the client's thread mode.
      */
-    @Getter
-    final ScheduledExecutorService realTimeExecutor = Executors.newSingleThreadScheduledExecutor();
+    ScheduledExecutorService realTimeExecutor;
+
+    /**
+     * Get the real-time scheduled executor, which is shared with the other clients
+     * of the client's {@link TickDriver} if it has one.
+     */
+    public synchronized ScheduledExecutorService getRealTimeExecutor() {
+        TickDriver driver = client.getTickDriver();
+        if (driver != null) {
+            return driver.getScheduledExecutor();
+        }
+
+        if (realTimeExecutor == null) {
+            realTimeExecutor = client.getThreadMode().newScheduledExecutor("ClientScheduler(" + Integer.toHexString(client.hashCode()) + ")-RealTime");
+        }
+
+        return realTimeExecutor;
+    }
 
-    public void stop() {
+    public synchronized void stop() {
         // force stop real-time exec
-        realTimeExecutor.shutdownNow();
+        if (realTimeExecutor != null) {
+            realTimeExecutor.shutdownNow();
+            realTimeExecutor = null;
+        }
     }
 
     public ScheduledFuture<?> scheduleRealDelayed(Runnable runnable, Duration delay) {
-        return realTimeExecutor.schedule(errorHandled(runnable), delay.toMillis(), TimeUnit.MILLISECONDS);
+        return getRealTimeExecutor().schedule(errorHandled(runnable), delay.toMillis(), TimeUnit.MILLISECONDS);
     }
 
     public <T> ScheduledFuture<T> scheduleRealDelayed(Callable<T> runnable, Duration delay) {
-        return realTimeExecutor.schedule(errorHandled(runnable), delay.toMillis(), TimeUnit.MILLISECONDS);
+        return getRealTimeExecutor().schedule(errorHandled(runnable), delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Run the given task on the next tick.
+     *
+     * @return The task.
+     */
+    public TickTask runNextTick(Runnable runnable) {
+        return submit(new TickTask(runnable, 1, 0));
+    }
+
+    /**
+     * Run the given task on the tick the given amount of ticks from now,
+     * 1 being the next tick.
+     *
+     * @return The task.
+     */
+    public TickTask runInTicks(Runnable runnable, int ticks) {
+        if (ticks < 1) {
+            throw new IllegalArgumentException("Delay must be at least 1 tick, got " + ticks);
+        }
+
+        return submit(new TickTask(runnable, ticks, 0));
+    }
+
+    /**
+     * Run the given task every given amount of ticks until it is cancelled,
+     * the first run is on the tick the given delay from now.
+     *
+     * @return The task.
+     */
+    public TickTask runRepeating(Runnable runnable, int delay, int period) {
+        if (delay < 1 || period < 1) {
+            throw new IllegalArgumentException("Delay and period must be at least 1 tick, got " + delay + " and " + period);
+        }
+
+        return submit(new TickTask(runnable, delay, period));
+    }
+
+    // append the given task to the submission queue
+    private TickTask submit(TickTask task) {
+        TickTask prev = submitTail.getAndSet(task);
+        prev.queueNext = task;
+        return task;
+    }
+
+    /**
+     * The number of the current or last tick, counting from 1.
+     */
+    public long getCurrentTick() {
+        return currentTick;
     }
 
     // (50ms) execute tick
     public void tick() {
+        long tick = currentTick + 1;
+        currentTick = tick;
+
+        // move the submitted tasks into the wheel, a task which was appended
+        // but not linked yet is drained on the next tick
+        TickTask task;
+        while ((task = submitHead.queueNext) != null) {
+            submitHead = task;
+            task.targetTick = tick + task.delay - 1;
+            place(task);
+        }
+
+        // take the due tasks out of the slot, keeping the
+        // ones due in later revolutions
+        int slot = (int) (tick & (WHEEL_SIZE - 1));
+        TickTask due = null, dueTail = null;
+        TickTask prev = null;
+        task = wheelHeads[slot];
+        while (task != null) {
+            TickTask next = task.wheelNext;
+            if (task.cancelled || task.targetTick <= tick) {
+                if (prev == null) wheelHeads[slot] = next;
+                else prev.wheelNext = next;
+                if (wheelTails[slot] == task) wheelTails[slot] = prev;
+
+                if (!task.cancelled) {
+                    task.wheelNext = null;
+                    if (dueTail == null) due = task;
+                    else dueTail.wheelNext = task;
+                    dueTail = task;
+                }
+            } else {
+                prev = task;
+            }
+
+            task = next;
+        }
+
+        // run the due tasks in order of submission
+        while (due != null) {
+            TickTask next = due.wheelNext;
+            due.wheelNext = null;
+            try {
+                due.runnable.run();
+            } catch (Throwable t) {
+                client.onException().invoker().onException(t);
+            }
+
+            if (due.period > 0 && !due.cancelled) {
+                due.targetTick = tick + due.period;
+                place(due);
+            }
+
+            due = next;
+        }
+    }
 
+    // append the given task to the wheel slot of its target tick
+    private void place(TickTask task) {
+        int slot = (int) (task.targetTick & (WHEEL_SIZE - 1));
+        task.wheelNext = null;
+        TickTask tail = wheelTails[slot];
+        if (tail == null) wheelHeads[slot] = task;
+        else tail.wheelNext = task;
+        wheelTails[slot] = task;
     }
 
     // (60fps) execute update
@@ -0,0 +1,200 @@
+package com.orbyfied.minem.scheduler;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The timing metrics of the tick or update loop of a client, recorded by the
+ * thread running the loop and readable from any thread.
+ *
+ * The durations are counted in a histogram with power of two buckets in
+ * microseconds, bucket {@code i > 0} counting durations in {@code [2^(i-1), 2^i)us}
+ * and bucket 0 those below 1us.
+ */
+public final class LoopStats {
+
+    /**
+     * The amount of histogram buckets, the last one counts everything above ~4s.
+     */
+    public static final int BUCKETS = 24;
+
+    volatile long periodNanos;                                     // The target period, iterations taking longer are overruns
+    final AtomicLongArray histogram = new AtomicLongArray(BUCKETS); // The durations by bucket
+    final AtomicLong count = new AtomicLong();                     // The amount of iterations
+    final AtomicLong totalNanos = new AtomicLong();                // The cumulative duration of all iterations
+    final AtomicLong maxNanos = new AtomicLong();                  // The longest duration
+    final AtomicLong overruns = new AtomicLong();                  // The iterations which took longer than the period
+    final AtomicLong caughtUp = new AtomicLong();                  // The iterations run late without sleeping
+    final AtomicLong skipped = new AtomicLong();                   // The iterations dropped when behind
+
+    /* Rate */
+    long windowStart;       // The start of the current rate window, owned by the loop thread
+    long windowCount;       // The iterations started in the current window, owned by the loop thread
+    volatile double rate;   // The iterations per second over the last complete window
+
+    public LoopStats(long periodNanos) {
+        this.periodNanos = periodNanos;
+    }
+
+    /**
+     * Record an iteration which started at the given time and took the given duration.
+     */
+    public void record(long startNanos, long durationNanos) {
+        histogram.incrementAndGet(bucket(durationNanos));
+        count.incrementAndGet();
+        totalNanos.addAndGet(durationNanos);
+        if (durationNanos > maxNanos.get()) {
+            maxNanos.set(durationNanos);
+        }
+
+        if (durationNanos > periodNanos) {
+            overruns.incrementAndGet();
+        }
+
+        // recompute the rate about once per second
+        if (windowCount == 0) {
+            windowStart = startNanos;
+        } else if (startNanos - windowStart >= 1_000_000_000L) {
+            rate = windowCount * 1e9 / (startNanos - windowStart);
+            windowStart = startNanos;
+            windowCount = 0;
+        }
+
+        windowCount++;
+    }
+
+    /**
+     * Record an iteration which was run late without sleeping.
+     */
+    public void recordCaughtUp() {
+        caughtUp.incrementAndGet();
+    }
+
+    /**
+     * Record the given amount of iterations dropped because the loop fell behind.
+     */
+    public void recordSkipped(long amount) {
+        skipped.addAndGet(amount);
+    }
+
+    // the histogram bucket of the given duration
+    static int bucket(long nanos) {
+        long micros = nanos / 1000;
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    /**
+     * The exclusive upper bound of the given bucket in nanoseconds.
+     */
+    public static long bucketUpperBoundNanos(int bucket) {
+        return (1L << bucket) * 1000;
+    }
+
+    /**
+     * Discard the recorded metrics, the rate is kept until the next window completes.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram.set(i, 0);
+        }
+
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+        overruns.set(0);
+        caughtUp.set(0);
+        skipped.set(0);
+    }
+
+    public long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    /**
+     * Set the target period, e.g. when the update rate changed.
+     */
+    public void setPeriodNanos(long periodNanos) {
+        this.periodNanos = periodNanos;
+    }
+
+    /**
+     * Get a copy of the duration histogram.
+     */
+    public long[] histogram() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = histogram.get(i);
+        }
+
+        return copy;
+    }
+
+    /**
+     * Get the upper bound of the bucket containing the given quantile of durations.
+     *
+     * @param quantile The quantile, e.g. 0.99.
+     * @return The duration in nanoseconds, 0 if nothing was recorded.
+     */
+    public long quantileNanos(double quantile) {
+        long[] histogram = histogram();
+        long total = 0;
+        for (long c : histogram) {
+            total += c;
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        long target = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram[i];
+            if (seen >= target) {
+                return bucketUpperBoundNanos(i);
+            }
+        }
+
+        return bucketUpperBoundNanos(BUCKETS - 1);
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public long averageNanos() {
+        long count = count();
+        return count != 0 ? totalNanos.get() / count : 0;
+    }
+
+    public long maxNanos() {
+        return maxNanos.get();
+    }
+
+    public long overruns() {
+        return overruns.get();
+    }
+
+    public long caughtUp() {
+        return caughtUp.get();
+    }
+
+    public long skipped() {
+        return skipped.get();
+    }
+
+    /**
+     * The achieved iterations per second over the last complete window of about one second.
+     */
+    public double rate() {
+        return rate;
+    }
+
+    @Override
+    public String toString() {
+        return "LoopStats(rate: " + String.format("%.2f", rate) + "/s, count: " + count() + ", avg: " + averageNanos() + "ns" +
+                ", max: " + maxNanos() + "ns, p99: <" + quantileNanos(0.99) + "ns, overruns: " + overruns() +
+                ", caught up: " + caughtUp() + ", skipped: " + skipped() + ")";
+    }
+
+}
@@ -0,0 +1,391 @@
+package com.orbyfied.minem.scheduler;
+
+import com.orbyfied.minem.MinecraftClient;
+import com.orbyfied.minem.client.ThreadMode;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the ticks and updates of many clients from a single timer thread instead
+ * of two threads per client, see {@link MinecraftClient#tickDriver(TickDriver)}.
+ *
+ * The timers are kept in a hashed timing wheel, which the timer thread advances every
+ * {@link #getResolutionNanos()}, so registering, firing and rescheduling a timer is constant
+ * time regardless of the amount of clients. The first deadlines of the clients are staggered
+ * across the tick period so their ticks are spread over the 50ms window instead of all
+ * firing at once. Timers fire at a fixed rate, periods the driver fell behind on are skipped.
+ *
+ * The tasks run on a pool of worker threads or on the timer thread itself if there are no
+ * workers. A tick or update is an overrun if it took longer than its period, or if it was
+ * skipped because the previous one was still running or the driver fell behind. Overruns are
+ * counted per client and reported to the {@link OverrunListener} if set.
+ */
+public final class TickDriver {
+
+    /**
+     * The period of a client tick.
+     */
+    public static final long TICK_PERIOD_NANOS = 50_000_000L;
+
+    // The default timer resolution and wheel size, one revolution covers ~0.5s
+    static final long DEFAULT_RESOLUTION_NANOS = 1_000_000L;
+    static final int DEFAULT_WHEEL_SIZE = 512;
+
+    /**
+     * What a timer drives.
+     */
+    public enum Kind {
+        TICK,  // the 50ms client tick
+        UPDATE // the client update at the target update rate
+    }
+
+    /**
+     * Called when a tick or update of a client overran.
+     */
+    @FunctionalInterface
+    public interface OverrunListener {
+        /**
+         * @param client The client.
+         * @param kind Whether the tick or the update overran.
+         * @param nanos How long the execution took or how late it was.
+         */
+        void onOverrun(MinecraftClient client, Kind kind, long nanos);
+    }
+
+    static TickDriver shared; // The JVM-wide driver, created lazily
+
+    /**
+     * Get the JVM-wide driver, which runs the tasks on one worker per core.
+     */
+    public static synchronized TickDriver shared() {
+        if (shared == null) {
+            shared = create("TickDriver-Shared", Runtime.getRuntime().availableProcessors());
+        }
+
+        return shared;
+    }
+
+    /**
+     * Create and start a new driver with the default resolution.
+     *
+     * @param name The name of the timer thread, also used as prefix for the workers.
+     * @param workers The amount of worker threads, 0 to run the tasks on the timer thread.
+     * @return The driver.
+     */
+    public static TickDriver create(String name, int workers) {
+        return new TickDriver(name, DEFAULT_RESOLUTION_NANOS, DEFAULT_WHEEL_SIZE, workers);
+    }
+
+    final String name;                  // The name of the timer thread
+    final long resolutionNanos;         // The duration of one wheel slot
+    final Timer[] wheel;                // The timers by slot, linked through Timer.next, owned by the timer thread
+    final int mask;                     // The mask to get the slot of an absolute wheel tick
+    final ExecutorService workers;      // The workers to run the tasks on, null to run them on the timer thread
+    final Queue<Timer> pending = new ConcurrentLinkedQueue<>(); // The timers to add to the wheel
+    final AtomicInteger stagger = new AtomicInteger();          // The amount of clients registered, used to stagger them
+    final long startNanos;              // The time wheel tick 0 started at
+    final Thread thread;                // The timer thread
+
+    long currentTick;                   // The absolute wheel tick being processed, owned by the timer thread
+    volatile boolean running = true;    // Whether the timer thread should keep running
+    volatile OverrunListener overrunListener;    // Notified of overruns, null if none
+    ScheduledExecutorService scheduledExecutor;  // The real-time executor shared by the clients, created lazily
+
+    TickDriver(String name, long resolutionNanos, int wheelSize, int workers) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two, got " + wheelSize);
+        }
+
+        this.name = name;
+        this.resolutionNanos = resolutionNanos;
+        this.wheel = new Timer[wheelSize];
+        this.mask = wheelSize - 1;
+        this.workers = workers > 0 ? ThreadMode.PLATFORM.newExecutor(name + "-Worker", workers) : null;
+        this.startNanos = System.nanoTime();
+
+        this.thread = ThreadMode.PLATFORM.newThread(name, this::run);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public long getResolutionNanos() {
+        return resolutionNanos;
+    }
+
+    /**
+     * Set the listener notified when a tick or update of any client overran.
+     *
+     * @return This.
+     */
+    public TickDriver onOverrun(OverrunListener listener) {
+        this.overrunListener = listener;
+        return this;
+    }
+
+    /**
+     * Get the real-time executor shared by the schedulers of the clients driven by this.
+     */
+    public synchronized ScheduledExecutorService getScheduledExecutor() {
+        if (scheduledExecutor == null) {
+            scheduledExecutor = ThreadMode.PLATFORM.newScheduledExecutor(name + "-RealTime");
+        }
+
+        return scheduledExecutor;
+    }
+
+    /**
+     * Register the tick and update of the given client, which are driven until the
+     * returned registration is cancelled.
+     *
+     * @param client The client.
+     * @param tick The tick task or null to not drive ticks.
+     * @param update The update task or null to not drive updates.
+     * @param updatesPerSecond The update rate, ignored if there is no update task.
+     * @return The registration.
+     */
+    public Registration register(MinecraftClient client, Runnable tick, Runnable update, int updatesPerSecond) {
+        Registration registration = new Registration(client);
+
+        // spread the clients over the slots of one period
+        int index = stagger.getAndIncrement();
+        if (tick != null) {
+            registration.tick = schedule(registration, Kind.TICK, tick, TICK_PERIOD_NANOS, index);
+        }
+
+        if (update != null && updatesPerSecond > 0) {
+            registration.update = schedule(registration, Kind.UPDATE, update, 1_000_000_000L / updatesPerSecond, index);
+        }
+
+        return registration;
+    }
+
+    // create a timer with a staggered first deadline and hand it to the timer thread
+    private Timer schedule(Registration registration, Kind kind, Runnable task, long periodNanos, int index) {
+        long slots = Math.max(1, periodNanos / resolutionNanos);
+        long offset = (index % slots) * resolutionNanos;
+        long sinceStart = System.nanoTime() - startNanos;
+        long deadline = startNanos + (sinceStart / periodNanos + 1) * periodNanos + offset;
+
+        Timer timer = new Timer(this, registration, kind, task, periodNanos, deadline);
+        pending.add(timer);
+        return timer;
+    }
+
+    /**
+     * Stop the timer thread and the workers, the timers of all
+     * registered clients stop firing.
+     */
+    public synchronized void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        if (workers != null) {
+            workers.shutdown();
+        }
+
+        if (scheduledExecutor != null) {
+            scheduledExecutor.shutdownNow();
+        }
+    }
+
+    /* Timer Thread */
+
+    // run() for the timer thread
+    private void run() {
+        while (running) {
+            // wait for the end of the current wheel tick
+            long deadline = startNanos + (currentTick + 1) * resolutionNanos;
+            long now;
+            while ((now = System.nanoTime()) < deadline) {
+                LockSupport.parkNanos(deadline - now);
+                if (!running) {
+                    return;
+                }
+            }
+
+            Timer timer;
+            while ((timer = pending.poll()) != null) {
+                place(timer);
+            }
+
+            expire((int) (currentTick & mask), now);
+            currentTick++;
+        }
+    }
+
+    // add the given timer to the slot of its deadline
+    private void place(Timer timer) {
+        long index = Math.max((timer.deadline - startNanos) / resolutionNanos, currentTick);
+        timer.remainingRounds = (index - currentTick) / wheel.length;
+        int slot = (int) (index & mask);
+        timer.next = wheel[slot];
+        wheel[slot] = timer;
+    }
+
+    // fire the due timers of the given slot and reschedule them
+    private void expire(int slot, long now) {
+        Timer fired = null; // The fired timers, placed again after the slot was processed
+        Timer prev = null;
+        Timer timer = wheel[slot];
+        while (timer != null) {
+            Timer next = timer.next;
+            if (timer.cancelled || timer.remainingRounds <= 0) {
+                // unlink from the slot
+                if (prev == null) wheel[slot] = next;
+                else prev.next = next;
+
+                if (!timer.cancelled) {
+                    fire(timer, now);
+                    timer.next = fired;
+                    fired = timer;
+                }
+            } else {
+                timer.remainingRounds--;
+                prev = timer;
+            }
+
+            timer = next;
+        }
+
+        while (fired != null) {
+            Timer next = fired.next;
+            place(fired);
+            fired = next;
+        }
+    }
+
+    // run the task of the given timer and advance its deadline,
+    // reporting at most one overrun per firing
+    private void fire(Timer timer, long now) {
+        long late = now - timer.deadline;
+        timer.deadline += timer.periodNanos;
+        boolean behind = timer.deadline <= now;
+        if (behind) {
+            // fell behind by at least a whole period, skip the missed ones
+            timer.deadline += ((now - timer.deadline) / timer.periodNanos + 1) * timer.periodNanos;
+        }
+
+        if (behind || timer.running) {
+            overrun(timer, late);
+        }
+
+        if (timer.running) {
+            // the previous execution is still running
+            return;
+        }
+
+        timer.running = true;
+        if (workers != null) {
+            workers.execute(timer);
+        } else {
+            timer.run();
+        }
+    }
+
+    // count and report an overrun of the given timer
+    void overrun(Timer timer, long nanos) {
+        timer.overruns.incrementAndGet();
+        OverrunListener listener = overrunListener;
+        if (listener != null) {
+            try {
+                listener.onOverrun(timer.registration.client, timer.kind, nanos);
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * A periodic task in the wheel, which is also the runnable passed
+     * to the workers so firing it allocates nothing.
+     */
+    static final class Timer implements Runnable {
+
+        final TickDriver driver;
+        final Registration registration;
+        final Kind kind;
+        final Runnable task;
+        final long periodNanos;
+        final AtomicLong overruns = new AtomicLong();
+
+        long deadline;              // The next time to fire at, owned by the timer thread
+        long remainingRounds;       // The wheel revolutions until the slot is due, owned by the timer thread
+        Timer next;                 // The next timer in the slot, owned by the timer thread
+        volatile boolean running;   // Whether the task is currently executing
+        volatile boolean cancelled; // Whether the timer should be dropped from the wheel
+
+        Timer(TickDriver driver, Registration registration, Kind kind, Runnable task, long periodNanos, long deadline) {
+            this.driver = driver;
+            this.registration = registration;
+            this.kind = kind;
+            this.task = task;
+            this.periodNanos = periodNanos;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                System.err.println("An error occurred in the " + kind.name().toLowerCase() + " of a client driven by " + driver.name);
+                t.printStackTrace();
+            } finally {
+                long took = System.nanoTime() - start;
+                running = false;
+                if (took > periodNanos) {
+                    driver.overrun(this, took);
+                }
+            }
+        }
+
+    }
+
+    /**
+     * The timers of one client.
+     */
+    public static final class Registration {
+
+        final MinecraftClient client;
+        Timer tick;   // The tick timer, null if ticks are not driven
+        Timer update; // The update timer, null if updates are not driven
+
+        Registration(MinecraftClient client) {
+            this.client = client;
+        }
+
+        public MinecraftClient getClient() {
+            return client;
+        }
+
+        /**
+         * The amount of ticks which overran so far.
+         */
+        public long tickOverruns() {
+            return tick != null ? tick.overruns.get() : 0;
+        }
+
+        /**
+         * The amount of updates which overran so far.
+         */
+        public long updateOverruns() {
+            return update != null ? update.overruns.get() : 0;
+        }
+
+        /**
+         * Stop driving the client, a task which is currently running completes.
+         */
+        public void cancel() {
+            if (tick != null) tick.cancelled = true;
+            if (update != null) update.cancelled = true;
+        }
+
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.orbyfied.minem.scheduler;
+
+/**
+ * A task scheduled to run on the tick of a client, see {@link ClientScheduler#runInTicks(Runnable, int)}.
+ *
+ * The task is its own node in the submission queue and the tick wheel of the
+ * scheduler, so running and rescheduling it allocates nothing.
+ */
+public final class TickTask {
+
+    final Runnable runnable;    // The code to run
+    final int delay;            // The amount of ticks until the first run, at least 1
+    final int period;           // The amount of ticks between runs, 0 if it only runs once
+
+    volatile TickTask queueNext; // The next task in the submission queue
+    TickTask wheelNext;          // The next task in the wheel slot, owned by the ticking thread
+    long targetTick;             // The tick to run on next, owned by the ticking thread
+    volatile boolean cancelled;  // Whether the task should not run anymore
+
+    TickTask(Runnable runnable, int delay, int period) {
+        this.runnable = runnable;
+        this.delay = delay;
+        this.period = period;
+    }
+
+    /**
+     * Cancel the task, it does not run on any tick starting after this call.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isRepeating() {
+        return period > 0;
+    }
+
+}
@@ -0,0 +1,184 @@
+package com.orbyfied.minem.network;
+
+import com.orbyfied.minem.MinecraftClient;
+import com.orbyfied.minem.buffer.UnsafeByteBuf;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests decoding uncompressed frames split across reads with the {@link FrameDecoder}.
+ */
+public class FrameDecoderTest {
+
+    /**
+     * A connection with an unconnected socket which records the received packet data.
+     */
+    static class TestConnection extends ProtocolConnection {
+
+        final List<byte[]> received = new ArrayList<>();
+
+        TestConnection() {
+            super(new NetworkManager(), MinecraftClient.create());
+            socket = new Socket();
+        }
+
+        @Override
+        protected void receivePacketData(UnsafeByteBuf buf) {
+            byte[] bytes = new byte[buf.remainingWritten()];
+            buf.getBytes(buf.readIndex(), bytes);
+            received.add(bytes);
+        }
+
+    }
+
+    /**
+     * A channel returning one of the given chunks per read.
+     */
+    static class ChunkedChannel implements ReadableByteChannel {
+
+        final List<byte[]> chunks = new ArrayList<>();
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (chunks.isEmpty()) {
+                return -1;
+            }
+
+            byte[] chunk = chunks.remove(0);
+            dst.put(chunk);
+            return chunk.length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() { }
+
+    }
+
+    // the packet data with the given packet ID followed by the given amount of counting bytes
+    static byte[] packetData(int packetId, int length) {
+        byte[] data = new byte[length];
+        data[0] = (byte) packetId;
+        for (int i = 1; i < length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+
+        return data;
+    }
+
+    // the uncompressed frame of the given packet data
+    static byte[] frame(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int value = data.length;
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out.write(value);
+        out.writeBytes(data);
+        return out.toByteArray();
+    }
+
+    // read the next chunk from the channel and decode the complete frames
+    static int readAndDecode(FrameDecoder decoder, ReadableByteChannel channel) throws Exception {
+        assertTrue(decoder.readFrom(channel) > 0);
+        return decoder.decodeFrames();
+    }
+
+    @Test
+    void decodesLengthSplitWithinVarInt() throws Exception {
+        TestConnection connection = new TestConnection();
+        FrameDecoder decoder = new FrameDecoder(connection);
+        try {
+            byte[] data = packetData(0x21, 300);
+            byte[] frame = frame(data); // two byte length prefix
+            ChunkedChannel channel = new ChunkedChannel();
+            channel.chunks.add(Arrays.copyOfRange(frame, 0, 1));
+            channel.chunks.add(Arrays.copyOfRange(frame, 1, frame.length));
+
+            assertEquals(0, readAndDecode(decoder, channel));
+            assertEquals(1, readAndDecode(decoder, channel));
+            assertEquals(1, connection.received.size());
+            assertArrayEquals(data, connection.received.get(0));
+        } finally {
+            decoder.release();
+        }
+    }
+
+    @Test
+    void decodesBodySplitAcrossReads() throws Exception {
+        TestConnection connection = new TestConnection();
+        FrameDecoder decoder = new FrameDecoder(connection);
+        try {
+            byte[] data = packetData(0x05, 100);
+            byte[] frame = frame(data);
+            ChunkedChannel channel = new ChunkedChannel();
+            channel.chunks.add(Arrays.copyOfRange(frame, 0, 40));
+            channel.chunks.add(Arrays.copyOfRange(frame, 40, 41));
+            channel.chunks.add(Arrays.copyOfRange(frame, 41, frame.length));
+
+            assertEquals(0, readAndDecode(decoder, channel));
+            assertEquals(0, readAndDecode(decoder, channel));
+            assertEquals(1, readAndDecode(decoder, channel));
+            assertArrayEquals(data, connection.received.get(0));
+        } finally {
+            decoder.release();
+        }
+    }
+
+    @Test
+    void compactsIncompleteFrames() throws Exception {
+        TestConnection connection = new TestConnection();
+        FrameDecoder decoder = new FrameDecoder(connection);
+        try {
+            byte[] first = packetData(0x01, 50);
+            byte[] second = packetData(0x02, 80);
+            byte[] large = packetData(0x03, FrameDecoder.READ_CHUNK_SIZE * 3); // larger than the initial buffer
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            stream.writeBytes(frame(first));
+            stream.writeBytes(frame(second));
+            stream.writeBytes(frame(large));
+            byte[] bytes = stream.toByteArray();
+
+            // the first chunk ends within the second frame
+            int split = frame(first).length + 30;
+            ChunkedChannel channel = new ChunkedChannel();
+            channel.chunks.add(Arrays.copyOfRange(bytes, 0, split));
+            for (int offset = split; offset < bytes.length; offset += FrameDecoder.READ_CHUNK_SIZE) {
+                channel.chunks.add(Arrays.copyOfRange(bytes, offset, Math.min(bytes.length, offset + FrameDecoder.READ_CHUNK_SIZE)));
+            }
+
+            assertEquals(1, readAndDecode(decoder, channel));
+            assertEquals(0, decoder.inputBuffer.readIndex(), "the incomplete frame was not moved to the start");
+            assertEquals(30, decoder.inputBuffer.remainingWritten());
+
+            int decoded = 1;
+            while (!channel.chunks.isEmpty()) {
+                decoded += readAndDecode(decoder, channel);
+            }
+
+            assertEquals(3, decoded);
+            assertEquals(0, decoder.inputBuffer.remainingWritten());
+            assertArrayEquals(first, connection.received.get(0));
+            assertArrayEquals(second, connection.received.get(1));
+            assertArrayEquals(large, connection.received.get(2));
+        } finally {
+            decoder.release();
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.orbyfied.minem.network;
+
+import com.orbyfied.minem.MinecraftClient;
+import com.orbyfied.minem.buffer.UnsafeByteBuf;
+import com.orbyfied.minem.protocol.PacketContainer;
+import org.junit.jupiter.api.Test;
+
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the overflow handling and lifecycle of the {@link SendQueue}.
+ */
+public class SendQueueTest {
+
+    /**
+     * A connection with an unconnected socket which writes on a single thread and counts the written frames.
+     */
+    static class TestConnection extends ProtocolConnection {
+
+        final ExecutorService writer = Executors.newSingleThreadExecutor();
+        final UnsafeByteBuf frame = UnsafeByteBuf.createDirect(16);
+        final AtomicInteger written = new AtomicInteger();
+        final List<Integer> order = new ArrayList<>(); // The network IDs of the written packets
+
+        TestConnection() {
+            super(new NetworkManager(), MinecraftClient.create());
+            socket = new Socket();
+        }
+
+        @Override
+        protected void executeWrite(Runnable task) {
+            writer.execute(task);
+        }
+
+        @Override
+        protected UnsafeByteBuf encodePacket(PacketContainer packet) {
+            frame.reset();
+            frame.writeByte((byte) packet.networkId);
+            return frame;
+        }
+
+        @Override
+        protected void writeFrame(UnsafeByteBuf batch) {
+            written.addAndGet(batch.remainingWritten());
+            synchronized (order) {
+                for (int i = batch.readIndex(); i < batch.writeIndex(); i++) {
+                    order.add((int) batch.getByte(i));
+                }
+            }
+        }
+
+        void shutdown() {
+            writer.shutdownNow();
+            frame.free();
+        }
+
+    }
+
+    @Test
+    void callerRunsOnWriterThreadDoesNotLivelock() throws Exception {
+        TestConnection connection = new TestConnection();
+        SendQueue queue = new SendQueue(connection, 8, SendQueue.OverflowPolicy.CALLER_RUNS, SendQueue.FlushMode.IMMEDIATE);
+        try {
+            // like a handler on the event loop, the scheduled drain can not
+            // start before the task filling the queue completes
+            Future<?> future = connection.writer.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    assertTrue(queue.offer(new PacketContainer(), i % 10 == 0));
+                }
+            });
+
+            future.get(5, TimeUnit.SECONDS);
+            connection.writer.submit(() -> { }).get(5, TimeUnit.SECONDS);
+
+            assertEquals(100, connection.written.get());
+            assertEquals(100, queue.countDrained());
+            assertEquals(0, queue.countDropped());
+            assertTrue(queue.countOverflows() > 0);
+        } finally {
+            queue.release();
+            connection.shutdown();
+        }
+    }
+
+    @Test
+    void dropPolicyDropsWhenFull() throws Exception {
+        TestConnection connection = new TestConnection();
+        SendQueue queue = new SendQueue(connection, 8, SendQueue.OverflowPolicy.DROP, SendQueue.FlushMode.IMMEDIATE);
+        try {
+            int queued = connection.writer.submit(() -> {
+                int count = 0;
+                for (int i = 0; i < 20; i++) {
+                    if (queue.offer(new PacketContainer(), false)) count++;
+                }
+
+                return count;
+            }).get(5, TimeUnit.SECONDS);
+            connection.writer.submit(() -> { }).get(5, TimeUnit.SECONDS);
+
+            assertEquals(8, queued);
+            assertEquals(12, queue.countDropped());
+            assertEquals(8, connection.written.get());
+        } finally {
+            queue.release();
+            connection.shutdown();
+        }
+    }
+
+    @Test
+    void sendAsyncAfterCloseCreatesNoQueue() {
+        TestConnection connection = new TestConnection();
+        try {
+            assertTrue(connection.close());
+            assertFalse(connection.sendAsync(new PacketContainer()));
+            assertNull(connection.getSendQueue());
+        } finally {
+            connection.shutdown();
+        }
+    }
+
+    static PacketContainer packet(int networkId) {
+        PacketContainer packet = new PacketContainer();
+        packet.networkId = networkId;
+        return packet;
+    }
+
+    @Test
+    void sendSyncWritesQueuedPacketsFirst() throws Exception {
+        TestConnection connection = new TestConnection();
+        SendQueue queue = new SendQueue(connection, 8, SendQueue.OverflowPolicy.DROP, SendQueue.FlushMode.IMMEDIATE);
+        connection.sendQueue = queue;
+        CountDownLatch blocked = new CountDownLatch(1);
+        try {
+            // the drain scheduled by the offers can not start
+            connection.writer.execute(() -> {
+                try {
+                    blocked.await();
+                } catch (InterruptedException ignored) { }
+            });
+
+            assertTrue(queue.offer(packet(1), false));
+            assertTrue(queue.offer(packet(2), false));
+            connection.sendSync(packet(3));
+            assertEquals(List.of(1, 2, 3), connection.order);
+        } finally {
+            blocked.countDown();
+            queue.release();
+            connection.shutdown();
+        }
+    }
+
+}
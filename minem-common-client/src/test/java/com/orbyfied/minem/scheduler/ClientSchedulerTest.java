@@ -0,0 +1,192 @@
+package com.orbyfied.minem.scheduler;
+
+import com.orbyfied.minem.MinecraftClient;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests the tick wheel of the {@link ClientScheduler}.
+ */
+public class ClientSchedulerTest {
+
+    static ClientScheduler scheduler() {
+        return new ClientScheduler(MinecraftClient.create());
+    }
+
+    // a task logging the given name with the tick it ran on
+    static Runnable log(ClientScheduler scheduler, List<String> log, String name) {
+        return () -> log.add(name + "@" + scheduler.getCurrentTick());
+    }
+
+    static void tick(ClientScheduler scheduler, int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            scheduler.tick();
+        }
+    }
+
+    @Test
+    void runsInSubmissionOrderWithinSlot() {
+        ClientScheduler scheduler = scheduler();
+        List<String> log = new ArrayList<>();
+        scheduler.runInTicks(log(scheduler, log, "A"), 3);
+        scheduler.runNextTick(log(scheduler, log, "B"));
+        scheduler.runInTicks(log(scheduler, log, "C"), 3);
+        scheduler.tick();
+
+        // D lands in the same slot as A and C but is submitted later
+        scheduler.runInTicks(log(scheduler, log, "D"), 2);
+        scheduler.runRepeating(log(scheduler, log, "E"), 2, 1);
+        scheduler.tick();
+
+        // submitted by a task, so it runs on the next tick
+        scheduler.runNextTick(() -> scheduler.runNextTick(log(scheduler, log, "F")));
+        tick(scheduler, 2);
+        assertEquals(List.of("B@1", "A@3", "C@3", "D@3", "E@3", "E@4", "F@4"), log);
+    }
+
+    @Test
+    void runsDelaysBeyondOneRevolution() {
+        ClientScheduler scheduler = scheduler();
+        List<String> log = new ArrayList<>();
+        int[] delays = { ClientScheduler.WHEEL_SIZE - 1, ClientScheduler.WHEEL_SIZE, ClientScheduler.WHEEL_SIZE + 1,
+                2 * ClientScheduler.WHEEL_SIZE, 5 * ClientScheduler.WHEEL_SIZE + 3 };
+        List<String> expected = new ArrayList<>();
+        for (int delay : delays) {
+            scheduler.runInTicks(log(scheduler, log, "T" + delay), delay);
+            expected.add("T" + delay + "@" + delay);
+        }
+
+        tick(scheduler, 6 * ClientScheduler.WHEEL_SIZE);
+        assertEquals(expected, log);
+    }
+
+    @Test
+    void reschedulesIntoSlotBeingProcessed() {
+        ClientScheduler scheduler = scheduler();
+        List<String> log = new ArrayList<>();
+
+        // both periods land the repeating task back in the slot it was taken from
+        TickTask a = scheduler.runRepeating(log(scheduler, log, "A"), 2, ClientScheduler.WHEEL_SIZE);
+        TickTask b = scheduler.runRepeating(log(scheduler, log, "B"), 2, 2 * ClientScheduler.WHEEL_SIZE);
+        scheduler.runInTicks(log(scheduler, log, "C"), 2 + ClientScheduler.WHEEL_SIZE);
+        tick(scheduler, 3 * ClientScheduler.WHEEL_SIZE + 2);
+        a.cancel();
+        b.cancel();
+        tick(scheduler, 3 * ClientScheduler.WHEEL_SIZE);
+
+        // a rescheduled task is appended behind the tasks already waiting in the slot
+        assertEquals(List.of("A@2", "B@2", "C@66", "A@66", "B@130", "A@130", "A@194"), log);
+        assertTrue(a.isRepeating());
+    }
+
+    @Test
+    void skipsTasksCancelledInWheel() {
+        ClientScheduler scheduler = scheduler();
+        List<String> log = new ArrayList<>();
+        scheduler.runInTicks(log(scheduler, log, "A"), 10);
+        TickTask b = scheduler.runInTicks(log(scheduler, log, "B"), 10);
+        scheduler.runInTicks(log(scheduler, log, "C"), 10);
+        TickTask far = scheduler.runInTicks(log(scheduler, log, "D"), 3 * ClientScheduler.WHEEL_SIZE);
+        TickTask repeating = scheduler.runRepeating(log(scheduler, log, "R"), 1, 4);
+        tick(scheduler, 5);
+
+        // all of them are in the wheel by now
+        b.cancel();
+        far.cancel();
+        repeating.cancel();
+        tick(scheduler, 4 * ClientScheduler.WHEEL_SIZE);
+
+        assertEquals(List.of("R@1", "R@5", "A@10", "C@10"), log);
+        assertTrue(b.isCancelled());
+
+        // the cancelled tasks were unlinked from their slots
+        for (int slot = 0; slot < ClientScheduler.WHEEL_SIZE; slot++) {
+            assertNull(scheduler.wheelHeads[slot], "slot " + slot);
+            assertNull(scheduler.wheelTails[slot], "slot " + slot);
+        }
+    }
+
+    @Test
+    void acceptsSubmissionsFromOtherThreadsDuringTicks() throws InterruptedException {
+        ClientScheduler scheduler = scheduler();
+        int threads = 4;
+        int perThread = 20_000;
+        AtomicLongArray runs = new AtomicLongArray(threads * perThread);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                for (int i = 0; i < perThread; i++) {
+                    int index = base + i;
+                    scheduler.runInTicks(() -> runs.incrementAndGet(index), 1 + i % (ClientScheduler.WHEEL_SIZE + 7));
+                }
+            });
+
+            thread.start();
+            producers.add(thread);
+        }
+
+        start.countDown();
+        boolean alive = true;
+        while (alive) {
+            scheduler.tick();
+            alive = false;
+            for (Thread thread : producers) {
+                alive |= thread.isAlive();
+            }
+        }
+
+        for (Thread thread : producers) {
+            thread.join();
+        }
+
+        tick(scheduler, 2 * ClientScheduler.WHEEL_SIZE);
+        for (int i = 0; i < runs.length(); i++) {
+            assertEquals(1, runs.get(i), "task " + i);
+        }
+    }
+
+    @Test
+    void ticksWithoutAllocating() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) threadBean;
+        assumeTrue(mx.isThreadAllocatedMemorySupported() && mx.isThreadAllocatedMemoryEnabled());
+
+        ClientScheduler scheduler = scheduler();
+        AtomicLong counter = new AtomicLong();
+        Runnable increment = counter::incrementAndGet;
+        for (int i = 0; i < 1000; i++) {
+            scheduler.runRepeating(increment, 1, 1 + i % 5);
+        }
+
+        // warm up so the measured ticks run compiled
+        tick(scheduler, 20_000);
+
+        long thread = Thread.currentThread().getId();
+        long before = mx.getThreadAllocatedBytes(thread);
+        long runsBefore = counter.get();
+        tick(scheduler, 10_000);
+        long allocated = mx.getThreadAllocatedBytes(thread) - before;
+
+        assertTrue(counter.get() - runsBefore > 0);
+        assertEquals(0, allocated, "bytes allocated while ticking");
+    }
+
+}
@@ -8,7 +8,11 @@ import com.orbyfied.minem.protocol.play.ServerboundKeepAlivePacket;
 
 /**
  * Registry of all common packet implementations, *not interfaces*.
+ *
+ * The mappings are loaded from the generated {@link CommonPacketImplementationsMappings}
+ * table, the classes are kept for compiling them reflectively.
  */
+@MappingTable
 public final class CommonPacketImplementations {
 
     public static final Class<?>[] CLASSES = new Class[] {
@@ -24,6 +28,6 @@ public final class CommonPacketImplementations {
             ServerboundKeepAlivePacket.class,
     };
 
-    public static final PacketMapping[] MAPPINGS = PacketUtil.compileAll(CLASSES);
+    public static final PacketMapping[] MAPPINGS = CommonPacketImplementationsMappings.create();
 
 }
@@ -5,6 +5,7 @@ import com.orbyfied.minem.protocol.Mapping;
 import com.orbyfied.minem.protocol.PacketContainer;
 import com.orbyfied.minem.protocol.SerializablePacketData;
 import com.orbyfied.minem.protocol.ProtocolPhases;
+import com.orbyfied.minem.protocol.RecyclablePacketData;
 import lombok.*;
 
 import java.util.HashMap;
@@ -22,7 +23,7 @@ import java.util.UUID;
 @Setter
 @ToString
 @Mapping(id = 0x02, primaryName = "ClientboundLoginSuccess", phase = ProtocolPhases.LOGIN)
-public class ClientboundLoginSuccessPacket implements SerializablePacketData {
+public class ClientboundLoginSuccessPacket implements SerializablePacketData, RecyclablePacketData {
 
     UUID uuid;
     String username;
@@ -46,6 +47,11 @@ public class ClientboundLoginSuccessPacket implements SerializablePacketData {
         }
     }
 
+    @Override
+    public void recycle() {
+        properties.clear();
+    }
+
     @Override
     public void write(PacketContainer container, UnsafeByteBuf out) throws Exception {
         if (container.getProtocolVersion() <= 47) out.writeString(uuid.toString());
@@ -1,45 +1,27 @@
 package com.orbyfied.minem.protocol47;
 
 import com.orbyfied.minem.protocol.CommonPacketImplementations;
-import com.orbyfied.minem.protocol.PacketUtil;
+import com.orbyfied.minem.protocol.MappingTable;
 import com.orbyfied.minem.protocol.Protocol;
-import com.orbyfied.minem.protocol.play.ClientboundEntityVelocityPacket;
-import com.orbyfied.minem.protocol47.adhoc.ClientboundUpdateHealthPacket47;
-import com.orbyfied.minem.protocol47.adhoc.ServerboundClientStatusPacket47;
-import com.orbyfied.minem.protocol47.play.*;
-import com.orbyfied.minem.protocol47.play.*;
 
+/**
+ * Protocol 47 (1.8.x), the mappings of all mapping classes in this package are
+ * generated into the {@link Protocol47Mappings} table at compile time.
+ */
+@MappingTable
 public class Protocol47 {
 
     /**
-     * The protocol object.
+     * The protocol object, frozen after all mappings are registered
+     * so it can be shared by all clients.
      */
-    public static final Protocol PROTOCOL = Protocol.create(47);
-
-    // All defined packet classes
-    private static final Class<?>[] CLASSES = new Class[] {
-            ClientboundChatMessagePacket47.class,
-            ServerboundChatPacket47.class,
-            ClientboundPlayDisconnectPacket47.class,
-            ClientboundPlayerAbilitiesPacket47.class,
-            ServerboundPlayerAbilitiesPacket47.class,
-            ClientboundJoinGamePacket47.class,
-            ClientboundRespawnPacket47.class,
-            ClientboundPositionAndLookPacket47.class,
-            ServerboundPlayerPositionAndLookPacket47.class,
-            ServerboundPlayerPositionPacket47.class,
-            ServerboundPlayerLookPacket47.class,
-            ServerboundPlayerPositionPacket47.class,
-            ServerboundPlayerGroundedPacket47.class,
-            ClientboundEntityVelocityPacket47.class,
-
-            ServerboundClientStatusPacket47.class,
-            ClientboundUpdateHealthPacket47.class
-    };
+    public static final Protocol PROTOCOL;
 
     static {
-        PROTOCOL.registerPacketMappings(CommonPacketImplementations.MAPPINGS);
-        PROTOCOL.registerPacketMappings(PacketUtil.compileAll(CLASSES));
+        Protocol protocol = Protocol.create(47);
+        protocol.registerPacketMappings(CommonPacketImplementations.MAPPINGS);
+        protocol.registerPacketMappings(Protocol47Mappings.create());
+        PROTOCOL = protocol.freeze();
     }
 
 }
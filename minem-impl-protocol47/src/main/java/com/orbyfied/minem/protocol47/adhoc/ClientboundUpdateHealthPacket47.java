@@ -1,10 +1,9 @@
 package com.orbyfied.minem.protocol47.adhoc;
 
-import com.orbyfied.minem.buffer.UnsafeByteBuf;
 import com.orbyfied.minem.protocol.Mapping;
-import com.orbyfied.minem.protocol.PacketContainer;
 import com.orbyfied.minem.protocol.ProtocolPhases;
-import com.orbyfied.minem.protocol.SerializablePacketData;
+import com.orbyfied.minem.protocol.wire.Serialized;
+import com.orbyfied.minem.protocol.wire.VarInt;
 import lombok.*;
 
 @AllArgsConstructor
@@ -12,24 +11,12 @@ import lombok.*;
 @Getter
 @Setter
 @ToString
+@Serialized
 @Mapping(id = 0x06, phase = ProtocolPhases.PLAY)
-public class ClientboundUpdateHealthPacket47 implements SerializablePacketData {
+public class ClientboundUpdateHealthPacket47 {
 
     float health;
-    int food;
+    @VarInt int food;
     float saturation;
 
-    @Override
-    public void read(PacketContainer container, UnsafeByteBuf in) throws Exception {
-        this.health = in.readFloat();
-        this.food = in.readVarInt();
-        this.saturation = in.readFloat();
-        System.out.println(this);
-    }
-
-    @Override
-    public void write(PacketContainer container, UnsafeByteBuf out) throws Exception {
-
-    }
-
 }
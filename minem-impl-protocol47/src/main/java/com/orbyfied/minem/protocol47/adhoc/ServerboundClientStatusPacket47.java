@@ -1,10 +1,9 @@
 package com.orbyfied.minem.protocol47.adhoc;
 
-import com.orbyfied.minem.buffer.UnsafeByteBuf;
 import com.orbyfied.minem.protocol.Mapping;
-import com.orbyfied.minem.protocol.PacketContainer;
-import com.orbyfied.minem.protocol.SerializablePacketData;
 import com.orbyfied.minem.protocol.ProtocolPhases;
+import com.orbyfied.minem.protocol.wire.Serialized;
+import com.orbyfied.minem.protocol.wire.VarInt;
 import lombok.*;
 
 @AllArgsConstructor
@@ -12,19 +11,10 @@ import lombok.*;
 @Getter
 @Setter
 @ToString
+@Serialized
 @Mapping(id = 0x16, phase = ProtocolPhases.PLAY)
-public class ServerboundClientStatusPacket47 implements SerializablePacketData {
+public class ServerboundClientStatusPacket47 {
 
-    int actionID;
-
-    @Override
-    public void read(PacketContainer container, UnsafeByteBuf in) throws Exception {
-        // todo
-    }
-
-    @Override
-    public void write(PacketContainer container, UnsafeByteBuf out) throws Exception {
-        out.writeVarInt(actionID);
-    }
+    @VarInt int actionID;
 
 }
@@ -1,28 +1,19 @@
 package com.orbyfied.minem.protocol47.play;
 
-import com.orbyfied.minem.buffer.UnsafeByteBuf;
 import com.orbyfied.minem.protocol.Mapping;
-import com.orbyfied.minem.protocol.PacketContainer;
 import com.orbyfied.minem.protocol.ProtocolPhases;
 import com.orbyfied.minem.protocol.play.ClientboundEntityVelocityPacket;
+import com.orbyfied.minem.protocol.wire.FixedPoint;
+import com.orbyfied.minem.protocol.wire.Serialized;
+import com.orbyfied.minem.protocol.wire.VarInt;
 
+@Serialized
 @Mapping(id = 0x12, phase = ProtocolPhases.PLAY, primaryName = "ClientboundEntityVelocity", dataClass = ClientboundEntityVelocityPacket.class)
 public final class ClientboundEntityVelocityPacket47 {
 
-    public static void read(ClientboundEntityVelocityPacket packet, PacketContainer container, UnsafeByteBuf in) throws Exception {
-        packet.setEntityID(in.readVarInt());
-
-        short sx = in.readShort();
-        short sy = in.readShort();
-        short sz = in.readShort();
-
-        packet.setVelocityX(sx / 8000D);
-        packet.setVelocityY(sy / 8000D);
-        packet.setVelocityZ(sz / 8000D);
-    }
-
-    public static void write(ClientboundEntityVelocityPacket packet, PacketContainer container, UnsafeByteBuf out) throws Exception {
-        // todo
-    }
+    @VarInt int entityID;
+    @FixedPoint(value = 8000, bytes = 2) double velocityX; // In units of 1/8000 blocks per tick
+    @FixedPoint(value = 8000, bytes = 2) double velocityY;
+    @FixedPoint(value = 8000, bytes = 2) double velocityZ;
 
 }
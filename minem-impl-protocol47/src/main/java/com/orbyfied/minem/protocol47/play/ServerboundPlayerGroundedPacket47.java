@@ -1,20 +1,14 @@
 package com.orbyfied.minem.protocol47.play;
 
-import com.orbyfied.minem.buffer.UnsafeByteBuf;
 import com.orbyfied.minem.protocol.Mapping;
-import com.orbyfied.minem.protocol.PacketContainer;
 import com.orbyfied.minem.protocol.ProtocolPhases;
 import com.orbyfied.minem.protocol.play.ServerboundPlayerGroundedPacket;
+import com.orbyfied.minem.protocol.wire.Serialized;
 
+@Serialized
 @Mapping(id = 0x03, phase = ProtocolPhases.PLAY, primaryName = "ServerboundPlayerGrounded", dataClass = ServerboundPlayerGroundedPacket.class)
-public class ServerboundPlayerGroundedPacket47 {
+public final class ServerboundPlayerGroundedPacket47 {
 
-    public static void read(ServerboundPlayerGroundedPacket packet, PacketContainer c, UnsafeByteBuf buf) {
-        packet.setGrounded(buf.readBoolean());
-    }
+    boolean grounded;
 
-    public static void write(ServerboundPlayerGroundedPacket packet, PacketContainer c, UnsafeByteBuf buf) {
-        buf.writeBoolean(packet.isGrounded());
-    }
-
-}
\ No newline at end of file
+}
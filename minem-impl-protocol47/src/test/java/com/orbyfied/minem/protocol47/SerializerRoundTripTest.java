@@ -0,0 +1,112 @@
+package com.orbyfied.minem.protocol47;
+
+import com.orbyfied.minem.buffer.UnsafeByteBuf;
+import com.orbyfied.minem.math.Vec3i;
+import com.orbyfied.minem.protocol.play.ClientboundEntityVelocityPacket;
+import com.orbyfied.minem.protocol.play.ServerboundPlayerPositionAndLookPacket;
+import com.orbyfied.minem.protocol.wire.WireTypes;
+import com.orbyfied.minem.protocol47.play.ClientboundEntityVelocityPacket47Serializer;
+import com.orbyfied.minem.protocol47.play.ServerboundPlayerPositionAndLookPacket47Serializer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Writes packets through the generated serializers and reads them back.
+ */
+public class SerializerRoundTripTest {
+
+    // the bytes written to the given buffer so far
+    static byte[] written(UnsafeByteBuf buf) {
+        byte[] bytes = new byte[buf.writeIndex()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buf.getByte(i);
+        }
+
+        return bytes;
+    }
+
+    @Test
+    void positionAndLook() {
+        UnsafeByteBuf buf = UnsafeByteBuf.createDirect(64);
+        try {
+            ServerboundPlayerPositionAndLookPacket packet = new ServerboundPlayerPositionAndLookPacket(
+                    1.5, -64.25, 1e9 + 0.125, 90f, -12.75f, true);
+            ServerboundPlayerPositionAndLookPacket47Serializer.write(packet, null, buf);
+
+            // doubles and floats are big endian on the wire
+            ByteBuffer expected = ByteBuffer.allocate(8 * 3 + 4 * 2 + 1)
+                    .putDouble(1.5).putDouble(-64.25).putDouble(1e9 + 0.125)
+                    .putFloat(90f).putFloat(-12.75f).put((byte) 1);
+            assertArrayEquals(expected.array(), written(buf));
+
+            ServerboundPlayerPositionAndLookPacket read = new ServerboundPlayerPositionAndLookPacket();
+            ServerboundPlayerPositionAndLookPacket47Serializer.read(read, null, buf);
+            assertEquals(1.5, read.getX());
+            assertEquals(-64.25, read.getY());
+            assertEquals(1e9 + 0.125, read.getZ());
+            assertEquals(90f, read.getYaw());
+            assertEquals(-12.75f, read.getPitch());
+            assertTrue(read.isGrounded());
+            assertEquals(0, buf.remainingWritten());
+        } finally {
+            buf.free();
+        }
+    }
+
+    @Test
+    void entityVelocity() {
+        UnsafeByteBuf buf = UnsafeByteBuf.createDirect(64);
+        try {
+            ClientboundEntityVelocityPacket packet = new ClientboundEntityVelocityPacket(300, 0.5, -1.25, 2);
+            ClientboundEntityVelocityPacket47Serializer.write(packet, null, buf);
+
+            ClientboundEntityVelocityPacket read = new ClientboundEntityVelocityPacket();
+            ClientboundEntityVelocityPacket47Serializer.read(read, null, buf);
+            assertEquals(300, read.getEntityID());
+            assertEquals(0.5, read.getVelocityX());
+            assertEquals(-1.25, read.getVelocityY());
+            assertEquals(2, read.getVelocityZ());
+        } finally {
+            buf.free();
+        }
+    }
+
+    @Test
+    void position64() {
+        UnsafeByteBuf buf = UnsafeByteBuf.createDirect(16);
+        try {
+            WireTypes.writePosition64(buf, new Vec3i(-1234567, 255, 7654321));
+            assertArrayEquals(ByteBuffer.allocate(8)
+                    .putLong(((long) (-1234567 & 0x3FFFFFF) << 38) | ((long) 255 << 26) | 7654321).array(), written(buf));
+
+            Vec3i pos = WireTypes.readPosition64(buf, null);
+            assertEquals(-1234567, pos.x);
+            assertEquals(255, pos.y);
+            assertEquals(7654321, pos.z);
+        } finally {
+            buf.free();
+        }
+    }
+
+    @Test
+    void reversedPrimitives() {
+        UnsafeByteBuf buf = UnsafeByteBuf.createDirect(32);
+        try {
+            buf.writeLongReversed(0x0102030405060708L);
+            buf.writeDoubleReversed(Double.NaN);
+            buf.writeFloatReversed(-0f);
+            assertArrayEquals(ByteBuffer.allocate(20)
+                    .putLong(0x0102030405060708L).putDouble(Double.NaN).putFloat(-0f).array(), written(buf));
+
+            assertEquals(0x0102030405060708L, buf.readLongReversed());
+            assertTrue(Double.isNaN(buf.readDoubleReversed()));
+            assertEquals(Float.floatToRawIntBits(-0f), Float.floatToRawIntBits(buf.readFloatReversed()));
+        } finally {
+            buf.free();
+        }
+    }
+
+}